@@ -0,0 +1,67 @@
+package DynamicTreeStructures.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+import DynamicTreeStructures.workload.KeyDistribution;
+
+/**
+ * Deletion in AVLTree against RedBlackTree, both used through TreeStructure on
+ * the same keys. RootedBinaryTree is left out, since it doesn't delete:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar BalancedTreeBenchmark
+ * </pre>
+ *
+ * Every deleted key is inserted back, so the size of the tree stays the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class BalancedTreeBenchmark {
+
+	@Param({ "AVLTree", "RedBlackTree" })
+	String tree;
+
+	@Param({ "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "UNIFORM", "SEQUENTIAL", "ZIPFIAN" })
+	KeyDistribution distribution;
+
+	private TreeStructure<?, Integer> structure;
+	private Integer[] operations;
+	private int next;
+
+	@Setup
+	public void setup() {
+		Integer[] keys = Workloads.boxed(size);
+		structure = Workloads.newTree(tree);
+		Workloads.fill(structure, keys);
+		operations = Workloads.operationKeys(keys, distribution);
+	}
+
+	@Benchmark
+	public Integer deleteAndInsert() {
+		Integer k = operations[next];
+		next = (next + 1) & (Workloads.OPERATIONS - 1);
+		Integer deleted = structure.delete(k);
+		structure.insert(k);
+		return deleted;
+	}
+}
@@ -0,0 +1,83 @@
+package DynamicTreeStructures.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DynamicTreeStructures.structure.RedBlackTree;
+
+/**
+ * Allocation of the delete path of RedBlackTree. Run with the gc profiler and
+ * look at gc.alloc.rate.norm:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar DeleteAllocationBenchmark -prof gc
+ * </pre>
+ *
+ * deleteMissing runs the whole top-down rebalancing of a deletion without
+ * removing anything, and should report 0 B/op. deleteAndInsert removes a key
+ * and inserts it back, so it should report exactly the size of the one node
+ * allocated by the insertion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeleteAllocationBenchmark {
+
+	@Param({ "1024", "1048576" })
+	int size;
+
+	private RedBlackTree<Integer> tree;
+	/** Boxed once, so that boxing does not show up in the allocation rate */
+	private Integer[] present;
+	private Integer[] missing;
+	private int next;
+
+	@Setup
+	public void setup() {
+		tree = new RedBlackTree<>();
+		present = new Integer[size];
+		missing = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			present[i] = 2 * i;
+			missing[i] = 2 * i + 1;
+			tree.insert(present[i]);
+		}
+	}
+
+	@Benchmark
+	public Integer deleteMissing() {
+		Integer k = missing[next];
+		next = (next + 1) & (size - 1);
+		return tree.delete(k);
+	}
+
+	@Benchmark
+	public Integer deleteAndInsert() {
+		Integer k = present[next];
+		next = (next + 1) & (size - 1);
+		Integer deleted = tree.delete(k);
+		tree.insert(k);
+		return deleted;
+	}
+
+	@Benchmark
+	public Integer deleteMinAndInsert() {
+		Integer deleted = tree.deleteMin();
+		tree.insert(deleted);
+		return deleted;
+	}
+}
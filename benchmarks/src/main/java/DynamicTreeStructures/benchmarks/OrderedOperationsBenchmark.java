@@ -0,0 +1,101 @@
+package DynamicTreeStructures.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import DynamicTreeStructures.structure.RedBlackTree;
+import DynamicTreeStructures.workload.KeyDistribution;
+
+/**
+ * Order-based operations, which only RedBlackTree provides:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar OrderedOperationsBenchmark
+ * </pre>
+ *
+ * range reports the keys of [k, k + width) for keys k drawn from the
+ * distribution. deleteMin inserts the minimum back, so the size of the tree
+ * stays the same. searchNear starts from the path of the previous search;
+ * compare it with search, which starts from the root, under SEQUENTIAL keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class OrderedOperationsBenchmark {
+
+	@Param({ "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "UNIFORM", "SEQUENTIAL", "ZIPFIAN" })
+	KeyDistribution distribution;
+
+	@Param({ "100" })
+	int width;
+
+	private RedBlackTree<Integer> tree;
+	private Integer[] operations;
+	private Integer[] ends;
+	private int next;
+
+	@Setup
+	public void setup() {
+		Integer[] keys = Workloads.boxed(size);
+		tree = new RedBlackTree<>();
+		Workloads.fill(tree, keys);
+		operations = Workloads.operationKeys(keys, distribution);
+		ends = new Integer[operations.length];
+		for (int i = 0; i < operations.length; i++) {
+			ends[i] = operations[i] + width - 1;
+		}
+	}
+
+	@Benchmark
+	public Integer search() {
+		Integer k = operations[next];
+		next = (next + 1) & (Workloads.OPERATIONS - 1);
+		return tree.search(k);
+	}
+
+	@Benchmark
+	public Integer searchNear() {
+		Integer k = operations[next];
+		next = (next + 1) & (Workloads.OPERATIONS - 1);
+		return tree.searchNear(k);
+	}
+
+	@Benchmark
+	public Integer successor() {
+		Integer k = operations[next];
+		next = (next + 1) & (Workloads.OPERATIONS - 1);
+		return tree.successor(k);
+	}
+
+	@Benchmark
+	public void range(Blackhole blackhole) {
+		int i = next;
+		next = (next + 1) & (Workloads.OPERATIONS - 1);
+		tree.range(operations[i], ends[i], blackhole::consume);
+	}
+
+	@Benchmark
+	public Integer deleteMin() {
+		Integer min = tree.deleteMin();
+		tree.insert(min);
+		return min;
+	}
+}
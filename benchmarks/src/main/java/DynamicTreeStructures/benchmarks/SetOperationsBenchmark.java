@@ -0,0 +1,113 @@
+package DynamicTreeStructures.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DynamicTreeStructures.structure.RedBlackTree;
+
+/**
+ * Sequential against fork-join set operations of RedBlackTree. The operations
+ * consume the trees, so they are rebuilt before every invocation and each
+ * invocation is timed on its own:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SetOperationsBenchmark -p size=10000000
+ * </pre>
+ *
+ * Run with -Djava.util.concurrent.ForkJoinPool.common.parallelism=N to measure
+ * the speedup with N threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx16g" })
+public class SetOperationsBenchmark {
+
+	@Param({ "1000000", "10000000" })
+	int size;
+
+	/** Size of the second tree, relative to the first one */
+	@Param({ "1", "0.01" })
+	double ratio;
+
+	private RedBlackTree<Integer> index;
+	private RedBlackTree<Integer> delta;
+	private Integer[] indexKeys;
+	private Integer[] deltaKeys;
+
+	@Setup(Level.Trial)
+	public void keys() {
+		Random r = new Random(42);
+		indexKeys = new Integer[size];
+		deltaKeys = new Integer[(int) (size * ratio)];
+		for (int i = 0; i < indexKeys.length; i++) {
+			indexKeys[i] = r.nextInt(4 * size);
+		}
+		for (int i = 0; i < deltaKeys.length; i++) {
+			deltaKeys[i] = r.nextInt(4 * size);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void trees() {
+		index = new RedBlackTree<>();
+		for (Integer k : indexKeys) {
+			index.insert(k);
+		}
+		delta = new RedBlackTree<>();
+		for (Integer k : deltaKeys) {
+			delta.insert(k);
+		}
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> union() {
+		index.union(delta);
+		return index;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> parallelUnion() {
+		index.parallelUnion(delta);
+		return index;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> intersection() {
+		index.intersection(delta);
+		return index;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> parallelIntersection() {
+		index.parallelIntersection(delta);
+		return index;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> difference() {
+		index.difference(delta);
+		return index;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> parallelDifference() {
+		index.parallelDifference(delta);
+		return index;
+	}
+}
@@ -0,0 +1,93 @@
+package DynamicTreeStructures.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+import DynamicTreeStructures.workload.KeyDistribution;
+
+/**
+ * Insertion and search of every TreeStructure, on the same keys:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar TreeStructureBenchmark -p distribution=ZIPFIAN
+ * </pre>
+ *
+ * search looks up keys drawn from the distribution in a tree holding [0, size),
+ * filled in random order. insert builds a whole tree from size keys drawn from
+ * the distribution, which may repeat, and is reported per tree. RootedBinaryTree
+ * degenerates into a list when it inserts sequential keys, so insert refuses
+ * that combination above 1000 keys; exclude it with -p to avoid the failed runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class TreeStructureBenchmark {
+
+	@Param({ "RedBlackTree", "AVLTree", "RootedBinaryTree" })
+	String tree;
+
+	@Param({ "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "UNIFORM", "SEQUENTIAL", "ZIPFIAN" })
+	KeyDistribution distribution;
+
+	private TreeStructure<?, Integer> structure;
+	private Integer[] operations;
+	private Integer[] insertions;
+	private int next;
+
+	@Setup
+	public void setup(BenchmarkParams params) {
+		Integer[] keys = Workloads.boxed(size);
+		if (params.getBenchmark().endsWith(".insert")) {
+			if (tree.equals("RootedBinaryTree") && distribution == KeyDistribution.SEQUENTIAL && size > 1000)
+				throw new IllegalStateException("RootedBinaryTree would be a list of " + size + " nodes");
+			insertions = new Integer[size];
+			int[] sample = distribution.sample(size, size, Workloads.SEED + 2);
+			for (int i = 0; i < size; i++) {
+				insertions[i] = keys[sample[i]];
+			}
+		} else {
+			structure = Workloads.newTree(tree);
+			Workloads.fill(structure, keys);
+			operations = Workloads.operationKeys(keys, distribution);
+		}
+	}
+
+	@Benchmark
+	public Integer search() {
+		Integer k = operations[next];
+		next = (next + 1) & (Workloads.OPERATIONS - 1);
+		return structure.search(k);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 5)
+	public Object insert() {
+		TreeStructure<?, Integer> built = Workloads.newTree(tree);
+		for (Integer k : insertions) {
+			built.insert(k);
+		}
+		return built.getRoot();
+	}
+}
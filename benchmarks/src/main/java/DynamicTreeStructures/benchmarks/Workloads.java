@@ -0,0 +1,68 @@
+package DynamicTreeStructures.benchmarks;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+import DynamicTreeStructures.structure.AVLTree;
+import DynamicTreeStructures.structure.RedBlackTree;
+import DynamicTreeStructures.structure.RootedBinaryTree;
+import DynamicTreeStructures.workload.KeyDistribution;
+
+/**
+ * Setup shared by the benchmarks. Keys are boxed once, before the measurement,
+ * so that boxing is not part of the measured operations.
+ */
+final class Workloads {
+
+	/** Number of precomputed operation keys; a power of 2 to cycle with a mask */
+	static final int OPERATIONS = 1 << 20;
+	static final long SEED = 42;
+
+	private Workloads() {
+	}
+
+	static TreeStructure<?, Integer> newTree(String name) {
+		switch (name) {
+		case "RedBlackTree":
+			return new RedBlackTree<>();
+		case "AVLTree":
+			return new AVLTree<>();
+		case "RootedBinaryTree":
+			return new RootedBinaryTree<>();
+		default:
+			throw new IllegalArgumentException("Unknown tree " + name);
+		}
+	}
+
+	/**
+	 * The keys 0, ..., n - 1, boxed.
+	 */
+	static Integer[] boxed(int n) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		return keys;
+	}
+
+	/**
+	 * Inserts all the keys in random order, so that unbalanced trees have the
+	 * expected O(log n) depth.
+	 */
+	static void fill(TreeStructure<?, Integer> tree, Integer[] keys) {
+		for (int i : KeyDistribution.permutation(keys.length, SEED)) {
+			tree.insert(keys[i]);
+		}
+	}
+
+	/**
+	 * {@link #OPERATIONS} keys drawn from the distribution, sharing the boxed
+	 * keys.
+	 */
+	static Integer[] operationKeys(Integer[] keys, KeyDistribution distribution) {
+		Integer[] operations = new Integer[OPERATIONS];
+		int[] sample = distribution.sample(OPERATIONS, keys.length, SEED + 1);
+		for (int i = 0; i < OPERATIONS; i++) {
+			operations[i] = keys[sample[i]];
+		}
+		return operations;
+	}
+}
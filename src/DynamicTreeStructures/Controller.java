@@ -2,6 +2,8 @@ package DynamicTreeStructures;
 
 import DynamicTreeStructures.imagegenerator.Image;
 import DynamicTreeStructures.imagegenerator.ImageTree;
+import DynamicTreeStructures.instrumentation.InstrumentedTreeStructure;
+import DynamicTreeStructures.instrumentation.LatencyHistogram;
 import DynamicTreeStructures.interfaces.TreeImage;
 import DynamicTreeStructures.interfaces.TreeStructure;
 import DynamicTreeStructures.structure.AVLTree;
@@ -12,7 +14,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImagingOpException;
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Random;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -36,6 +38,11 @@ public class Controller {
     private int type;
 
     private TreeStructure tree;
+    /**
+     * The tree, recording the latency of every operation. The image is drawn
+     * from tree, whose class selects the renderer.
+     */
+    private InstrumentedTreeStructure<?, Integer> measured;
 
     private DefaultTableModel table;
 
@@ -73,11 +80,11 @@ public class Controller {
             this.table.setRowCount(0);
         }
 
-        this.tree = null;
+        TreeStructure<?, Integer> created = null;
 
         switch (type) {
             case AVL_TREE:
-                this.tree = new AVLTree<Integer>();
+                created = new AVLTree<Integer>();
                 break;
             case COMPLETE_BINARY_TREE:
                 break;
@@ -86,12 +93,14 @@ public class Controller {
             case PERFECT_BINARY_TREE:
                 break;
             case ROOTED_BINARY_TREE:
-                this.tree = new RootedBinaryTree<Integer>();
+                created = new RootedBinaryTree<Integer>();
                 break;
             case RED_BLACK_TREE:
-                this.tree = new RedBlackTree<Integer>();
+                created = new RedBlackTree<Integer>();
                 break;
         }
+        this.tree = created;
+        this.measured = created == null ? null : new InstrumentedTreeStructure<>(created);
     }
 
     public void setSize(int w, int h) {
@@ -104,10 +113,8 @@ public class Controller {
         }
         int value = Integer.parseInt(input);
 
-        long start = System.nanoTime();
-        tree.insert(value);
-        long fin = System.nanoTime();
-        double ms = (fin - start) / 1000000.0;
+        measured.insert(value);
+        double ms = measured.lastLatency() / 1000000.0;
 
         table.addRow(new Object[]{table.getRowCount() + 1, input, ms});
 
@@ -119,7 +126,9 @@ public class Controller {
     public void addAll(String input) {
     	if (input.length() == 0) return;
     	try {
-    	tree = RedBlackTree.fromString(input);
+    	RedBlackTree<Integer> parsed = RedBlackTree.fromString(input);
+    	tree = parsed;
+    	measured = new InstrumentedTreeStructure<>(parsed);
     	print();
     	} catch (Exception e) {
     		JOptionPane.showMessageDialog(canvas, e.getMessage(), "Format error", JOptionPane.ERROR_MESSAGE);
@@ -141,11 +150,10 @@ public class Controller {
         }
         int value = Integer.parseInt(input);
 
-        long start = System.nanoTime();
-        tree.search(value);
-        long fin = System.nanoTime();
+        measured.search(value);
+        double ms = measured.lastLatency() / 1000000.0;
 
-        label.setText(String.format("Search %d: %d ms", value, fin - start));
+        label.setText(String.format("Search %d: %.6f ms", value, ms));
         print();
     }
 
@@ -162,10 +170,8 @@ public class Controller {
         }
         int value = Integer.parseInt(input);
 
-        long start = System.nanoTime();
-        tree.delete(value);
-        long fin = System.nanoTime();
-        double ms = (fin - start) / 1000000.0;
+        measured.delete(value);
+        double ms = measured.lastLatency() / 1000000.0;
 
         table.addRow(new Object[]{table.getRowCount() + 1, input, ms});
 
@@ -185,29 +191,29 @@ public class Controller {
         System.out.printf("==============================\n");
         System.out.printf("Seed: %d\n", seed);
         Random r = new Random(seed);
-        
-        for (int i = 0; i < k; i++) {
-            int random = r.nextInt(k * 10);
 
-            int size = table.getRowCount();
-            ArrayList<Integer> values = new ArrayList<>(size);
-            for (int j = 0; j < size; j++) {
-                values.add(Integer.valueOf(table.getValueAt(j, 1).toString()));
-            }
+        // Values already in the table, read once: O(1) per duplicate check
+        int size = table.getRowCount();
+        HashSet<Integer> values = new HashSet<>(2 * (size + k));
+        for (int j = 0; j < size; j++) {
+            values.add(Integer.valueOf(table.getValueAt(j, 1).toString()));
+        }
 
-            while (values.contains(random)) {
+        for (int i = 0; i < k; i++) {
+            int random = r.nextInt(k * 10);
+            while (!values.add(random)) {
                 random = r.nextInt(k * 10);
             }
 
-            long start = System.nanoTime();
-            tree.insert(random);
-            long fin = System.nanoTime();
-            double ms = (fin - start) / 1000000.0;
+            measured.insert(random);
+            double ms = measured.lastLatency() / 1000000.0;
             table.addRow(new Object[]{table.getRowCount() + 1, random, ms});
             totalTime += ms;
         }
 
-        label.setText(String.format("Generate %d: %.6f ms", k, totalTime));
+        LatencyHistogram inserts = measured.inserts();
+        label.setText(String.format("Generate %d: %.6f ms (insert p50 %d ns, p99 %d ns, max %d ns)", k, totalTime,
+                inserts.percentile(50), inserts.percentile(99), inserts.max()));
         print();
     }
 
@@ -1,5 +1,6 @@
 package DynamicTreeStructures.imagegenerator;
 
+import DynamicTreeStructures.instrumentation.ImageRenderEvent;
 import DynamicTreeStructures.interfaces.TreeImage;
 import DynamicTreeStructures.structure.RedBlackTree;
 import java.awt.Color;
@@ -55,6 +56,8 @@ public class Image {
     }
 
     public BufferedImage create(int width, int height, int margin) {
+        ImageRenderEvent event = new ImageRenderEvent();
+        event.begin();
 
         int[] stringBounds = stringBounds(type);
         int bufferedImageWidth = minWidth + (margin * 2);
@@ -95,6 +98,7 @@ public class Image {
             drawString(labels[i], marginX, marginY, g2d);
         }
 
+        event.commit(type, bufferedImageWidth, bufferedImageHeight, labels.length, lines.length);
         return bufferedImage;
     }
 
@@ -1,5 +1,6 @@
 package DynamicTreeStructures.imagegenerator;
 
+import DynamicTreeStructures.instrumentation.ImageLayoutEvent;
 import DynamicTreeStructures.interfaces.TreeImage;
 import DynamicTreeStructures.interfaces.TreeStructure;
 import DynamicTreeStructures.structure.AVLTree;
@@ -45,6 +46,8 @@ public class ImageTree<T, K extends Comparable<K>> implements TreeImage {
 	}
 
 	public ImageTree(TreeStructure<T, K> tree, int gapWidth, int gapHeight, Font font) {
+		ImageLayoutEvent event = new ImageLayoutEvent();
+		event.begin();
 		init(font);
 
 		if (tree != null && tree.getRoot() != null) {
@@ -61,8 +64,15 @@ public class ImageTree<T, K extends Comparable<K>> implements TreeImage {
 
 			this.nodeMatrix = toNodeMatrix(rawMatrix);
 			assign(gapWidth, gapHeight);
+
+			int nodes = 0;
+			for (ImageNode[] level : nodeMatrix) {
+				nodes += level.length;
+			}
+			event.commit(classType, nodes, nodeMatrix.length);
 		} else {
 			nodeMatrix = null;
+			event.commit(tree == null ? null : tree.getClass(), 0, 0);
 		}
 	}
 
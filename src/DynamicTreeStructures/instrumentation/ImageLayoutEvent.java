@@ -0,0 +1,43 @@
+package DynamicTreeStructures.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event of the layout of a tree by an ImageTree: the walk
+ * of the tree and the placement of its nodes.
+ */
+@Name("DynamicTreeStructures.ImageLayout")
+@Label("Tree Image Layout")
+@Category("Dynamic Tree Structures")
+@Description("Layout of the nodes of a tree for its image")
+@StackTrace(false)
+public final class ImageLayoutEvent extends Event {
+
+	@Label("Tree")
+	Class<?> tree;
+
+	@Label("Nodes")
+	int nodes;
+
+	@Label("Depth")
+	@Description("Levels of the tree")
+	int depth;
+
+	/**
+	 * Ends the event and commits it, if it is enabled.
+	 */
+	public void commit(Class<?> tree, int nodes, int depth) {
+		end();
+		if (shouldCommit()) {
+			this.tree = tree;
+			this.nodes = nodes;
+			this.depth = depth;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package DynamicTreeStructures.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event of the drawing of a tree image by Image.create.
+ */
+@Name("DynamicTreeStructures.ImageRender")
+@Label("Tree Image Render")
+@Category("Dynamic Tree Structures")
+@Description("Drawing of the labels and lines of a tree image")
+@StackTrace(false)
+public final class ImageRenderEvent extends Event {
+
+	@Label("Type")
+	String type;
+
+	@Label("Width")
+	int width;
+
+	@Label("Height")
+	int height;
+
+	@Label("Labels")
+	int labels;
+
+	@Label("Lines")
+	int lines;
+
+	@Label("Image Size")
+	@DataAmount
+	long bytes;
+
+	/**
+	 * Ends the event and commits it, if it is enabled.
+	 */
+	public void commit(String type, int width, int height, int labels, int lines) {
+		end();
+		if (shouldCommit()) {
+			this.type = type;
+			this.width = width;
+			this.height = height;
+			this.labels = labels;
+			this.lines = lines;
+			this.bytes = (long) width * height * Integer.BYTES;
+			commit();
+		}
+	}
+}
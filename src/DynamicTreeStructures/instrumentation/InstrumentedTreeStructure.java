@@ -0,0 +1,143 @@
+package DynamicTreeStructures.instrumentation;
+
+import java.io.PrintStream;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+
+/**
+ * Decorator of a {@link TreeStructure} that records the latency of every
+ * insert, search and delete in a {@link LatencyHistogram} of its own. The cost
+ * per operation is two System.nanoTime() calls and a histogram update, and
+ * nothing is allocated.
+ *
+ * Not thread-safe, like the trees it wraps.
+ *
+ * @param <T> type of the nodes of the tree
+ * @param <K> type of the keys
+ */
+public class InstrumentedTreeStructure<T, K extends Comparable<K>> implements TreeStructure<T, K> {
+
+	private final TreeStructure<T, K> tree;
+	private final LatencyHistogram inserts = new LatencyHistogram();
+	private final LatencyHistogram searches = new LatencyHistogram();
+	private final LatencyHistogram deletes = new LatencyHistogram();
+	private long started = System.nanoTime();
+	private long lastLatency;
+
+	public InstrumentedTreeStructure(TreeStructure<T, K> tree) {
+		this.tree = tree;
+	}
+
+	/**
+	 * The wrapped tree.
+	 */
+	public TreeStructure<T, K> getTree() {
+		return tree;
+	}
+
+	@Override
+	public T getRoot() {
+		return tree.getRoot();
+	}
+
+	@Override
+	public void insert(K data) {
+		long start = System.nanoTime();
+		tree.insert(data);
+		inserts.record(lastLatency = System.nanoTime() - start);
+	}
+
+	@Override
+	public K search(K data) {
+		long start = System.nanoTime();
+		K result = tree.search(data);
+		searches.record(lastLatency = System.nanoTime() - start);
+		return result;
+	}
+
+	@Override
+	public K delete(K data) {
+		long start = System.nanoTime();
+		K result = tree.delete(data);
+		deletes.record(lastLatency = System.nanoTime() - start);
+		return result;
+	}
+
+	@Override
+	public String toString(boolean formated) {
+		return tree.toString(formated);
+	}
+
+	@Override
+	public String toString() {
+		return tree.toString();
+	}
+
+	public LatencyHistogram inserts() {
+		return inserts;
+	}
+
+	public LatencyHistogram searches() {
+		return searches;
+	}
+
+	public LatencyHistogram deletes() {
+		return deletes;
+	}
+
+	/**
+	 * Latency of the last operation, in nanoseconds.
+	 */
+	public long lastLatency() {
+		return lastLatency;
+	}
+
+	/**
+	 * Number of operations since the creation or the last reset.
+	 */
+	public long operations() {
+		return inserts.count() + searches.count() + deletes.count();
+	}
+
+	/**
+	 * Operations per second of wall time since the creation or the last reset.
+	 * Time between operations counts, so it measures the caller as well.
+	 */
+	public double throughput() {
+		long elapsed = System.nanoTime() - started;
+		return elapsed <= 0 ? 0.0 : operations() * 1e9 / elapsed;
+	}
+
+	/**
+	 * Operations per second of time spent inside the tree.
+	 */
+	public double treeThroughput() {
+		long busy = inserts.sum() + searches.sum() + deletes.sum();
+		return busy <= 0 ? 0.0 : operations() * 1e9 / busy;
+	}
+
+	public void reset() {
+		inserts.reset();
+		searches.reset();
+		deletes.reset();
+		started = System.nanoTime();
+	}
+
+	/**
+	 * Prints count, p50, p99, p99.9 and max of every operation, in nanoseconds.
+	 */
+	public void report(PrintStream out) {
+		out.printf("%-8s %10s %10s %10s %10s %10s%n", "", "count", "p50", "p99", "p99.9", "max (ns)");
+		report(out, "insert", inserts);
+		report(out, "search", searches);
+		report(out, "delete", deletes);
+		out.printf("%.0f operations/s, %.0f operations/s inside the tree%n", throughput(), treeThroughput());
+	}
+
+	private static void report(PrintStream out, String name, LatencyHistogram histogram) {
+		if (histogram.count() == 0)
+			return;
+		out.printf("%-8s %10d %10d %10d %10d %10d%n", name, histogram.count(), histogram.percentile(50),
+				histogram.percentile(99), histogram.percentile(99.9), histogram.max());
+	}
+}
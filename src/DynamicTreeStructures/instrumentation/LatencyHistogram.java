@@ -0,0 +1,121 @@
+package DynamicTreeStructures.instrumentation;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative values, such as latencies in nanoseconds, with
+ * log-linear buckets in the manner of HdrHistogram: every power of two is split
+ * in {@value #SUB_BUCKETS} buckets, so a value is reported with a relative
+ * error below 1 / {@value #SUB_BUCKETS}. Recording is a few arithmetic
+ * operations and an array increment; the memory is fixed, about 15 KB.
+ *
+ * Not thread-safe.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 5;
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+	/** Values below 2^SUB_BITS get one bucket each, then SUB_BUCKETS per power */
+	private static final int BUCKETS = (Long.SIZE - 1 - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long sum;
+	private long max;
+
+	/**
+	 * Records a value. Negative values, from clocks going back, are recorded as
+	 * 0.
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts[index(value)]++;
+		count++;
+		sum += value;
+		if (value > max)
+			max = value;
+	}
+
+	public long count() {
+		return count;
+	}
+
+	public long max() {
+		return max;
+	}
+
+	/**
+	 * Sum of the recorded values.
+	 */
+	public long sum() {
+		return sum;
+	}
+
+	public double mean() {
+		return count == 0 ? 0.0 : (double) sum / count;
+	}
+
+	/**
+	 * Value of the given percentile, by the nearest-rank method. It is the
+	 * highest value of its bucket, but never above the maximum recorded.
+	 *
+	 * @param percentile in (0, 100]
+	 * @return the value, or 0 if nothing has been recorded
+	 */
+	public long percentile(double percentile) {
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return Math.min(highestValue(i), max);
+		}
+		return max;
+	}
+
+	/**
+	 * Adds the values of other to this histogram.
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+
+	/*********************
+	 * BUCKET METHODS
+	 *********************/
+
+	/**
+	 * Values below SUB_BUCKETS are their own bucket. Above, the highest bit
+	 * selects the power of two and the next SUB_BITS bits the bucket within it.
+	 */
+	static int index(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		int sub = (int) (value >>> shift);
+		return (shift + 1) * SUB_BUCKETS + sub - SUB_BUCKETS;
+	}
+
+	static long highestValue(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int shift = index / SUB_BUCKETS - 1;
+		long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,128 @@
+package DynamicTreeStructures.instrumentation;
+
+/**
+ * Counters of the structural work done by a tree: rotations, 4-node splits,
+ * borrows and merges of the 2-3-4 deletion, rebalancing steps and key
+ * comparisons. Dividing them by {@link #operations()} tells why a workload is
+ * slow.
+ *
+ * They are disabled unless the JVM is started with
+ * -DDynamicTreeStructures.counters=true. Trees guard every update with
+ * {@code if (TreeCounters.ENABLED)}; ENABLED is a static final field, so the JIT
+ * compiler treats it as a constant and removes the disabled updates from the
+ * compiled code, and trees don't even allocate their counters.
+ *
+ * Not thread-safe, like the trees that update them. Searches update them too,
+ * so with concurrent readers, as in ConcurrentRedBlackTree, some updates are
+ * lost and the counts are approximate.
+ */
+public final class TreeCounters {
+
+	public static final boolean ENABLED = Boolean.getBoolean("DynamicTreeStructures.counters");
+
+	private long operations;
+	private long comparisons;
+	private long rotations;
+	private long splits;
+	private long borrows;
+	private long merges;
+	private long rebalances;
+
+	/**
+	 * Counters for a new tree, or null if they are disabled.
+	 */
+	public static TreeCounters create() {
+		return ENABLED ? new TreeCounters() : null;
+	}
+
+	public void countOperation() {
+		operations++;
+	}
+
+	public void countComparison() {
+		comparisons++;
+	}
+
+	public void countRotation() {
+		rotations++;
+	}
+
+	public void countSplit() {
+		splits++;
+	}
+
+	public void countBorrow() {
+		borrows++;
+	}
+
+	public void countMerge() {
+		merges++;
+	}
+
+	public void countRebalance() {
+		rebalances++;
+	}
+
+	/**
+	 * Number of inserts, searches and deletes.
+	 */
+	public long operations() {
+		return operations;
+	}
+
+	public long comparisons() {
+		return comparisons;
+	}
+
+	public long rotations() {
+		return rotations;
+	}
+
+	/**
+	 * Number of 4-nodes split by insertions. Each one recolors three nodes.
+	 */
+	public long splits() {
+		return splits;
+	}
+
+	/**
+	 * Number of keys borrowed from a sibling by deletions.
+	 */
+	public long borrows() {
+		return borrows;
+	}
+
+	/**
+	 * Number of 2-nodes merged with a sibling by deletions. Each one recolors
+	 * three nodes.
+	 */
+	public long merges() {
+		return merges;
+	}
+
+	/**
+	 * Number of rebalancing steps: 2-nodes fixed on the way down of a 2-3-4
+	 * deletion, or nodes rebalanced by an AVL update.
+	 */
+	public long rebalances() {
+		return rebalances;
+	}
+
+	public void reset() {
+		operations = 0;
+		comparisons = 0;
+		rotations = 0;
+		splits = 0;
+		borrows = 0;
+		merges = 0;
+		rebalances = 0;
+	}
+
+	@Override
+	public String toString() {
+		double n = Math.max(operations, 1);
+		return String.format(
+				"%d operations; per operation: %.2f comparisons, %.3f rotations, %.3f splits, %.3f borrows, %.3f merges, %.3f rebalances",
+				operations, comparisons / n, rotations / n, splits / n, borrows / n, merges / n, rebalances / n);
+	}
+}
@@ -0,0 +1,86 @@
+package DynamicTreeStructures.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder event of an insert, search or delete on a tree, with the
+ * length of the path it walked and the rotations it did. Its duration lets
+ * latency spikes be lined up with the GC and safepoint events of the same
+ * recording.
+ *
+ * Only operations slower than 10 us are recorded, so that a recording of
+ * millions of operations per second stays small. A .jfc file with
+ * {@code <setting name="threshold">0 ns</setting>} under
+ * {@code DynamicTreeStructures.TreeOperation} records them all.
+ *
+ * Trees create it with {@link #start()}, which returns null unless a recording
+ * has the event enabled. A disabled event costs a check per operation: nothing
+ * is allocated and the path and rotations are not measured.
+ */
+@Name("DynamicTreeStructures.TreeOperation")
+@Label("Tree Operation")
+@Category("Dynamic Tree Structures")
+@Description("Insert, search or delete on a tree")
+@StackTrace(false)
+@Threshold("10 us")
+public final class TreeOperationEvent extends Event {
+
+	@Label("Tree")
+	Class<?> tree;
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Depth")
+	@Description("Nodes on the path from the root walked by the operation")
+	int depth;
+
+	@Label("Rotations")
+	int rotations;
+
+	/**
+	 * Begins an event of a tree operation.
+	 *
+	 * @return the event, or null if no recording has it enabled
+	 */
+	public static TreeOperationEvent start() {
+		if (!Type.TYPE.isEnabled())
+			return null;
+		TreeOperationEvent event = new TreeOperationEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event and commits it, if it is enabled and passed the threshold.
+	 *
+	 * @param tree      class of the tree
+	 * @param operation insert, search, delete or deleteMin
+	 * @param depth     nodes on the path walked by the operation
+	 * @param rotations rotations done by the operation
+	 */
+	public void commit(Class<?> tree, String operation, int depth, int rotations) {
+		end();
+		if (shouldCommit()) {
+			this.tree = tree;
+			this.operation = operation;
+			this.depth = depth;
+			this.rotations = rotations;
+			commit();
+		}
+	}
+
+	/**
+	 * Registers the event type lazily, on the first operation.
+	 */
+	private static final class Type {
+		static final EventType TYPE = EventType.getEventType(TreeOperationEvent.class);
+	}
+}
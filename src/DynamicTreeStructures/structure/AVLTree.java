@@ -1,5 +1,7 @@
 package DynamicTreeStructures.structure;
 
+import DynamicTreeStructures.instrumentation.TreeCounters;
+import DynamicTreeStructures.instrumentation.TreeOperationEvent;
 import DynamicTreeStructures.interfaces.TreeStructure;
 import java.util.ArrayList;
 
@@ -11,6 +13,27 @@ import java.util.ArrayList;
 public class AVLTree<K extends Comparable<K>> implements TreeStructure<NodeAVLTree, K> {
 
     private NodeAVLTree<K> root;
+    private int size;
+
+    /**
+     * Key removed by the deletion in progress, or null if there was none.
+     */
+    private K removed;
+
+    /**
+     * Whether the height of the subtree returned by the last step of an update
+     * may have changed. Once it is false the ancestors are left untouched.
+     */
+    private boolean changed;
+
+    /** Structural counters, or null if {@link TreeCounters#ENABLED} is false */
+    private final TreeCounters counters = TreeCounters.create();
+
+    /**
+     * Rotations done by the operation being recorded by a
+     * {@link TreeOperationEvent}, or -1 if none is being recorded.
+     */
+    private int rotated = -1;
 
     public AVLTree() {
         this.root = null;
@@ -18,6 +41,7 @@ public class AVLTree<K extends Comparable<K>> implements TreeStructure<NodeAVLTr
 
     public AVLTree(K data) {
         this.root = new NodeAVLTree<>(data);
+        this.size = 1;
     }
 
     @Override
@@ -25,24 +49,101 @@ public class AVLTree<K extends Comparable<K>> implements TreeStructure<NodeAVLTr
         return root;
     }
 
+    /**
+     * Structural counters of the tree.
+     *
+     * @return the counters, or null if {@link TreeCounters#ENABLED} is false
+     */
+    public TreeCounters getCounters() {
+        return counters;
+    }
+
+    /**
+     * Inserts the key in the tree. Inserting a key that is already in the tree
+     * does nothing.
+     *
+     * @param data key to insert
+     */
     @Override
     public void insert(K data) {
-
-        if (this.root == null) {
-            this.root = new NodeAVLTree<>(data);
-        } else {
-            insert(this.root, data);
+        if (TreeCounters.ENABLED) {
+            counters.countOperation();
+        }
+        TreeOperationEvent event = TreeOperationEvent.start();
+        int length = 0;
+        if (event != null) {
+            rotated = 0;
+            length = pathLength(data, false);
+        }
+        root = insert(root, data);
+        if (event != null) {
+            commit(event, "insert", length);
         }
     }
 
+    /**
+     * Search the key in the tree.
+     *
+     * @param data key to search
+     * @return the stored key if the search has been successful, or null otherwise
+     */
     @Override
     public K search(K data) {
-        return null;
+        if (TreeCounters.ENABLED) {
+            counters.countOperation();
+        }
+        TreeOperationEvent event = TreeOperationEvent.start();
+        int depth = 0;
+        K result = null;
+        NodeAVLTree<K> node = root;
+        while (node != null) {
+            depth++;
+            int cmp = compare(data, node.getData());
+            if (cmp == 0) {
+                result = node.getData();
+                break;
+            }
+            node = cmp < 0 ? node.getLeft() : node.getRight();
+        }
+        if (event != null) {
+            commit(event, "search", depth);
+        }
+        return result;
     }
 
+    /**
+     * Deletes the key from the tree, rebalancing it on the way back up.
+     *
+     * @param data key to delete
+     * @return the deleted key, or null if it was not in the tree
+     */
     @Override
     public K delete(K data) {
-        return null;
+        if (TreeCounters.ENABLED) {
+            counters.countOperation();
+        }
+        TreeOperationEvent event = TreeOperationEvent.start();
+        int length = 0;
+        if (event != null) {
+            rotated = 0;
+            length = pathLength(data, true);
+        }
+        root = delete(root, data);
+        if (event != null) {
+            commit(event, "delete", length);
+        }
+        K result = removed;
+        removed = null;
+        return result;
+    }
+
+    /**
+     * Number of keys stored in the tree.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
     }
 
     @Override
@@ -95,169 +196,190 @@ public class AVLTree<K extends Comparable<K>> implements TreeStructure<NodeAVLTr
         }
     }
 
-    private boolean insert(NodeAVLTree<K> node, K data) {
+    /*********************
+     * UPDATE METHODS
+     *********************/
 
-        boolean insertLeft = false;
-        if (data.compareTo(node.getData()) < 0) {
+    private NodeAVLTree<K> insert(NodeAVLTree<K> node, K data) {
+        if (node == null) {
+            size++;
+            changed = true;
+            return new NodeAVLTree<>(data);
+        }
+        int cmp = compare(data, node.getData());
+        if (cmp < 0) {
+            node.setLeft(insert(node.getLeft(), data));
+        } else if (cmp > 0) {
+            node.setRight(insert(node.getRight(), data));
+        } else {
+            changed = false;
+            return node;
+        }
+        return rebalance(node);
+    }
 
+    private NodeAVLTree<K> delete(NodeAVLTree<K> node, K data) {
+        if (node == null) {
+            changed = false;
+            return null;
+        }
+        int cmp = compare(data, node.getData());
+        if (cmp < 0) {
+            node.setLeft(delete(node.getLeft(), data));
+        } else if (cmp > 0) {
+            node.setRight(delete(node.getRight(), data));
+        } else {
+            removed = node.getData();
+            size--;
+            changed = true;
             if (node.getLeft() == null) {
-                node.setLeft(new NodeAVLTree<>(data));
-                insertLeft = true;
-            } else {
-                insertLeft = insert(node.getLeft(), data);
+                return node.getRight();
             }
-            node.setDeepLeft(node.getLeft().getDeep() + 1);
-        } else {
-
             if (node.getRight() == null) {
-                node.setRight(new NodeAVLTree<>(data));
-                insertLeft = false;
-            } else {
-                insertLeft = insert(node.getRight(), data);
+                return node.getLeft();
             }
-            node.setDeepRight(node.getRight().getDeep() + 1);
-        }
-
-        int factor = node.getFactor();
-        System.out.printf("node: %s, f: %d | insertLeft: %b\n", node.getData().toString(), node.getFactor(), insertLeft);
-        if (Math.abs(factor) > 1) {
-
-            if (factor > 1) {
-                NodeAVLTree<K> left = node.getLeft();
-                int insert = data.compareTo(left.getData());
-                System.out.printf("l insert %d ", insert);
-                if (left.getLeft() != null && insert < 0) {
-                    System.out.println("rotationLL");
-                    rotationLL(node);
-                } else if (left.getRight() != null && insert > 0) {
-                    System.out.println("rotationLR");
-                    rotationLR(node);
-                }
-            } else if (factor < -1) {
-                NodeAVLTree<K> right = node.getRight();
-                int insert = data.compareTo(right.getData());
-                System.out.printf("r insert %d ", insert);
-                if (right.getLeft() != null && insert < 0) {
-                    System.out.println("rotationRL");
-                    rotationRL(node);
-                } else if (right.getRight() != null && insert > 0) {
-                    System.out.println("rotationRR");
-                    rotationRR(node);
-                }
+            // Replace the key with its successor, removed from the right subtree
+            NodeAVLTree<K> successor = node.getRight();
+            while (successor.getLeft() != null) {
+                successor = successor.getLeft();
             }
+            node.setData(successor.getData());
+            node.setRight(deleteMin(node.getRight()));
         }
-
-        return insertLeft;
+        return rebalance(node);
     }
 
-    private void rotationLL(NodeAVLTree<K> node) {
-        NodeAVLTree<K> center = node.getLeft();
-        NodeAVLTree<K> left = node.getLeft().getLeft();
-        NodeAVLTree<K> right = new NodeAVLTree<>(node.getData());
-
-        if (node.getRight() != null) {
-            right.setRight(node.getRight());
-            right.setDeepRight(node.getRight().getDeep() + 1);
+    private NodeAVLTree<K> deleteMin(NodeAVLTree<K> node) {
+        if (node.getLeft() == null) {
+            return node.getRight();
         }
+        node.setLeft(deleteMin(node.getLeft()));
+        return rebalance(node);
+    }
 
-        if (left.getRight() != null) {
-            right.setLeft(left.getRight());
-            right.setDeepLeft(left.getRight().getDeep() + 1);
+    /*********************
+     * BALANCING METHODS
+     *********************/
+
+    /**
+     * Balances node after one of its subtrees has been updated, unless the height
+     * of that subtree didn't change.
+     *
+     * @return the new root of the subtree
+     */
+    private NodeAVLTree<K> rebalance(NodeAVLTree<K> node) {
+        if (!changed) {
+            return node;
         }
-
-        rotationNode(node, center.getData(), left, right, left.getDeep() + 1, right.getDeep() + 1);
+        int height = node.getHeight();
+        node = balance(node);
+        changed = node.getHeight() != height;
+        return node;
     }
 
-    //esto https://www.youtube.com/watch?v=vRwi_UcZGjU&ab_channel=BackToBackSWE
-    private void rotationLR(NodeAVLTree<K> node) {
-        NodeAVLTree<K> center = node.getLeft().getRight();
-        NodeAVLTree<K> left = node.getLeft();
-        NodeAVLTree<K> right = new NodeAVLTree<>(node.getData());
-
-        if (center.getLeft() != null) {
-            left.setRight(center.getLeft());
-            left.setDeepRight(center.getLeft().getDeep() + 1);
-        } else {
-            left.setRight(null);
-            left.setDeepRight(0);
+    /**
+     * Recomputes the height of node, whose subtrees are balanced, and restores
+     * the balance with one or two rotations if its factor is 2 or -2.
+     *
+     * @return the new root of the subtree
+     */
+    private NodeAVLTree<K> balance(NodeAVLTree<K> node) {
+        updateHeight(node);
+        int factor = node.getFactor();
+        if (TreeCounters.ENABLED && (factor > 1 || factor < -1)) {
+            counters.countRebalance();
         }
-
-        if (center.getRight() != null) {
-            right.setLeft(center.getRight());
-            right.setDeepLeft(center.getDeepRight() + 1);
-        } else {
-            right.setLeft(null);
-            right.setDeepLeft(0);
+        if (factor > 1) {
+            if (node.getLeft().getFactor() < 0) {
+                node.setLeft(rotateLeft(node.getLeft()));
+            }
+            return rotateRight(node);
         }
-
-        if (node.getRight() != null) {
-            right.setRight(node.getRight());
-            right.setDeepRight(node.getRight().getDeep() + 1);
-        } else {
-            right.setRight(null);
-            right.setDeepRight(0);
+        if (factor < -1) {
+            if (node.getRight().getFactor() > 0) {
+                node.setRight(rotateRight(node.getRight()));
+            }
+            return rotateLeft(node);
         }
-
-        rotationNode(node, center.getData(), left, right, left.getDeep() + 1, right.getDeep() + 1);
+        return node;
     }
 
-    private void rotationRR(NodeAVLTree<K> node) {
-        NodeAVLTree<K> center = node.getRight();
-        NodeAVLTree<K> left = new NodeAVLTree<>(node.getData());
-        NodeAVLTree<K> right = node.getRight().getRight();
-
-        if (node.getLeft() != null) {
-            left.setLeft(node.getLeft());
-            left.setDeepLeft(node.getLeft().getDeep() + 1);
+    private NodeAVLTree<K> rotateRight(NodeAVLTree<K> node) {
+        if (TreeCounters.ENABLED) {
+            counters.countRotation();
         }
-
-        if (right.getLeft() != null) {
-            left.setRight(right.getLeft());
-            left.setDeepRight(right.getLeft().getDeep() + 1);
+        if (rotated >= 0) {
+            rotated++;
         }
-
-        rotationNode(node, center.getData(), left, right, left.getDeep() + 1, right.getDeep() + 1);
+        NodeAVLTree<K> left = node.getLeft();
+        node.setLeft(left.getRight());
+        left.setRight(node);
+        updateHeight(node);
+        updateHeight(left);
+        return left;
     }
 
-    //esto
-    private void rotationRL(NodeAVLTree<K> node) {
-        NodeAVLTree<K> center = node.getRight().getLeft();
-        NodeAVLTree<K> left = new NodeAVLTree<>(node.getData());
-        NodeAVLTree<K> right = node.getRight();
-
-        if (center.getLeft() != null) {
-            left.setRight(center.getLeft());
-            left.setDeepRight(center.getLeft().getDeep() + 1);
-        } else {
-            left.setRight(null);
-            left.setDeepRight(0);
+    private NodeAVLTree<K> rotateLeft(NodeAVLTree<K> node) {
+        if (TreeCounters.ENABLED) {
+            counters.countRotation();
         }
+        if (rotated >= 0) {
+            rotated++;
+        }
+        NodeAVLTree<K> right = node.getRight();
+        node.setRight(right.getLeft());
+        right.setLeft(node);
+        updateHeight(node);
+        updateHeight(right);
+        return right;
+    }
 
-        if (center.getRight() != null) {
-            right.setLeft(center.getRight());
-            right.setDeepLeft(center.getDeepRight() + 1);
-        } else {
-            right.setLeft(null);
-            right.setDeepLeft(0);
+    /**
+     * a.compareTo(b), counted.
+     */
+    private int compare(K a, K b) {
+        if (TreeCounters.ENABLED) {
+            counters.countComparison();
         }
+        return a.compareTo(b);
+    }
 
-        if (node.getLeft() != null) {
-            left.setLeft(node.getLeft());
-            left.setDeepLeft(node.getLeft().getDeep() + 1);
-        } else {
-            left.setLeft(null);
-            left.setDeepLeft(0);
+    /**
+     * Nodes on the path from the root to data, or to where it would be inserted.
+     * If toSuccessor and data has two children, the path goes on to its
+     * successor, which replaces it in a deletion. Measured before the update,
+     * for the TreeOperationEvent.
+     */
+    private int pathLength(K data, boolean toSuccessor) {
+        int length = 0;
+        NodeAVLTree<K> node = root;
+        while (node != null) {
+            length++;
+            int cmp = data.compareTo(node.getData());
+            if (cmp == 0) {
+                if (toSuccessor && node.getLeft() != null) {
+                    for (node = node.getRight(); node != null; node = node.getLeft()) {
+                        length++;
+                    }
+                }
+                break;
+            }
+            node = cmp < 0 ? node.getLeft() : node.getRight();
         }
+        return length;
+    }
 
-        rotationNode(node, center.getData(), left, right, 1, right.getDeep() + 1);
+    /**
+     * Commits the event of an operation, with the rotations it did, and stops
+     * counting them.
+     */
+    private void commit(TreeOperationEvent event, String operation, int depth) {
+        event.commit(getClass(), operation, depth, Math.max(rotated, 0));
+        rotated = -1;
     }
 
-    private void rotationNode(NodeAVLTree<K> node, K data, NodeAVLTree<K> left, NodeAVLTree<K> right, int deepLeft, int deepRight) {
-        node.setData(data);
-        node.setLeft(left);
-        node.setRight(right);
-        node.setDeepLeft(deepLeft);
-        node.setDeepRight(deepRight);
+    private void updateHeight(NodeAVLTree<K> node) {
+        node.setHeight(1 + Math.max(NodeAVLTree.height(node.getLeft()), NodeAVLTree.height(node.getRight())));
     }
 
     private NodeAVLTree<K>[] toArray() {
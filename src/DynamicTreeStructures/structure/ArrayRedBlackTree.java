@@ -0,0 +1,232 @@
+package DynamicTreeStructures.structure;
+
+import java.util.Arrays;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+
+/**
+ * Red black tree of int keys stored as a struct of arrays. A node is an index
+ * into the parallel arrays key, left and right, and its color is a bit of the
+ * colors bitset, so the whole tree is four arrays regardless of its size and
+ * the garbage collector has no nodes to trace. Deleted slots are chained
+ * through the left array into a free list and reused by later insertions.
+ *
+ * Implements TreeStructure, with the root handle as root, so it can replace a
+ * {@code RedBlackTree<Integer>}.
+ */
+public class ArrayRedBlackTree extends HandleRedBlackTree implements TreeStructure<Integer, Integer> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] key;
+	private int[] left;
+	private int[] right;
+	/** Bit n is set if node n is red */
+	private long[] colors;
+	/** Slots [0, used) have been handed out at some point */
+	private int used;
+	/** Head of the free list, chained through left */
+	private int free = NIL;
+
+	/** Key of the update in progress, see {@link HandleRedBlackTree} */
+	private int probe;
+
+	public ArrayRedBlackTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity number of nodes allocated up front
+	 */
+	public ArrayRedBlackTree(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.key = new int[capacity];
+		this.left = new int[capacity];
+		this.right = new int[capacity];
+		this.colors = new long[(capacity + 63) >>> 6];
+	}
+
+	/**
+	 * Get the handle of the root of the tree.
+	 *
+	 * @return root handle, or NIL if the tree is empty
+	 */
+	@Override
+	public Integer getRoot() {
+		return root;
+	}
+
+	public void insert(int k) {
+		probe = k;
+		insertProbe();
+	}
+
+	@Override
+	public void insert(Integer k) {
+		insert(k.intValue());
+	}
+
+	public boolean contains(int k) {
+		return find(k) != NIL;
+	}
+
+	@Override
+	public Integer search(Integer k) {
+		return contains(k.intValue()) ? k : null;
+	}
+
+	/**
+	 * Deletes the key from the tree.
+	 *
+	 * @param k key to delete
+	 * @return true if the key was in the tree
+	 */
+	public boolean delete(int k) {
+		probe = k;
+		deleteProbe();
+		if (removedNode == NIL)
+			return false;
+		freeNode(removedNode);
+		removedNode = NIL;
+		return true;
+	}
+
+	@Override
+	public Integer delete(Integer k) {
+		return delete(k.intValue()) ? k : null;
+	}
+
+	/**
+	 * Deletes the minimum key of the tree.
+	 *
+	 * @return the deleted key, or null if the tree is empty
+	 */
+	public Integer deleteMin() {
+		if (root == NIL)
+			return null;
+		deleteMinNode();
+		int k = key[removedNode];
+		freeNode(removedNode);
+		removedNode = NIL;
+		return k;
+	}
+
+	/**
+	 * Returns the node with key k, or NIL if it is not in the tree. The key is an
+	 * argument instead of the probe, so lookups write nothing and threads that
+	 * only search the tree don't disturb each other.
+	 */
+	protected int find(int k) {
+		int node = root;
+		while (node != NIL) {
+			int data = key[node];
+			if (k == data)
+				return node;
+			node = k > data ? right[node] : left[node];
+		}
+		return NIL;
+	}
+
+	/**
+	 * Key of the given node.
+	 *
+	 * @param node a node handle of this tree
+	 * @return its key
+	 */
+	public int key(int node) {
+		return key[node];
+	}
+
+	/**
+	 * Number of node slots currently allocated.
+	 */
+	public int capacity() {
+		return key.length;
+	}
+
+	/*********************
+	 * NODE STORAGE
+	 *********************/
+
+	@Override
+	public int left(int node) {
+		return left[node];
+	}
+
+	@Override
+	public int right(int node) {
+		return right[node];
+	}
+
+	@Override
+	public boolean isRed(int node) {
+		return (colors[node >>> 6] & (1L << node)) != 0;
+	}
+
+	@Override
+	protected void setLeft(int node, int child) {
+		left[node] = child;
+	}
+
+	@Override
+	protected void setRight(int node, int child) {
+		right[node] = child;
+	}
+
+	@Override
+	protected void setRed(int node, boolean isRed) {
+		if (isRed) {
+			colors[node >>> 6] |= 1L << node;
+		} else {
+			colors[node >>> 6] &= ~(1L << node);
+		}
+	}
+
+	@Override
+	protected int compareProbe(int node) {
+		return Integer.compare(probe, key[node]);
+	}
+
+	@Override
+	protected void copyKey(int from, int to) {
+		key[to] = key[from];
+	}
+
+	@Override
+	protected int newNode() {
+		int node;
+		if (free != NIL) {
+			node = free;
+			free = left[node];
+		} else {
+			if (used == key.length)
+				grow();
+			node = used++;
+		}
+		key[node] = probe;
+		left[node] = NIL;
+		right[node] = NIL;
+		setRed(node, true);
+		return node;
+	}
+
+	@Override
+	protected void freeNode(int node) {
+		left[node] = free;
+		right[node] = NIL;
+		free = node;
+	}
+
+	@Override
+	protected String keyToString(int node) {
+		return Integer.toString(key[node]);
+	}
+
+	private void grow() {
+		int capacity = key.length + (key.length >> 1) + 1;
+		key = Arrays.copyOf(key, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		colors = Arrays.copyOf(colors, (capacity + 63) >>> 6);
+	}
+}
@@ -0,0 +1,280 @@
+package DynamicTreeStructures.structure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+
+/**
+ * Thread-safe red black tree for read-mostly workloads. Writers are serialised
+ * by the write lock of a {@link StampedLock}. Readers first walk the tree
+ * without locking under an optimistic stamp and keep the result only if no
+ * writer ran meanwhile; after a failed attempt they take the read lock.
+ *
+ * An optimistic reader may see the tree half-way through a rotation, so the
+ * walks are bounded by the maximum height of a red black tree and a longer walk
+ * makes the read fail. Nothing is handed to the caller before the stamp has
+ * been validated, and no lock is held while the caller's code runs, so a range
+ * consumer may update the tree.
+ *
+ * @param <K> type of the keys
+ */
+public class ConcurrentRedBlackTree<K extends Comparable<K>> implements TreeStructure<NodeRedBlackTree<K>, K> {
+
+	/**
+	 * Optimistic reads tried before taking the read lock.
+	 */
+	private static final int OPTIMISTIC_ATTEMPTS = 2;
+
+	/**
+	 * Longest path of a valid tree: 2 log2(n + 1) < 64 for any int size. A longer
+	 * walk can only be an inconsistent view.
+	 */
+	private static final int MAX_DEPTH = 64;
+
+	/**
+	 * Range scans with more keys than this give up the optimistic read and take
+	 * the read lock.
+	 */
+	private static final int OPTIMISTIC_RANGE_LIMIT = 1024;
+
+	/**
+	 * Signals an inconsistent optimistic view. Shared and without stack trace, it
+	 * costs nothing to throw.
+	 */
+	private static final InconsistentRead RETRY = new InconsistentRead();
+
+	private final RedBlackTree<K> tree = new RedBlackTree<>();
+	private final StampedLock lock = new StampedLock();
+
+	/**
+	 * Get root of the tree. The nodes must not be read while other threads write.
+	 *
+	 * @return root node or null
+	 */
+	@Override
+	public NodeRedBlackTree<K> getRoot() {
+		long stamp = lock.readLock();
+		try {
+			return tree.getRoot();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public void insert(K k) {
+		long stamp = lock.writeLock();
+		try {
+			tree.insert(k);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public K delete(K k) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.delete(k);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public K deleteMin() {
+		long stamp = lock.writeLock();
+		try {
+			return tree.deleteMin();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public K search(K data) {
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0)
+				break;
+			try {
+				K result = search(tree.getRoot(), data);
+				if (lock.validate(stamp))
+					return result;
+			} catch (InconsistentRead e) {
+				// Inconsistent view, retry
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return tree.search(data);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the smallest value k' of the tree with k' > data.
+	 *
+	 * @param data the value
+	 * @return the successor, or null if there is none
+	 */
+	public K successor(K data) {
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0)
+				break;
+			try {
+				K result = successor(tree.getRoot(), data);
+				if (lock.validate(stamp))
+					return result;
+			} catch (InconsistentRead e) {
+				// Inconsistent view, retry
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return tree.successor(data);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Visits in order the keys k of the tree with lo <= k <= hi. The keys are
+	 * those of a single version of the tree: they are buffered and handed to the
+	 * consumer once the lock, optimistic or not, has been released.
+	 *
+	 * @param lo       lower bound (inclusive)
+	 * @param hi       upper bound (inclusive)
+	 * @param consumer receives the keys in increasing order
+	 */
+	public void range(K lo, K hi, Consumer<K> consumer) {
+		if (lo.compareTo(hi) > 0)
+			return;
+		List<K> buffer = new ArrayList<>();
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0)
+				break;
+			buffer.clear();
+			try {
+				range(tree.getRoot(), lo, hi, buffer, 0);
+				if (lock.validate(stamp)) {
+					buffer.forEach(consumer);
+					return;
+				}
+			} catch (InconsistentRead e) {
+				// Too many keys, or an inconsistent view
+				if (buffer.size() > OPTIMISTIC_RANGE_LIMIT)
+					break;
+			}
+		}
+		buffer.clear();
+		long stamp = lock.readLock();
+		try {
+			tree.range(lo, hi, buffer::add);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		buffer.forEach(consumer);
+	}
+
+	/**
+	 * Number of keys stored in the tree.
+	 *
+	 * @return the number of keys
+	 */
+	public int size() {
+		long stamp = lock.tryOptimisticRead();
+		int size = tree.size();
+		if (lock.validate(stamp))
+			return size;
+		stamp = lock.readLock();
+		try {
+			return tree.size();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return toString(false);
+	}
+
+	@Override
+	public String toString(boolean formated) {
+		long stamp = lock.readLock();
+		try {
+			return tree.toString(formated);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/*********************
+	 * OPTIMISTIC WALKS
+	 *********************/
+
+	private K search(NodeRedBlackTree<K> node, K data) {
+		for (int depth = 0; node != null; depth++) {
+			if (depth == MAX_DEPTH)
+				throw RETRY;
+			K nodeData = node.getData();
+			int cmp = data.compareTo(nodeData);
+			if (cmp == 0)
+				return nodeData;
+			node = cmp > 0 ? node.getRight() : node.getLeft();
+		}
+		return null;
+	}
+
+	private K successor(NodeRedBlackTree<K> node, K data) {
+		K res = null;
+		for (int depth = 0; node != null; depth++) {
+			if (depth == MAX_DEPTH)
+				throw RETRY;
+			K nodeData = node.getData();
+			if (nodeData.compareTo(data) <= 0) {
+				node = node.getRight();
+			} else {
+				// This node could be the successor, or it is in the left subtree
+				res = nodeData;
+				node = node.getLeft();
+			}
+		}
+		return res;
+	}
+
+	private void range(NodeRedBlackTree<K> node, K lo, K hi, List<K> buffer, int depth) {
+		while (node != null) {
+			if (depth++ == MAX_DEPTH || buffer.size() > OPTIMISTIC_RANGE_LIMIT)
+				throw RETRY;
+			K data = node.getData();
+			if (data.compareTo(lo) < 0) {
+				node = node.getRight();
+			} else if (data.compareTo(hi) > 0) {
+				node = node.getLeft();
+			} else {
+				range(node.getLeft(), lo, hi, buffer, depth);
+				buffer.add(data);
+				node = node.getRight();
+			}
+		}
+	}
+
+	/**
+	 * Thrown by the optimistic walks on an inconsistent view. Exceptions of the
+	 * keys' compareTo are not caught and reach the caller.
+	 */
+	private static final class InconsistentRead extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		InconsistentRead() {
+			super("Inconsistent optimistic read", null, false, false);
+		}
+	}
+}
@@ -0,0 +1,449 @@
+package DynamicTreeStructures.structure;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+
+/**
+ * Durable wrapper of a {@link TreeStructure}. Every insert and delete is
+ * appended to a write-ahead log, and it returns only once the log has been
+ * forced to disk. The log is a sequence of fixed-width records:
+ *
+ * <pre>
+ * [operation : 1 byte][key : codec width][CRC-32 of operation and key : 4 bytes]
+ * </pre>
+ *
+ * Replay stops at the first record whose checksum doesn't match, and the log
+ * is truncated there: a crash can leave the records that were not forced yet
+ * torn or zero-filled, and none of them was acknowledged.
+ *
+ * Writers are batched with group commit: the first writer that has to wait
+ * forces every record appended so far, and the writers that arrive meanwhile
+ * are forced together by the next one. The update is applied to the tree when
+ * it is logged, so other threads may see it before it is durable.
+ *
+ * A tree opened with {@link #open} is a {@link RedBlackTree} restored from the
+ * last {@link RedBlackTreeSnapshot} plus the log. Once the log grows past a
+ * threshold a checkpoint writes a new snapshot and truncates the log. Replaying
+ * a log over a snapshot that already holds its updates gives the same set, so
+ * a crash between both steps is harmless.
+ *
+ * @param <T> type of the nodes of the tree
+ * @param <K> type of the keys
+ */
+public class DurableTreeStructure<T, K extends Comparable<K>> implements TreeStructure<T, K>, AutoCloseable {
+
+	static final String LOG = "tree.wal";
+	static final String SNAPSHOT = "tree.snapshot";
+
+	private static final byte INSERT = 1;
+	private static final byte DELETE = 2;
+	private static final int BATCH = 1 << 16;
+
+	private final TreeStructure<T, K> tree;
+	private final KeyCodec<K> codec;
+	private final Path directory;
+	private final FileChannel log;
+	private final int recordWidth;
+	/** Operation and key of the record being appended, to checksum them */
+	private final ByteBuffer record;
+	private final CRC32 checksum = new CRC32();
+	/** The tree to snapshot at checkpoints, or null if it doesn't support them */
+	private final RedBlackTree<K> snapshotTree;
+	private final long checkpointBytes;
+
+	/** Records appended but not yet written */
+	private ByteBuffer pending;
+	/** Buffer to swap with pending; null while its batch is being written */
+	private ByteBuffer spare;
+	/** Bytes appended to the log since it was last truncated */
+	private long appended;
+	/** Bytes known to be on disk */
+	private long durable;
+	private boolean flushing;
+	private IOException failure;
+	private boolean closed;
+
+	/**
+	 * Makes tree durable with the log of directory. The records already in the
+	 * log are replayed over tree, which must hold the state the log started
+	 * from (usually, be empty). Checkpoints are not supported.
+	 *
+	 * @param tree      the tree
+	 * @param codec     encoding of the keys
+	 * @param directory directory of the log, created if needed
+	 * @throws IOException if the log cannot be read or opened
+	 */
+	public DurableTreeStructure(TreeStructure<T, K> tree, KeyCodec<K> codec, Path directory) throws IOException {
+		this(tree, codec, directory, null, 0);
+	}
+
+	private DurableTreeStructure(TreeStructure<T, K> tree, KeyCodec<K> codec, Path directory,
+			RedBlackTree<K> snapshotTree, long checkpointBytes) throws IOException {
+		this.tree = tree;
+		this.codec = codec;
+		this.directory = directory;
+		this.recordWidth = 1 + codec.width() + Integer.BYTES;
+		this.record = ByteBuffer.allocate(1 + codec.width());
+		this.snapshotTree = snapshotTree;
+		this.checkpointBytes = checkpointBytes;
+		this.pending = ByteBuffer.allocateDirect(Math.max(BATCH, recordWidth));
+		this.spare = ByteBuffer.allocateDirect(pending.capacity());
+		Files.createDirectories(directory);
+		this.log = FileChannel.open(directory.resolve(LOG), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			// The log may have just been created
+			RedBlackTreeSnapshot.forceDirectory(directory);
+			replay();
+		} catch (IOException | RuntimeException e) {
+			log.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens the durable red black tree of directory: the last snapshot, if any,
+	 * with the log replayed over it. A checkpoint is made whenever the log
+	 * reaches checkpointBytes.
+	 *
+	 * @param codec           encoding of the keys
+	 * @param directory       directory of the snapshot and the log, created if
+	 *                        needed
+	 * @param checkpointBytes size of the log that triggers a checkpoint, or 0 to
+	 *                        make checkpoints only through {@link #checkpoint()}
+	 * @return the recovered tree
+	 * @throws IOException if the files cannot be read or opened
+	 */
+	public static <K extends Comparable<K>> DurableTreeStructure<NodeRedBlackTree<K>, K> open(KeyCodec<K> codec,
+			Path directory, long checkpointBytes) throws IOException {
+		Path snapshot = directory.resolve(SNAPSHOT);
+		RedBlackTree<K> tree = Files.exists(snapshot) ? RedBlackTreeSnapshot.load(snapshot, codec)
+				: new RedBlackTree<>();
+		return new DurableTreeStructure<>(tree, codec, directory, tree, checkpointBytes);
+	}
+
+	@Override
+	public synchronized T getRoot() {
+		return tree.getRoot();
+	}
+
+	/**
+	 * Inserts the key, and returns once the insertion is durable.
+	 *
+	 * @throws UncheckedIOException if the log cannot be written
+	 */
+	@Override
+	public void insert(K data) {
+		long end;
+		synchronized (this) {
+			end = append(INSERT, data);
+			tree.insert(data);
+		}
+		commit(end);
+	}
+
+	@Override
+	public synchronized K search(K data) {
+		return tree.search(data);
+	}
+
+	/**
+	 * Deletes the key, and returns once the deletion is durable.
+	 *
+	 * @throws UncheckedIOException if the log cannot be written
+	 */
+	@Override
+	public K delete(K data) {
+		long end;
+		K deleted;
+		synchronized (this) {
+			end = append(DELETE, data);
+			deleted = tree.delete(data);
+		}
+		commit(end);
+		return deleted;
+	}
+
+	@Override
+	public synchronized String toString(boolean formated) {
+		return tree.toString(formated);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return tree.toString();
+	}
+
+	/**
+	 * Writes a snapshot of the tree and truncates the log. Updates wait until it
+	 * is done.
+	 *
+	 * @throws IOException                   if the files cannot be written
+	 * @throws UnsupportedOperationException if the tree was not opened with
+	 *                                       {@link #open}
+	 */
+	public synchronized void checkpoint() throws IOException {
+		if (snapshotTree == null)
+			throw new UnsupportedOperationException("Only trees opened with open() support checkpoints");
+		ensureUsable();
+		awaitFlush();
+		// Nobody can start a batch while we hold the monitor
+		forcePending();
+		// Renames the new snapshot into place and forces the directory, so the
+		// log is only truncated once the rename is durable
+		RedBlackTreeSnapshot.write(snapshotTree, codec, directory.resolve(SNAPSHOT));
+		try {
+			log.truncate(0);
+			log.position(0);
+			log.force(true);
+		} catch (IOException e) {
+			failure = e;
+			throw e;
+		}
+		appended = 0;
+		durable = 0;
+		notifyAll();
+	}
+
+	/**
+	 * Forces the pending records and closes the log.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed)
+				return;
+			awaitFlush();
+			try {
+				if (failure == null)
+					forcePending();
+			} finally {
+				closed = true;
+				log.close();
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Bytes of the log since the last checkpoint.
+	 */
+	public synchronized long logBytes() {
+		return appended;
+	}
+
+	/*********************
+	 * LOGGING METHODS
+	 *********************/
+
+	/**
+	 * Writes and forces the pending records. Called holding the monitor, with no
+	 * batch being written.
+	 */
+	private void forcePending() throws IOException {
+		try {
+			write(pending);
+			log.force(false);
+		} catch (IOException e) {
+			failure = e;
+			throw e;
+		}
+		durable = appended;
+	}
+
+	/**
+	 * Appends a record to the pending batch. Called holding the monitor.
+	 *
+	 * @return the end of the record in the log
+	 */
+	private long append(byte operation, K key) {
+		ensureUsableUnchecked();
+		if (pending.remaining() < recordWidth) {
+			// The batch is full: write it here rather than growing it
+			awaitFlush();
+			try {
+				write(pending);
+			} catch (IOException e) {
+				failure = e;
+				throw new UncheckedIOException(e);
+			}
+		}
+		record.put(0, operation);
+		codec.write(record, 1, key);
+		checksum.reset();
+		checksum.update(record.array(), 0, record.capacity());
+		pending.put(record.array());
+		pending.putInt((int) checksum.getValue());
+		appended += recordWidth;
+		return appended;
+	}
+
+	/**
+	 * Returns once the log is durable up to end. If no batch is being forced, this
+	 * thread forces every pending record; otherwise it waits for that batch and
+	 * tries again.
+	 */
+	private void commit(long end) {
+		ByteBuffer batch;
+		long target;
+		synchronized (this) {
+			while (true) {
+				// A checkpoint resets the positions after making everything durable
+				if (durable >= end || appended < end)
+					return;
+				ensureUsableUnchecked();
+				if (!flushing)
+					break;
+				waitUninterruptibly();
+			}
+			flushing = true;
+			batch = pending;
+			pending = spare;
+			spare = null;
+			target = appended;
+		}
+
+		IOException error = null;
+		try {
+			write(batch);
+			log.force(false);
+		} catch (IOException e) {
+			error = e;
+		}
+
+		boolean checkpoint;
+		synchronized (this) {
+			spare = batch;
+			flushing = false;
+			if (error == null) {
+				durable = Math.max(durable, target);
+			} else {
+				failure = error;
+			}
+			notifyAll();
+			if (error != null)
+				throw new UncheckedIOException(error);
+			checkpoint = checkpointBytes > 0 && snapshotTree != null && appended >= checkpointBytes;
+		}
+		if (checkpoint) {
+			try {
+				synchronized (this) {
+					// Another writer may have made it already
+					if (appended >= checkpointBytes)
+						checkpoint();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Writes the records of the buffer at the end of the log and clears it.
+	 */
+	private void write(ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			log.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Waits until no batch is being written. Called holding the monitor.
+	 */
+	private void awaitFlush() {
+		while (flushing) {
+			waitUninterruptibly();
+		}
+	}
+
+	private void waitUninterruptibly() {
+		try {
+			wait();
+		} catch (InterruptedException e) {
+			// Durability was requested: keep waiting, but keep the interrupt
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void ensureUsable() throws IOException {
+		if (closed)
+			throw new IllegalStateException("The tree has been closed");
+		if (failure != null)
+			throw new IOException("The log failed, the tree is no longer durable", failure);
+	}
+
+	private void ensureUsableUnchecked() {
+		try {
+			ensureUsable();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*********************
+	 * RECOVERY METHODS
+	 *********************/
+
+	/**
+	 * Applies the records of the log to the tree. The log ends at the first
+	 * record that is partial or fails its checksum, left by a crash in the middle
+	 * of a write, and the rest is discarded.
+	 */
+	private void replay() throws IOException {
+		long size = log.size();
+		long complete = size - size % recordWidth;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(pending.capacity() - pending.capacity() % recordWidth);
+		long position = 0;
+		read: while (position < complete) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), complete - position));
+			while (buffer.hasRemaining()) {
+				if (log.read(buffer, position + buffer.position()) < 0)
+					throw new IOException("Log shorter than expected");
+			}
+			for (int offset = 0; offset < buffer.limit(); offset += recordWidth) {
+				if (!checksumMatches(buffer, offset)) {
+					position += offset;
+					break read;
+				}
+				byte operation = buffer.get(offset);
+				K key = codec.read(buffer, offset + 1);
+				if (operation == INSERT) {
+					tree.insert(key);
+				} else if (operation == DELETE) {
+					tree.delete(key);
+				} else {
+					throw new IOException("Corrupt log record at byte " + (position + offset));
+				}
+			}
+			position += buffer.limit();
+		}
+		if (position < size) {
+			log.truncate(position);
+			log.force(false);
+		}
+		log.position(position);
+		appended = position;
+		durable = position;
+	}
+
+	private boolean checksumMatches(ByteBuffer buffer, int offset) {
+		int end = offset + recordWidth - Integer.BYTES;
+		int limit = buffer.limit();
+		buffer.position(offset).limit(end);
+		checksum.reset();
+		checksum.update(buffer);
+		buffer.limit(limit);
+		return buffer.getInt(end) == (int) checksum.getValue();
+	}
+}
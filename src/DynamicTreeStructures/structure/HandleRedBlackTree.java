@@ -0,0 +1,963 @@
+package DynamicTreeStructures.structure;
+
+import java.util.ArrayList;
+
+/**
+ * Red black tree whose nodes are int handles instead of objects. It has the
+ * same top-down 2-3-4 insertion and deletion as {@link RedBlackTree}, but the
+ * links, colors and keys are read and written through the abstract methods, so
+ * subclasses decide where the nodes live: the parallel arrays of
+ * {@link ArrayRedBlackTree} and {@link IntRedBlackTree}, or the direct buffers
+ * of {@link OffHeapRedBlackTree}. It is the only copy of the balancing for
+ * handle nodes.
+ *
+ * It cannot share the code of RedBlackTree: that one links NodeRedBlackTree
+ * objects, and abstracting over the node type with generics would box every
+ * handle, bringing back the per-node objects these trees exist to avoid. The
+ * nodes keep no subtree size, so a node stays three words.
+ *
+ * The key involved in an update is the probe key: subclasses store it before
+ * calling {@link #insertProbe()} or {@link #deleteProbe()}, and compare against
+ * it in {@link #compareProbe(int)}. Updates are not thread safe anyway, but
+ * lookups must not write it: subclasses search with the key as an argument,
+ * as {@link ArrayRedBlackTree#find(int)} does, so that threads that only read
+ * the tree share no state.
+ */
+public abstract class HandleRedBlackTree {
+
+	/**
+	 * Handle of the absent node (the null reference of the object trees).
+	 */
+	public static final int NIL = -1;
+
+	protected int root = NIL;
+	protected int size;
+
+	/**
+	 * Node unlinked by the last deletion, or NIL if nothing was deleted. The
+	 * subclass reads its key and releases it.
+	 */
+	protected int removedNode = NIL;
+
+	/**
+	 * Second node returned by extractRight234.
+	 */
+	private int extracted = NIL;
+
+	/**
+	 * Handle of the left child of node, or NIL.
+	 */
+	public abstract int left(int node);
+
+	/**
+	 * Handle of the right child of node, or NIL.
+	 */
+	public abstract int right(int node);
+
+	public abstract boolean isRed(int node);
+
+	protected abstract void setLeft(int node, int left);
+
+	protected abstract void setRight(int node, int right);
+
+	protected abstract void setRed(int node, boolean isRed);
+
+	/**
+	 * Compares the probe key with the key of node.
+	 *
+	 * @return a negative number, zero or a positive number if the probe key is
+	 *         smaller, equal or greater than the key of node
+	 */
+	protected abstract int compareProbe(int node);
+
+	/**
+	 * Copies the key of the node from into the node to.
+	 */
+	protected abstract void copyKey(int from, int to);
+
+	/**
+	 * Allocates a red node without children holding the probe key.
+	 */
+	protected abstract int newNode();
+
+	/**
+	 * Releases the storage of a node that is no longer in the tree.
+	 */
+	protected abstract void freeNode(int node);
+
+	protected abstract String keyToString(int node);
+
+	/**
+	 * Handle of the root node, or NIL if the tree is empty.
+	 */
+	public int root() {
+		return root;
+	}
+
+	/**
+	 * Number of keys stored in the tree.
+	 *
+	 * @return the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return root == NIL;
+	}
+
+	/**
+	 * Inserts the probe key. Does nothing if it is already in the tree.
+	 */
+	protected void insertProbe() {
+		root = insert(root);
+		setRed(root, false);
+	}
+
+	/**
+	 * Deletes the probe key. The unlinked node is left in removedNode and is not
+	 * released yet: its key may not be the probe key, since the deleted key can
+	 * be replaced by its successor.
+	 */
+	protected void deleteProbe() {
+		removedNode = NIL;
+		root = delete2Rec234Launch(root);
+		extracted = NIL;
+		if (removedNode != NIL) {
+			size--;
+		}
+	}
+
+	/**
+	 * Deletes the minimum key. The unlinked node, which holds it, is left in
+	 * removedNode.
+	 */
+	protected void deleteMinNode() {
+		removedNode = NIL;
+		root = deleteMinRec234Launch(root);
+		extracted = NIL;
+		if (removedNode != NIL) {
+			size--;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return toString(false);
+	}
+
+	public String toString(boolean formated) {
+		if (root == NIL) {
+			return null;
+		}
+		ArrayList<Integer> nodes = new ArrayList<>();
+		nodes.add(root);
+		toArrayNext(root, nodes);
+		StringBuilder builder = new StringBuilder();
+		if (formated) {
+			int max = 4;
+			for (int node : nodes) {
+				max = Math.max(max, keyToString(node).length());
+			}
+			String format = "%" + max + "s;%" + max + "s;%" + max + "s;%" + max + "s";
+			for (int node : nodes) {
+				String v = keyToString(node);
+				String c = isRed(node) ? "r" : "b";
+				String l = left(node) != NIL ? keyToString(left(node)) : "null";
+				String r = right(node) != NIL ? keyToString(right(node)) : "null";
+				builder.append(String.format(format, v, c, l, r)).append('\n');
+			}
+		} else {
+			for (int node : nodes) {
+				String l = left(node) == NIL ? "null" : keyToString(left(node));
+				String c = isRed(node) ? "red" : "black";
+				String r = right(node) == NIL ? "null" : keyToString(right(node));
+				builder.append(String.format("%s;%s;%s;%s", keyToString(node), c, l, r)).append('\n');
+			}
+		}
+		builder.deleteCharAt(builder.length() - 1);
+		return builder.toString();
+	}
+
+	/**
+	 * Returns the sub-tree with the probe key inserted.
+	 * @param node the root of the tree
+	 * @return the tree with the key inserted
+	 */
+	private int insert(int node) {
+		// If the tree is empty (leaf), create the node
+		if (node == NIL) {
+			size++;
+			return newNode();
+		}
+		// First, check if the current node is a 4-node (split on the way down)
+		int left = left(node);
+		int right = right(node);
+		if (left != NIL && right != NIL && isRed(left) && isRed(right)) {
+			setRed(left, false);
+			setRed(right, false);
+			setRed(node, true);
+		}
+		int compareTo = compareProbe(node);
+		if (compareTo < 0) {
+			setLeft(node, insert(left));
+		} else if (compareTo > 0) {
+			setRight(node, insert(right));
+		} else {
+			// Already in the tree
+			return node;
+		}
+		// Balance the 4-nodes that could have been created unbalanced
+		left = left(node);
+		right = right(node);
+		if (left != NIL && isRed(left)) {
+			int leftLeft = left(left);
+			int leftRight = right(left);
+			if (leftLeft != NIL && isRed(leftLeft)) {
+				node = centerLeft4Node(node);
+			} else if (leftRight != NIL && isRed(leftRight)) {
+				// We reduce this case to the left-left leaning case
+				setLeft(node, rotateLeft(left));
+				node = centerLeft4Node(node);
+			}
+		} else if (right != NIL && isRed(right)) {
+			int rightLeft = left(right);
+			int rightRight = right(right);
+			if (rightLeft != NIL && isRed(rightLeft)) {
+				// We reduce this case to the right-right leaning case
+				setRight(node, rotateRight(right));
+				node = centerRight4Node(node);
+			} else if (rightRight != NIL && isRed(rightRight)) {
+				node = centerRight4Node(node);
+			}
+		}
+		return node;
+	}
+
+	/*********************
+	 * INSERTION METHODS
+	 *********************/
+
+	private int centerLeft4Node(int root) {
+		root = rotateRight(root);
+		setRed(root, false);
+		setRed(right(root), true);
+		return root;
+	}
+
+	private int centerRight4Node(int root) {
+		root = rotateLeft(root);
+		setRed(root, false);
+		setRed(left(root), true);
+		return root;
+	}
+
+	/**
+	 * Makes the left node the root of @oldRoot. DOES NOT CHANGE COLORS.
+	 */
+	private int rotateRight(int oldRoot) {
+		int newRoot = left(oldRoot);
+		setLeft(oldRoot, right(newRoot));
+		setRight(newRoot, oldRoot);
+		return newRoot;
+	}
+
+	/**
+	 * Makes the right node the root of @oldRoot. DOES NOT CHANGE COLORS.
+	 */
+	private int rotateLeft(int oldRoot) {
+		int newRoot = right(oldRoot);
+		setRight(oldRoot, left(newRoot));
+		setLeft(newRoot, oldRoot);
+		return newRoot;
+	}
+
+	/******************
+	 * DELETION METHODS 
+	 ******************/
+
+	/******************************************* 
+	 * Methods to handle the RBT as a 2-3-4 tree
+	 ********************************************/
+	
+	// This had better be non-NIL
+	/**
+	 * Returns true if the given black node is a 2-node.
+	 * @param node the black, root node
+	 * @return if node is a 2-node.
+	 */
+	private boolean is2Node(int node) {
+		if (node == NIL)
+			throw new RuntimeException("Tried to check for 2 node to a null node");
+		int leftChild = left(node);
+		int rightChild = right(node);
+		return (leftChild == NIL || !isRed(leftChild)) && (rightChild == NIL || !isRed(rightChild));
+	}
+	
+	/**
+	 * Given the root of a 2-3-4 node, it removes its right-most element and
+	 * returns it. The remaining 2-3-4 node is left in the field extracted. The
+	 * colors are changed accordingly. The right node is returned as black.
+	 * 
+	 * @param root           the root of the 2-3-4 node
+	 * @param rightKeepsLeft establishes if the right node keeps the left child or
+	 *                       instead it is kept by the parent.
+	 * @return the right node (the node without it is left in extracted)
+	 */
+	private int extractRight234(int root, boolean rightKeepsLeft) {
+		if (root == NIL) {
+			throw new RuntimeException("Tried to extract right (2-3-4 method) in a null node");
+		}
+		if (isRed(root))
+			throw new RuntimeException("Tried to use a 2-3-4 method in a red node");
+		int right = right(root);
+		if (right != NIL && isRed(right)) {
+			setRed(right, false);
+			extracted = root;
+			if (rightKeepsLeft) {
+				setRight(root, NIL);
+			} else {
+				setRight(root, left(right));
+				setLeft(right, NIL);
+			}
+			return right;
+		} else {
+			//the right is the root.
+			int left = left(root);
+			extracted = left;
+			if (left != NIL) {
+				if (rightKeepsLeft) {
+					setLeft(root, right(left));
+					setRight(left, NIL);
+				} else {
+					setLeft(root, NIL);
+				}
+				setRed(left, false);
+			}
+			return root;
+		}
+	}
+
+	/**
+	 * Sets the given left child as the left child of the 2-3-4 node of root
+	 * 
+	 * @param root the root node
+	 * @param left the left child
+	 */
+	private void setLeftChild234(int root, int left) {
+		if (isRed(root))
+			throw new NullPointerException("Gave a red node to setLeftChild234");
+		int rbtLeft = left(root);
+		if (rbtLeft != NIL && isRed(rbtLeft)) {
+			setLeft(rbtLeft, left);
+		} else {
+			setLeft(root, left);
+		}
+	}
+
+	/**
+	 * Merges the given three RBT nodes into a 2-3-4 node. The middle node should
+	 * not have left and right children, since they will be lost (the children of
+	 * left and right will be used). The colors are set accordingly.
+	 */
+	private int mergeNodes234(int left, int middle,
+			int right) {
+		setLeft(middle, left);
+		setRight(middle, right);
+		setRed(middle, false);
+		setRed(left, true);
+		setRed(right, true);
+		return middle;
+	}
+
+	/**
+	 * Returns the left 2-3-4 child node, or the left black node, of root.
+	 * 
+	 * @param root
+	 * @return
+	 */
+	private int leftNode234(int root) {
+		if (isRed(root))
+			throw new RuntimeException("Gave a red root to leftNode234");
+		int rbtLeft = left(root);
+		if (rbtLeft != NIL && isRed(rbtLeft)) {
+			rbtLeft = left(rbtLeft);
+		}
+		return rbtLeft;
+	}
+
+	/**
+	 * Returns the second 2-3-4 child of root.
+	 * 
+	 * @param root
+	 * @return
+	 */
+	private int secondNode234(int root) {
+		if (isRed(root))
+			throw new RuntimeException("Gave a red root to secondNode234");
+		int rbtLeft = left(root);
+		if (rbtLeft != NIL && isRed(rbtLeft)) {
+			return right(rbtLeft);
+		} else {
+			int rbtRight = right(root);
+			if (rbtRight != NIL && isRed(rbtRight)) {
+				return left(rbtRight);
+			} else {
+				return rbtRight;
+			}
+		}
+	}
+	
+	/**
+	 * Deletes the minimum node in the 2-3-4 tree of root. Returns the new tree root,
+	 * and leaves the unlinked node in removedNode. If the tree is empty, removedNode is not set.
+	 * @param root
+	 * @return
+	 */
+	private int deleteMinRec234Launch(int root) {
+		if (root == NIL)
+			//removedNode has not been set
+			return NIL;
+		//We check if there is any 2-3-4 node to the left of root
+		int leftParent = leftNode234(root);
+		if (leftParent == NIL) {
+			// Only the root 2-3-4 node exists
+			// We must check if there is a left red node
+			int rootLeft = left(root);
+			if (rootLeft == NIL) {
+				// Root is the left-most node
+				removedNode = root;
+				// The right element is the new root (whether it exists or not)
+				int rootRight = right(root);
+				if (rootRight != NIL)
+					setRed(rootRight, false);
+				return rootRight;
+			} else {
+				// The left-most element is the minimum
+				removedNode = rootLeft;
+				// We delete the left node (has no children by 2-3-4 property)
+				setLeft(root, NIL);
+				// Root does not change
+				return root;
+			}
+		} else {
+			//There exists a second level on the tree. We need to check the special
+			//rebalancing condition that could be needed at the root.
+			//The root can be a 2-node. The problem is its left child.
+			if (is2Node(leftParent)) {
+				//We need rebalancing
+				if (is2Node(root)) {
+					//Perform edge case for the rebalancing (root is 2-node)
+					int sibling = right(root); //remember root is 2-node
+					if (is2Node(sibling)) {// Merge the three top nodes
+						root = mergeNodes234(leftParent, root, sibling);
+						// The tree has shrunk in size. We should re-start the algorithm
+						// in case we need rebalancing from the root again
+						return deleteMinRec234Launch(root);
+					} else {
+						// Borrow from the sibling
+						root = doLeftBorrow(leftParent, root, sibling);
+					}
+				} else {
+					//Normal rebalancing without grandparent
+					root = rebalance2Node234Left(root, leftParent);
+				}
+			} 
+			//End of 2-node special invariant check
+			//Perform deletion
+			return deleteMinRec234(root);
+		}
+	}	
+	
+	private int delete2Rec234Launch(int root) {
+		if (root == NIL) { //Empty tree. removedNode is NIL by default.
+			return NIL;
+		}
+		/*
+		 * First we need to find the element to delete. If it is in a (2-3-4) leaf, we will be able to
+		 * delete it right away. If not, we need to delete the successor and switch the values.
+		 * 
+		 * The root need not be checked for the "no 2-node" invariant.
+		 */
+		int left234Child = leftNode234(root);
+		boolean leaf = left234Child == NIL;
+		if (leaf) { //Won't have to do any successor substitution
+			root = deleteInLeaf(root);
+			return root;
+		} //Else: there is a second level
+		int compareTo = compareProbe(root);
+		if (is2Node(root)) {
+			//We may have to shrink the size of the tree or do a special rebalance
+			if (compareTo >= 0) {
+				//Check invariant on the right
+				int right = right(root);
+				if (is2Node(right)) {
+					//apply invariant
+					int leftSibling = left(root);
+					if (is2Node(leftSibling)) {
+						//shrink and restart (edge case, returns here)
+						root = mergeNodes234(leftSibling, root, right);
+						return delete2Rec234Launch(root);
+					} else {
+						//borrow
+						root = doRightBorrow(right, root, leftSibling);
+					}
+				}
+			} else {
+				//Check invariant on the left
+				int left = left(root);
+				if (is2Node(left)) {
+					//apply invariant
+					int rightSibling = right(root);
+					if (is2Node(rightSibling)) {
+						//shrink and restart (edge case, returns here)
+						root = mergeNodes234(left, root, rightSibling);
+						return delete2Rec234Launch(root);
+					} else {
+						//borrow
+						root = doLeftBorrow(left, root, rightSibling);
+					}
+				}
+			}
+		} else {
+			//Only normal rebalances may happen. We need to check where do we have to 
+			//check the invariant
+			root = applyNo2NodeInvariant(root);
+		}
+		//continue with delete
+		return deleteRec234(root);
+	}
+	
+	/**
+	 * Checks and applies if necessary the "no 2-node" invariant to the appropriate child of root,
+	 * following the search of the probe key. root must not be a 2-node.
+	 * @param root
+	 * @return
+	 */
+	private int applyNo2NodeInvariant(int root) {
+		//check the invariant
+		int compareTo = compareProbe(root);
+		if (compareTo < 0) {
+			int left = left(root);
+			if (isRed(left)) {
+				int compareToLeft = compareProbe(left);
+				if (compareToLeft >= 0) {
+					//invariant on the middle
+					int middleChild = right(left);
+					if (is2Node(middleChild))
+						root = rebalance2Node234Middle(root, middleChild, true);
+					//done
+				} else {
+					//invariant on the left
+					int leftChild = left(left);
+					if (is2Node(leftChild))
+						root = rebalance2Node234Left(root, leftChild);
+					//done
+				}
+			} else if (is2Node(left))
+				root = rebalance2Node234Left(root, left);
+				//done
+		} else if (compareTo == 0) {
+			int right = right(root);
+			if (isRed(right)) {
+				int middleChild = left(right);
+				if (is2Node(middleChild))
+					root = rebalance2Node234Middle(root, middleChild, false);
+				//done
+			} else if (is2Node(right))
+				root = rebalance2Node234Right(root, right);
+			//done
+		} else {
+			int right = right(root);
+			if (isRed(right)) {
+				int compareToRight = compareProbe(right);
+				if (compareToRight >= 0) {
+					int rightChild = right(right);
+					if (is2Node(rightChild)) 
+						root = rebalance2Node234Right(root, rightChild);
+					//done
+				} else {
+					int middleChild = left(right);
+					if (is2Node(middleChild))
+						root = rebalance2Node234Middle(root, middleChild, false);
+					//done
+				}
+			} else if (is2Node(right))
+				root = rebalance2Node234Right(root, right);
+		}
+		return root;
+	}
+	
+	/**
+	 * Deletes a key from the 2-3-4 tree rooted at root. Root is not a 2-node, and root is not a leaf.
+	 * @param root
+	 * @return
+	 */
+	private int deleteRec234(int root) {
+		root = applyNo2NodeInvariant(root);
+		//GO
+		int compareTo = compareProbe(root);
+		if (compareTo == 0) {
+			//Replace by successor. Successor is the minimum of the right tree
+			int right = right(root);
+			if (isRed(right)) {
+				int left = left(right);
+				left = deleteMinRec234Launch(left);
+				setLeft(right, left);
+				copyKey(removedNode, root);
+			} else {
+				right = deleteMinRec234Launch(right);
+				setRight(root, right);
+				copyKey(removedNode, root);
+			}
+		} else if (compareTo < 0) {
+			//Search in left
+			int left = left(root);
+			if (isRed(left)) {
+				int compareToLeft = compareProbe(left);
+				if (compareToLeft == 0) {
+					//Replace by successor
+					int right = right(left);
+					right = deleteMinRec234Launch(right);
+					setRight(left, right);
+					copyKey(removedNode, left);
+				} else if (compareToLeft < 0) {
+					int leftChild234 = left(left);
+					if (is234Leaf(leftChild234)) 
+						leftChild234 = deleteInLeaf(leftChild234);
+					else
+						leftChild234 = deleteRec234(leftChild234);
+					setLeft(left, leftChild234);
+				} else if (compareToLeft > 0) {
+					int middleChild234 = right(left);
+					if (is234Leaf(middleChild234)) 
+						middleChild234 = deleteInLeaf(middleChild234);
+					else
+						middleChild234 = deleteRec234(middleChild234);
+					setRight(left, middleChild234);
+				}
+			} else {
+				if (is234Leaf(left)) {
+					left = deleteInLeaf(left);
+				} else {
+					left = deleteRec234(left);
+				}
+				setLeft(root, left);
+			}
+		} else if (compareTo > 0) {
+			//Search in right
+			int right = right(root);
+			if (isRed(right)) {
+				int compareToRight = compareProbe(right);
+				if (compareToRight == 0) {
+					//Replace by successor
+					int rightChild = right(right);
+					rightChild = deleteMinRec234Launch(rightChild);
+					setRight(right, rightChild);
+					copyKey(removedNode, right);
+				} else if (compareToRight < 0) {
+					int middleChild234 = left(right);
+					if (is234Leaf(middleChild234)) 
+						middleChild234 = deleteInLeaf(middleChild234);
+					else
+						middleChild234 = deleteRec234(middleChild234);
+					setLeft(right, middleChild234);
+				} else if (compareToRight > 0) {
+					int rightChild234 = right(right);
+					if (is234Leaf(rightChild234)) 
+						rightChild234 = deleteInLeaf(rightChild234);
+					else
+						rightChild234 = deleteRec234(rightChild234);
+					setRight(right, rightChild234);
+				}
+			} else {
+				if (is234Leaf(right)) {
+					right = deleteInLeaf(right);
+				} else {
+					right = deleteRec234(right);
+				}
+				setRight(root, right);
+			}
+		}
+		return root;
+	}
+	
+	private boolean is234Leaf(int node) {
+		int left = left(node);
+		return left == NIL || (isRed(left) && (left(left) == NIL));
+	}
+	
+	private int deleteInLeaf(int root) {
+		int compare = compareProbe(root);
+		if (compare == 0) {
+			//We have found the leaf.
+			removedNode = root;
+			int left = left(root);
+			if (left == NIL) {
+				int right = right(root);
+				if (right == NIL) {
+					return NIL; //empty tree
+				} else {
+					setRed(right, false); //new root is right
+					return right;
+				}
+			} else {
+				setRight(left, right(root)); //new root is left
+				setRed(left, false);
+				return left;
+			}
+		} else if (compare < 0) {
+			int left = left(root);
+			if (left != NIL && (compareProbe(left) == 0)) {
+				removedNode = left;
+				setLeft(root, NIL);
+				return root;
+			} else {
+				//element not found in 2-3-4 leaf
+				return root;
+			}
+		} else {
+			int right = right(root);
+			if (right != NIL && (compareProbe(right) == 0)) {
+				removedNode = right;
+				setRight(root, NIL);
+				return root;
+			} else {
+				//element not found in 2-3-4 leaf
+				return root;
+			}
+		}
+	}
+	
+	/**
+	 * Deletes the minimum leaf on the tree rooted at leftParent. Returns the resulting tree.
+	 * leftParent should not be NIL, or a 2-node, or a 2-3-4 leaf.
+	 * @param leftParent
+	 * @return
+	 */
+	private int deleteMinRec234(int leftParent) {
+		int leftChild = leftNode234(leftParent); //Always exists, launcher deals with this case
+		if (is2Node(leftChild)) {
+			leftParent = rebalance2Node234Left(leftParent, leftChild);
+			leftChild = leftNode234(leftParent);
+		}
+		if (is234Leaf(leftChild)) {
+			//We reached the end! Delete left-most value
+			int ret = left(leftChild);
+			if (ret == NIL) {
+				leftChild = rotateLeft(leftChild); //is not 2-node by invariant
+				setRed(leftChild, false);
+				ret = left(leftChild);
+			}
+			removedNode = ret;
+			setLeft(leftChild, NIL);
+		} else {
+			leftChild = deleteMinRec234(leftChild);
+		}
+		setLeftChild234(leftParent, leftChild);
+		return leftParent;
+	}
+	
+	/**
+	 * METHODS FOR BORROWING IN THE "NO 2-NODE" INVARIANT
+	 */
+	
+	/**
+	 * leftChild borrows from rightSibling a key. The left-most key of root becomes the
+	 * rbt-parent of leftChild, and the left-most key of rightSibling substitutes root.
+	 * root should not be a 2-node.
+	 * @param leftChild
+	 * @param root
+	 * @param rightSibling
+	 * @return the new root.
+	 */
+	private int leftNodeBorrowFromRight(int leftChild, 
+			int root, int rightSibling) {
+		
+		int lca = left(root);
+		if (!isRed(lca)) {
+			root = rotateLeft(root);
+			lca = left(root);
+			setRed(root, false);
+		}
+		
+		lca = doLeftBorrow(leftChild, lca, rightSibling);
+		setLeft(root, lca);
+		setRed(lca, true);
+		return root;
+	}
+	
+	private int rightNodeBorrowFromRight(int leftChild,
+			int root, int rightSibling) {
+		
+		int lca = extractRight234(root, true);
+		int newRoot = extracted;
+		
+		lca = doLeftBorrow(leftChild, lca, rightSibling);
+		setRight(newRoot, lca);
+		setRed(lca, true);
+		return newRoot;
+	}
+	
+	private int doLeftBorrow(int leftChild, 
+			int parent, int rightSibling) {
+
+		int remainingSibling = rightSibling;
+		int leftNodeSibling = left(rightSibling);
+		if (leftNodeSibling == NIL || !isRed(leftNodeSibling)) {
+			remainingSibling = rotateLeft(rightSibling);
+			setRed(remainingSibling, false);
+			leftNodeSibling = left(remainingSibling);
+		}
+		setRed(leftNodeSibling, false);
+		setLeft(remainingSibling, right(leftNodeSibling));
+		setRight(leftNodeSibling, NIL);
+		
+		int zTree = left(leftNodeSibling);
+		setRight(leftNodeSibling, remainingSibling);
+		setLeft(leftNodeSibling, parent);
+		setRed(parent, false);
+		setLeft(parent, leftChild);
+		setRed(leftChild, true);
+		setRight(parent, zTree);
+		return leftNodeSibling;
+	}
+	
+	private int leftNodeBorrowFromLeft(int rightChild,
+			int root, int leftSibling) {
+		
+		int lca = left(root);
+		if (!isRed(lca)) {
+			root = rotateLeft(root);
+			setRed(root, false);
+			lca = left(root);
+		}
+		
+		lca = doRightBorrow(rightChild, lca, leftSibling);
+		setLeft(root, lca);
+		setRed(lca, true);
+		return root;
+	}
+	
+	private int rightNodeBorrowFromLeft(int rightChild,
+			int root, int leftSibling) {
+		
+		int lca = extractRight234(root, true);
+		int newRoot = extracted;
+		
+		lca = doRightBorrow(rightChild, lca, leftSibling);
+		setRight(newRoot, lca);
+		setRed(lca, true);
+		return newRoot;
+	}
+	
+	private int doRightBorrow(int rightChild,
+			int parent, int leftSibling) {
+
+		int rightNodeSibling = extractRight234(leftSibling, false);
+		int remainingSibling = extracted;
+
+		int zTree = right(rightNodeSibling);
+		setLeft(rightNodeSibling, remainingSibling);
+		setRight(rightNodeSibling, parent);
+		setRed(parent, false);
+		setRight(parent, rightChild);
+		setRed(rightChild, true);
+		setLeft(parent, zTree);
+		return rightNodeSibling;
+	}
+	
+	/**
+	 * Applies the "no 2-node" invariant to leftChild. leftChild must be the left-most 2-3-4
+	 * child of leftParent. leftParent should not be a 2-node.
+	 * Will apply merging or borrowing from the right sibling of leftChild.
+	 * @param leftParent the 2-3-4 parent of leftChild
+	 * @param leftChild the left-most child of leftParent to rebalance.
+	 * @return
+	 */
+	private int rebalance2Node234Left(int leftParent, int leftChild) {
+		int sibling234 = secondNode234(leftParent);
+		if (is2Node(sibling234)) {
+			// Merge with the left part of leftParent
+			
+			if (!isRed(left(leftParent))) {
+				leftParent = rotateLeft(leftParent);
+				setRed(leftParent, false);
+			}
+			int newLeftRoot = left(leftParent);
+			leftChild = mergeNodes234(leftChild, newLeftRoot, sibling234);
+			setLeft(leftParent, leftChild);
+			return leftParent;
+		} else {
+			leftParent = leftNodeBorrowFromRight(leftChild, leftParent, sibling234);
+			return leftParent;
+		}
+	}
+	
+	/**
+	 * Applies the "no 2-node" invariant to the middle child of the parent 2-3-4 node.
+	 * The parent 2-3-4 node should not be a 2-node.
+	 * @param parent
+	 * @param middleChild
+	 * @param leftLeaning
+	 * @return
+	 */
+	private int rebalance2Node234Middle(int parent, 
+			int middleChild, boolean leftLeaning) {
+		if (leftLeaning) {
+			int lca = left(parent);
+			int leftSibling = left(lca);
+			//Check if we have to merge
+			if (is2Node(leftSibling)) {
+				setLeft(parent, mergeNodes234(leftSibling, lca, middleChild));
+			} else {
+				parent = leftNodeBorrowFromLeft(middleChild, parent, leftSibling);
+			}
+		} else {
+			//Check if merge
+			//If not merge:
+			int lca = right(parent);
+			int rightSibling = right(lca);
+			if (is2Node(rightSibling)) {
+				setRight(parent, mergeNodes234(middleChild, lca, rightSibling));
+			} else {
+				parent = rightNodeBorrowFromRight(middleChild, parent, rightSibling);
+			}
+		}
+		return parent;
+	}
+	
+	private int rebalance2Node234Right(int parent, 
+			int rightChild) {
+		//Get the left sibling
+		int leftSibling = NIL;
+		int right = right(parent);
+		if (isRed(right)) {
+			leftSibling = left(right);
+		} else {
+			leftSibling = right(left(parent));
+		}
+		if (is2Node(leftSibling)) {
+			int lca = extractRight234(parent, true);
+			int newRoot = extracted;
+			setRight(newRoot, mergeNodes234(leftSibling, lca, rightChild));
+			return newRoot;
+		} else {
+			parent = rightNodeBorrowFromLeft(rightChild, parent, leftSibling);
+			return parent;
+		}
+	}
+	
+
+	private void toArrayNext(int node, ArrayList<Integer> list) {
+		if (left(node) != NIL) {
+			list.add(left(node));
+			toArrayNext(left(node), list);
+		}
+		if (right(node) != NIL) {
+			list.add(right(node));
+			toArrayNext(right(node), list);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package DynamicTreeStructures.structure;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Red black tree specialized for int keys. Insert, search and delete take
+ * primitive ints and compare them with primitive comparisons, so they neither
+ * box keys nor call compareTo.
+ *
+ * The nodes are the array slots of {@link ArrayRedBlackTree}, and the top-down
+ * 2-3-4 insertion and deletion are the ones of {@link HandleRedBlackTree}. A
+ * node costs three ints and a color bit, about 12 bytes (up to 18 right after
+ * the arrays grow), against 48 bytes for a node of a
+ * {@code RedBlackTree<Integer>} and its boxed key.
+ *
+ * The TreeStructure methods are kept for compatibility and unbox their
+ * argument once per call.
+ */
+public class IntRedBlackTree extends ArrayRedBlackTree {
+
+	public IntRedBlackTree() {
+		super();
+	}
+
+	public IntRedBlackTree(int k) {
+		super();
+		insert(k);
+	}
+
+	/**
+	 * Returns whether there is a value greater than data in the tree. The value
+	 * itself is returned by {@link #successor(int)}.
+	 *
+	 * @param data the value
+	 * @return true if data has a successor in the tree
+	 */
+	public boolean hasSuccessor(int data) {
+		return successorNode(data) != NIL;
+	}
+
+	/**
+	 * Returns the smallest value k' of the tree with k' > data.
+	 *
+	 * @param data the value
+	 * @return the successor of data
+	 * @throws NoSuchElementException if there is no such value
+	 */
+	public int successor(int data) {
+		int res = successorNode(data);
+		if (res == NIL)
+			throw new NoSuchElementException("No successor of " + data);
+		return key(res);
+	}
+
+	/**
+	 * Visits in order the keys k of the tree with lo <= k <= hi, pruning the
+	 * subtrees out of the range.
+	 *
+	 * @param lo       lower bound (inclusive)
+	 * @param hi       upper bound (inclusive)
+	 * @param consumer receives the keys in increasing order
+	 */
+	public void range(int lo, int hi, IntConsumer consumer) {
+		if (lo > hi)
+			return;
+		range(root, lo, hi, consumer);
+	}
+
+	private int successorNode(int data) {
+		int res = NIL;
+		int node = root;
+		while (node != NIL) {
+			if (key(node) <= data) {
+				node = right(node);
+			} else {
+				// This node could be the successor, or it is in the left subtree
+				res = node;
+				node = left(node);
+			}
+		}
+		return res;
+	}
+
+	private void range(int node, int lo, int hi, IntConsumer consumer) {
+		while (node != NIL) {
+			int data = key(node);
+			if (data < lo) {
+				node = right(node);
+			} else if (data > hi) {
+				node = left(node);
+			} else {
+				range(left(node), lo, hi, consumer);
+				consumer.accept(data);
+				node = right(node);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package DynamicTreeStructures.structure;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width binary encoding of the keys of a tree stored outside of the heap.
+ * Keys are read and compared directly in the buffer, so comparisons don't
+ * decode (nor box) the stored key.
+ *
+ * @param <K> type of the keys
+ */
+public interface KeyCodec<K extends Comparable<K>> {
+
+	/**
+	 * Number of bytes of an encoded key.
+	 */
+	int width();
+
+	void write(ByteBuffer buffer, int offset, K key);
+
+	K read(ByteBuffer buffer, int offset);
+
+	/**
+	 * Compares key with the key encoded at offset, as key.compareTo(read(buffer,
+	 * offset)) would do.
+	 */
+	int compare(K key, ByteBuffer buffer, int offset);
+
+	public static final KeyCodec<Integer> INT = new KeyCodec<Integer>() {
+		@Override
+		public int width() {
+			return Integer.BYTES;
+		}
+
+		@Override
+		public void write(ByteBuffer buffer, int offset, Integer key) {
+			buffer.putInt(offset, key);
+		}
+
+		@Override
+		public Integer read(ByteBuffer buffer, int offset) {
+			return buffer.getInt(offset);
+		}
+
+		@Override
+		public int compare(Integer key, ByteBuffer buffer, int offset) {
+			return Integer.compare(key, buffer.getInt(offset));
+		}
+	};
+
+	public static final KeyCodec<Long> LONG = new KeyCodec<Long>() {
+		@Override
+		public int width() {
+			return Long.BYTES;
+		}
+
+		@Override
+		public void write(ByteBuffer buffer, int offset, Long key) {
+			buffer.putLong(offset, key);
+		}
+
+		@Override
+		public Long read(ByteBuffer buffer, int offset) {
+			return buffer.getLong(offset);
+		}
+
+		@Override
+		public int compare(Long key, ByteBuffer buffer, int offset) {
+			return Long.compare(key, buffer.getLong(offset));
+		}
+	};
+
+	public static final KeyCodec<Double> DOUBLE = new KeyCodec<Double>() {
+		@Override
+		public int width() {
+			return Double.BYTES;
+		}
+
+		@Override
+		public void write(ByteBuffer buffer, int offset, Double key) {
+			buffer.putDouble(offset, key);
+		}
+
+		@Override
+		public Double read(ByteBuffer buffer, int offset) {
+			return buffer.getDouble(offset);
+		}
+
+		@Override
+		public int compare(Double key, ByteBuffer buffer, int offset) {
+			return Double.compare(key, buffer.getDouble(offset));
+		}
+	};
+}
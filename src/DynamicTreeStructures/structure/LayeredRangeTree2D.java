@@ -0,0 +1,427 @@
+package DynamicTreeStructures.structure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+
+/**
+ * Layered 2D range tree (range tree with fractional cascading). Rectangle
+ * queries cost O(log n + k).
+ *
+ * The primary tree is a weight-balanced (BB[alpha]) search tree on the points
+ * ordered by x. Every node keeps the points of its subtree sorted by y, and for
+ * every position of that list the cascaded position in the lists of its
+ * children (see {@link NodeLayeredRangeTree2D}). Only the list of the root is
+ * binary searched; the rest of the positions are followed down the tree in
+ * O(1) per node.
+ *
+ * An update walks its search path once, following the cascaded positions, and
+ * inserts or removes the point in the list of every node of the path. Then, if
+ * a node of the path is out of weight balance, only the subtree of the highest
+ * such node is rebuilt perfectly balanced, in O(m log m) for m points. A
+ * rebuild keeps the points of the subtree, so the cascaded positions of its
+ * ancestors stay valid, and costs O(log^2 n) amortized per update.
+ *
+ * The lists are plain sorted arrays, so every update costs Theta(n), not a
+ * polylogarithmic time: the list of the root holds all the points, and adding
+ * or removing an entry shifts the entries after it and adjusts their cascaded
+ * positions, in every list of the path. The tree is meant to be built once, or
+ * updated rarely between long runs of queries. With frequent updates use
+ * {@link RangeTree2D}, whose queries cost O(log^2 n + k) but whose updates
+ * only touch O(log n) red-black trees.
+ *
+ * @param <X> type of the x coordinate
+ * @param <Y> type of the y coordinate
+ */
+public class LayeredRangeTree2D<X extends Comparable<X>, Y extends Comparable<Y>>
+		implements TreeStructure<NodeLayeredRangeTree2D<X, Y>, Point2D<X, Y>> {
+
+	/**
+	 * A node is in balance while each child holds at most 3/4 of its weight,
+	 * counting one more point on both sides: BB[alpha] with alpha = 1/4.
+	 */
+	private static final int BALANCE_NUMERATOR = 3;
+	private static final int BALANCE_DENOMINATOR = 4;
+
+	private NodeLayeredRangeTree2D<X, Y> root;
+
+	public LayeredRangeTree2D() {
+		this.root = null;
+	}
+
+	/**
+	 * Get root of the primary tree.
+	 *
+	 * @return root node or null
+	 */
+	@Override
+	public NodeLayeredRangeTree2D<X, Y> getRoot() {
+		return root;
+	}
+
+	/**
+	 * Number of points stored in the tree.
+	 *
+	 * @return the number of points
+	 */
+	public int size() {
+		return weight(root);
+	}
+
+	public void insert(X x, Y y) {
+		insert(new Point2D<>(x, y));
+	}
+
+	/**
+	 * Inserts the point in the tree in Theta(n) time. Inserting a point that is
+	 * already in the tree does nothing.
+	 *
+	 * @param point point to insert
+	 */
+	@Override
+	public void insert(Point2D<X, Y> point) {
+		if (search(point) != null)
+			return;
+		if (root == null) {
+			root = build(List.of(point), 0, 1);
+			return;
+		}
+		List<NodeLayeredRangeTree2D<X, Y>> path = new ArrayList<>();
+		NodeLayeredRangeTree2D<X, Y> node = root;
+		int position = firstAtLeast(root.getByY(), point.byY());
+		while (true) {
+			path.add(node);
+			boolean isLeft = point.compareTo(node.getPoint()) < 0;
+			int next = isLeft ? node.toLeft(position) : node.toRight(position);
+			node.insertY(position, point, isLeft);
+			NodeLayeredRangeTree2D<X, Y> child = isLeft ? node.getLeft() : node.getRight();
+			if (child == null) {
+				child = build(List.of(point), 0, 1);
+				if (isLeft) {
+					node.setLeft(child);
+				} else {
+					node.setRight(child);
+				}
+				break;
+			}
+			node = child;
+			position = next;
+		}
+		rebalance(path);
+	}
+
+	/**
+	 * Search the point in the tree.
+	 *
+	 * @param point point to search
+	 * @return the stored point if the search has been successful, or null
+	 *         otherwise
+	 */
+	@Override
+	public Point2D<X, Y> search(Point2D<X, Y> point) {
+		NodeLayeredRangeTree2D<X, Y> node = find(point);
+		return node == null ? null : node.getPoint();
+	}
+
+	public Point2D<X, Y> delete(X x, Y y) {
+		return delete(new Point2D<>(x, y));
+	}
+
+	/**
+	 * Deletes the point from the tree in Theta(n) time.
+	 *
+	 * @param point point to delete
+	 * @return the deleted point, or null if it was not in the tree
+	 */
+	@Override
+	public Point2D<X, Y> delete(Point2D<X, Y> point) {
+		NodeLayeredRangeTree2D<X, Y> target = find(point);
+		if (target == null)
+			return null;
+		Point2D<X, Y> deleted = target.getPoint();
+		List<NodeLayeredRangeTree2D<X, Y>> path = new ArrayList<>();
+		NodeLayeredRangeTree2D<X, Y> parent = null;
+		NodeLayeredRangeTree2D<X, Y> node = root;
+		int position = firstAtLeast(root.getByY(), point.byY());
+		while (node != target) {
+			path.add(node);
+			boolean isLeft = point.compareTo(node.getPoint()) < 0;
+			int next = isLeft ? node.toLeft(position) : node.toRight(position);
+			node.removeY(position, isLeft);
+			parent = node;
+			node = isLeft ? node.getLeft() : node.getRight();
+			position = next;
+		}
+		if (target.getLeft() == null || target.getRight() == null) {
+			NodeLayeredRangeTree2D<X, Y> child = target.getLeft() != null ? target.getLeft() : target.getRight();
+			replaceChild(parent, target, child);
+		} else {
+			// The successor moves up into target and leaves the right subtree
+			path.add(target);
+			target.removeY(position, false);
+			NodeLayeredRangeTree2D<X, Y> successorParent = target;
+			NodeLayeredRangeTree2D<X, Y> successor = target.getRight();
+			Point2D<X, Y> moved = min(successor);
+			position = firstAtLeast(successor.getByY(), moved.byY());
+			while (successor.getLeft() != null) {
+				path.add(successor);
+				int next = successor.toLeft(position);
+				successor.removeY(position, true);
+				successorParent = successor;
+				successor = successor.getLeft();
+				position = next;
+			}
+			replaceChild(successorParent, successor, successor.getRight());
+			target.setPoint(moved, firstAtLeast(target.getByY(), moved.byY()));
+		}
+		rebalance(path);
+		return deleted;
+	}
+
+	/**
+	 * Reports all the points (x, y) of the tree with xLow <= x <= xHigh and yLow
+	 * <= y <= yHigh. Runs in O(log n + k), where k is the number of reported
+	 * points. The points are reported grouped by canonical subtree, not in a
+	 * particular global order.
+	 *
+	 * @param xLow     lower bound of x (inclusive)
+	 * @param xHigh    upper bound of x (inclusive)
+	 * @param yLow     lower bound of y (inclusive)
+	 * @param yHigh    upper bound of y (inclusive)
+	 * @param consumer receives every point in the rectangle
+	 */
+	public void query(X xLow, X xHigh, Y yLow, Y yHigh, Consumer<Point2D<X, Y>> consumer) {
+		if (root == null || xLow.compareTo(xHigh) > 0 || yLow.compareTo(yHigh) > 0)
+			return;
+		query(root, firstWithYAtLeast(yLow), false, false, xLow, xHigh, yLow, yHigh, consumer);
+	}
+
+	/**
+	 * Returns all the points in the rectangle [xLow, xHigh] x [yLow, yHigh].
+	 *
+	 * @return list of the points in the rectangle
+	 */
+	public List<Point2D<X, Y>> query(X xLow, X xHigh, Y yLow, Y yHigh) {
+		List<Point2D<X, Y>> result = new ArrayList<>();
+		query(xLow, xHigh, yLow, yHigh, result::add);
+		return result;
+	}
+
+	/**
+	 * Visits all the points of the tree in increasing order (by x, then by y).
+	 *
+	 * @param consumer receives every point of the tree
+	 */
+	public void forEach(Consumer<Point2D<X, Y>> consumer) {
+		forEach(root, consumer);
+	}
+
+	@Override
+	public String toString() {
+		return toString(false);
+	}
+
+	@Override
+	public String toString(boolean formated) {
+		if (root == null) {
+			return null;
+		}
+		StringBuilder builder = new StringBuilder();
+		toString(root, builder);
+		builder.deleteCharAt(builder.length() - 1);
+		return builder.toString();
+	}
+
+	private void toString(NodeLayeredRangeTree2D<X, Y> node, StringBuilder builder) {
+		if (node == null)
+			return;
+		builder.append(node.toString()).append('\n');
+		toString(node.getLeft(), builder);
+		toString(node.getRight(), builder);
+	}
+
+	/*********************
+	 * QUERY METHODS
+	 *********************/
+
+	/**
+	 * Reports the points of the subtree of node in the rectangle. position is the
+	 * cascaded position in its list of the first point with y at least yLow.
+	 * aboveLow and belowHigh tell whether every x of the subtree is already known
+	 * to be at least xLow or at most xHigh.
+	 */
+	private void query(NodeLayeredRangeTree2D<X, Y> node, int position, boolean aboveLow, boolean belowHigh, X xLow,
+			X xHigh, Y yLow, Y yHigh, Consumer<Point2D<X, Y>> consumer) {
+		if (node == null || position == node.getWeight())
+			return;
+		if (aboveLow && belowHigh) {
+			// Canonical subtree: report by y
+			ArrayList<Point2D<X, Y>> byY = node.getByY();
+			for (int i = position; i < byY.size(); i++) {
+				Point2D<X, Y> point = byY.get(i);
+				if (point.getY().compareTo(yHigh) > 0)
+					break;
+				consumer.accept(point);
+			}
+			return;
+		}
+		Point2D<X, Y> point = node.getPoint();
+		boolean atLeastLow = aboveLow || point.getX().compareTo(xLow) >= 0;
+		boolean atMostHigh = belowHigh || point.getX().compareTo(xHigh) <= 0;
+		if (atLeastLow && atMostHigh && point.getY().compareTo(yLow) >= 0 && point.getY().compareTo(yHigh) <= 0)
+			consumer.accept(point);
+		// The x of the left subtree are at most the x of node, and the x of the
+		// right subtree at least
+		if (atLeastLow)
+			query(node.getLeft(), node.toLeft(position), aboveLow, atMostHigh, xLow, xHigh, yLow, yHigh, consumer);
+		if (atMostHigh)
+			query(node.getRight(), node.toRight(position), atLeastLow, belowHigh, xLow, xHigh, yLow, yHigh,
+					consumer);
+	}
+
+	private int firstWithYAtLeast(Y y) {
+		ArrayList<Point2D<X, Y>> byY = root.getByY();
+		int lo = 0;
+		int hi = byY.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (byY.get(mid).getY().compareTo(y) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Position of the first point of byY that is not smaller than key.
+	 */
+	private static <X extends Comparable<X>, Y extends Comparable<Y>> int firstAtLeast(
+			ArrayList<Point2D<X, Y>> byY, Point2D.ByY<X, Y> key) {
+		int lo = 0;
+		int hi = byY.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (byY.get(mid).byY().compareTo(key) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private NodeLayeredRangeTree2D<X, Y> find(Point2D<X, Y> point) {
+		NodeLayeredRangeTree2D<X, Y> node = root;
+		while (node != null) {
+			int cmp = point.compareTo(node.getPoint());
+			if (cmp == 0)
+				return node;
+			node = cmp < 0 ? node.getLeft() : node.getRight();
+		}
+		return null;
+	}
+
+	private static <X extends Comparable<X>, Y extends Comparable<Y>> Point2D<X, Y> min(
+			NodeLayeredRangeTree2D<X, Y> node) {
+		while (node.getLeft() != null) {
+			node = node.getLeft();
+		}
+		return node.getPoint();
+	}
+
+	private void forEach(NodeLayeredRangeTree2D<X, Y> node, Consumer<Point2D<X, Y>> consumer) {
+		while (node != null) {
+			forEach(node.getLeft(), consumer);
+			consumer.accept(node.getPoint());
+			node = node.getRight();
+		}
+	}
+
+	/*********************
+	 * REBUILDING METHODS
+	 *********************/
+
+	private static int weight(NodeLayeredRangeTree2D<?, ?> node) {
+		return node == null ? 0 : node.getWeight();
+	}
+
+	private static boolean isBalanced(NodeLayeredRangeTree2D<?, ?> node) {
+		long limit = (long) BALANCE_NUMERATOR * (node.getWeight() + 1);
+		return (long) BALANCE_DENOMINATOR * (weight(node.getLeft()) + 1) <= limit
+				&& (long) BALANCE_DENOMINATOR * (weight(node.getRight()) + 1) <= limit;
+	}
+
+	/**
+	 * Rebuilds the subtree of the highest node of the path, from the root down,
+	 * that is out of balance.
+	 */
+	private void rebalance(List<NodeLayeredRangeTree2D<X, Y>> path) {
+		for (int i = 0; i < path.size(); i++) {
+			NodeLayeredRangeTree2D<X, Y> node = path.get(i);
+			if (!isBalanced(node)) {
+				List<Point2D<X, Y>> points = new ArrayList<>(node.getWeight());
+				forEach(node, points::add);
+				replaceChild(i == 0 ? null : path.get(i - 1), node, build(points, 0, points.size()));
+				return;
+			}
+		}
+	}
+
+	private void replaceChild(NodeLayeredRangeTree2D<X, Y> parent, NodeLayeredRangeTree2D<X, Y> old,
+			NodeLayeredRangeTree2D<X, Y> child) {
+		if (parent == null) {
+			root = child;
+		} else if (parent.getLeft() == old) {
+			parent.setLeft(child);
+		} else {
+			parent.setRight(child);
+		}
+	}
+
+	/**
+	 * Builds a perfectly balanced subtree of the points [lo, hi) of the x-sorted
+	 * list, merging the lists of the children. O(m log m) for m points.
+	 */
+	private NodeLayeredRangeTree2D<X, Y> build(List<Point2D<X, Y>> sorted, int lo, int hi) {
+		if (lo == hi)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		Point2D<X, Y> point = sorted.get(mid);
+		NodeLayeredRangeTree2D<X, Y> left = build(sorted, lo, mid);
+		NodeLayeredRangeTree2D<X, Y> right = build(sorted, mid + 1, hi);
+		List<Point2D<X, Y>> leftByY = left == null ? List.of() : left.getByY();
+		List<Point2D<X, Y>> rightByY = right == null ? List.of() : right.getByY();
+		ArrayList<Point2D<X, Y>> byY = new ArrayList<>(hi - lo);
+		int[] toLeft = new int[hi - lo + 1];
+		int own = -1;
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < hi - lo; k++) {
+			toLeft[k] = i;
+			Point2D<X, Y> next = null;
+			if (i < leftByY.size())
+				next = leftByY.get(i);
+			if (own < 0 && (next == null || point.byY().compareTo(next.byY()) < 0))
+				next = point;
+			if (j < rightByY.size() && (next == null || rightByY.get(j).byY().compareTo(next.byY()) < 0))
+				next = rightByY.get(j);
+			if (next == point) {
+				own = k;
+			} else if (i < leftByY.size() && next == leftByY.get(i)) {
+				i++;
+			} else {
+				j++;
+			}
+			byY.add(next);
+		}
+		toLeft[hi - lo] = i;
+		NodeLayeredRangeTree2D<X, Y> node = new NodeLayeredRangeTree2D<>(point, byY, toLeft, own);
+		node.setLeft(left);
+		node.setRight(right);
+		return node;
+	}
+}
@@ -11,15 +11,17 @@ public class NodeAVLTree<K extends Comparable<K>> implements Comparable<NodeAVLT
     private NodeAVLTree<K> left;
     private NodeAVLTree<K> right;
 
-    private int deepLeft;
-    private int deepRight;
+    /**
+     * Height of the subtree, 1 for a leaf. An AVL tree of height 127 would have
+     * more than 2^64 nodes, so a byte is enough.
+     */
+    private byte height;
 
     public NodeAVLTree(K data) {
         this.data = data;
         this.left = null;
         this.right = null;
-        this.deepLeft = 0;
-        this.deepRight = 0;
+        this.height = 1;
     }
 
     public K getData() {
@@ -47,27 +49,31 @@ public class NodeAVLTree<K extends Comparable<K>> implements Comparable<NodeAVLT
     }
     
     public int getFactor() {
-        return deepLeft - deepRight;
+        return height(left) - height(right);
     }
-    
-    public int getDeep() {
-        return Math.max(deepLeft, deepRight);
+
+    public int getHeight() {
+        return height;
     }
 
-    public int getDeepLeft() {
-        return deepLeft;
+    public void setHeight(int height) {
+        this.height = (byte) height;
     }
 
-    public void setDeepLeft(int deepLeft) {
-        this.deepLeft = deepLeft;
+    public int getDeep() {
+        return height - 1;
+    }
+
+    public int getDeepLeft() {
+        return height(left);
     }
 
     public int getDeepRight() {
-        return deepRight;
+        return height(right);
     }
 
-    public void setDeepRight(int deepRight) {
-        this.deepRight = deepRight;
+    static int height(NodeAVLTree<?> node) {
+        return node == null ? 0 : node.height;
     }
 
     @Override
@@ -80,6 +86,6 @@ public class NodeAVLTree<K extends Comparable<K>> implements Comparable<NodeAVLT
         String l = left == null ? "null" : left.getData().toString();
         String d = data.toString();
         String r = right == null ? "null" : right.getData().toString();
-        return String.format("%s;%d;%s;%s", d, deepLeft - deepRight, l, r);
+        return String.format("%s;%d;%s;%s", d, getFactor(), l, r);
     }
 }
@@ -0,0 +1,134 @@
+package DynamicTreeStructures.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Node of a {@link LayeredRangeTree2D}. Besides its point, every node keeps
+ * the points of its subtree sorted by y, and for every position of that list
+ * the number of points before it that belong to the left subtree. That count
+ * is the cascaded position in the list of the left child; the position in the
+ * list of the right child follows by difference.
+ *
+ * @param <X> type of the x coordinate
+ * @param <Y> type of the y coordinate
+ */
+public class NodeLayeredRangeTree2D<X extends Comparable<X>, Y extends Comparable<Y>> {
+
+	private Point2D<X, Y> point;
+	private NodeLayeredRangeTree2D<X, Y> left;
+	private NodeLayeredRangeTree2D<X, Y> right;
+	/** Points of the subtree sorted by y */
+	private final ArrayList<Point2D<X, Y>> byY;
+	/** toLeft[i] is the number of points of the left subtree in byY[0, i) */
+	private int[] toLeft;
+	/** Position of point in byY */
+	private int own;
+
+	NodeLayeredRangeTree2D(Point2D<X, Y> point, ArrayList<Point2D<X, Y>> byY, int[] toLeft, int own) {
+		this.point = point;
+		this.byY = byY;
+		this.toLeft = toLeft;
+		this.own = own;
+	}
+
+	public Point2D<X, Y> getPoint() {
+		return point;
+	}
+
+	public NodeLayeredRangeTree2D<X, Y> getLeft() {
+		return left;
+	}
+
+	public NodeLayeredRangeTree2D<X, Y> getRight() {
+		return right;
+	}
+
+	/**
+	 * Number of points of the subtree.
+	 *
+	 * @return the weight of the node
+	 */
+	public int getWeight() {
+		return byY.size();
+	}
+
+	ArrayList<Point2D<X, Y>> getByY() {
+		return byY;
+	}
+
+	/**
+	 * Cascaded position in the list of the left child of position i.
+	 */
+	int toLeft(int i) {
+		return toLeft[i];
+	}
+
+	/**
+	 * Cascaded position in the list of the right child of position i.
+	 */
+	int toRight(int i) {
+		return i - toLeft[i] - (own < i ? 1 : 0);
+	}
+
+	int getOwn() {
+		return own;
+	}
+
+	void setPoint(Point2D<X, Y> point, int own) {
+		this.point = point;
+		this.own = own;
+	}
+
+	void setLeft(NodeLayeredRangeTree2D<X, Y> left) {
+		this.left = left;
+	}
+
+	void setRight(NodeLayeredRangeTree2D<X, Y> right) {
+		this.right = right;
+	}
+
+	/**
+	 * Inserts a point of the left or right subtree at position i of the list.
+	 * Linear in the weight of the node.
+	 */
+	void insertY(int i, Point2D<X, Y> p, boolean isLeft) {
+		int size = byY.size();
+		byY.add(i, p);
+		if (toLeft.length < size + 2)
+			toLeft = Arrays.copyOf(toLeft, Math.max(size + 2, toLeft.length * 2));
+		System.arraycopy(toLeft, i, toLeft, i + 1, size + 1 - i);
+		if (isLeft) {
+			for (int j = i + 1; j <= size + 1; j++) {
+				toLeft[j]++;
+			}
+		}
+		if (own >= i)
+			own++;
+	}
+
+	/**
+	 * Removes position i of the list, which holds a point of the left or right
+	 * subtree, or the point of the node itself. Linear in the weight of the
+	 * node.
+	 */
+	void removeY(int i, boolean isLeft) {
+		int size = byY.size();
+		byY.remove(i);
+		System.arraycopy(toLeft, i + 2, toLeft, i + 1, size - i - 1);
+		if (isLeft) {
+			for (int j = i + 1; j < size; j++) {
+				toLeft[j]--;
+			}
+		}
+		if (own > i)
+			own--;
+	}
+
+	@Override
+	public String toString() {
+		String l = left == null ? "null" : left.point.toString();
+		String r = right == null ? "null" : right.point.toString();
+		return String.format("%s;%d;%s;%s", point, byY.size(), l, r);
+	}
+}
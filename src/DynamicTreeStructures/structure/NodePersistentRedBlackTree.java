@@ -0,0 +1,65 @@
+package DynamicTreeStructures.structure;
+
+/**
+ * Immutable node of a {@link PersistentRedBlackTree}. Nodes are shared between
+ * the versions of the tree, so none of its fields can change.
+ *
+ * @param <K>
+ */
+public final class NodePersistentRedBlackTree<K extends Comparable<K>>
+        implements Comparable<NodePersistentRedBlackTree<K>> {
+
+    private final K data;
+    private final NodePersistentRedBlackTree<K> left;
+    private final NodePersistentRedBlackTree<K> right;
+    private final boolean isRed;
+    private final int size;
+
+    public NodePersistentRedBlackTree(boolean isRed, NodePersistentRedBlackTree<K> left, K data,
+            NodePersistentRedBlackTree<K> right) {
+        this.data = data;
+        this.left = left;
+        this.right = right;
+        this.isRed = isRed;
+        this.size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+    }
+
+    public K getData() {
+        return data;
+    }
+
+    public NodePersistentRedBlackTree<K> getLeft() {
+        return left;
+    }
+
+    public NodePersistentRedBlackTree<K> getRight() {
+        return right;
+    }
+
+    public boolean isRed() {
+        return isRed;
+    }
+
+    /**
+     * Number of nodes of the subtree rooted at this node.
+     *
+     * @return the size of the subtree
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int compareTo(NodePersistentRedBlackTree<K> k) {
+        return data.compareTo(k.getData());
+    }
+
+    @Override
+    public String toString() {
+        String l = left == null ? "null" : left.data.toString();
+        String d = data.toString();
+        String c = isRed ? "red" : "black";
+        String r = right == null ? "null" : right.data.toString();
+        return String.format("%s;%s;%s;%s", d, c, l, r);
+    }
+}
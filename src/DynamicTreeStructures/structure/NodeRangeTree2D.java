@@ -0,0 +1,88 @@
+package DynamicTreeStructures.structure;
+
+/**
+ * Node of the primary tree of a {@link RangeTree2D}. Besides its point and
+ * color, every node keeps the associated structure of its subtree: a
+ * red-black tree with all the (non deleted) points of the subtree, ordered by
+ * y.
+ *
+ * @param <X> type of the x coordinate
+ * @param <Y> type of the y coordinate
+ */
+public class NodeRangeTree2D<X extends Comparable<X>, Y extends Comparable<Y>> {
+
+	private Point2D<X, Y> point;
+	private NodeRangeTree2D<X, Y> left;
+	private NodeRangeTree2D<X, Y> right;
+	private boolean isRed;
+	private boolean deleted;
+	private RedBlackTree<Point2D.ByY<X, Y>> associated;
+
+	NodeRangeTree2D(Point2D<X, Y> point, boolean isRed, RedBlackTree<Point2D.ByY<X, Y>> associated) {
+		this.point = point;
+		this.left = null;
+		this.right = null;
+		this.isRed = isRed;
+		this.deleted = false;
+		this.associated = associated;
+	}
+
+	public Point2D<X, Y> getPoint() {
+		return point;
+	}
+
+	public NodeRangeTree2D<X, Y> getLeft() {
+		return left;
+	}
+
+	public NodeRangeTree2D<X, Y> getRight() {
+		return right;
+	}
+
+	public boolean isRed() {
+		return isRed;
+	}
+
+	/**
+	 * Deleted nodes are kept in the primary tree until the next rebuild, but
+	 * their point is no longer part of any associated structure.
+	 *
+	 * @return true if the point of this node has been deleted
+	 */
+	public boolean isDeleted() {
+		return deleted;
+	}
+
+	RedBlackTree<Point2D.ByY<X, Y>> getAssociated() {
+		return associated;
+	}
+
+	void setLeft(NodeRangeTree2D<X, Y> left) {
+		this.left = left;
+	}
+
+	void setRight(NodeRangeTree2D<X, Y> right) {
+		this.right = right;
+	}
+
+	void setRed(boolean isRed) {
+		this.isRed = isRed;
+	}
+
+	void setDeleted(boolean deleted) {
+		this.deleted = deleted;
+	}
+
+	void setAssociated(RedBlackTree<Point2D.ByY<X, Y>> associated) {
+		this.associated = associated;
+	}
+
+	@Override
+	public String toString() {
+		String l = left == null ? "null" : left.point.toString();
+		String d = deleted ? point + "*" : point.toString();
+		String c = isRed ? "red" : "black";
+		String r = right == null ? "null" : right.point.toString();
+		return String.format("%s;%s;%s;%s", d, c, l, r);
+	}
+}
@@ -15,6 +15,7 @@ public class NodeRedBlackTree<K extends Comparable<K>> implements Comparable<Nod
     private NodeRedBlackTree<K> left;
     private NodeRedBlackTree<K> right;
     private boolean isRed;
+    private int size;
 
     public NodeRedBlackTree(K data) {
         this(data, true);
@@ -25,6 +26,7 @@ public class NodeRedBlackTree<K extends Comparable<K>> implements Comparable<Nod
         this.left = null;
         this.right = null;
         this.isRed = isRed;
+        this.size = 1;
     }
 
     public K getData() {
@@ -43,6 +45,14 @@ public class NodeRedBlackTree<K extends Comparable<K>> implements Comparable<Nod
         return isRed;
     }
 
+    /**
+     * Number of nodes of the subtree rooted at this node.
+     * @return the size of the subtree
+     */
+    public int getSize() {
+        return size;
+    }
+
     public void setData(K data) {
         this.data = data;
     }
@@ -58,6 +68,26 @@ public class NodeRedBlackTree<K extends Comparable<K>> implements Comparable<Nod
     public void setRed(boolean isRed) {
         this.isRed = isRed;
     }
+
+    /**
+     * Recomputes the size of the subtree from the sizes of the children.
+     * The sizes of the children must be up to date.
+     */
+    void updateSize() {
+        int s = 1;
+        if (left != null)
+            s += left.size;
+        if (right != null)
+            s += right.size;
+        this.size = s;
+    }
+
+    /**
+     * Adds delta to the size of the subtree.
+     */
+    void addSize(int delta) {
+        this.size += delta;
+    }
     
     /**
      * Changes the data of this node to a different one.
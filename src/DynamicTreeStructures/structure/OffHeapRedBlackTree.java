@@ -0,0 +1,314 @@
+package DynamicTreeStructures.structure;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+
+/**
+ * Red black tree whose nodes live in direct (off-heap) buffers, for trees too
+ * large to keep as heap objects. The nodes are allocated in chunks of a fixed
+ * number of nodes; a node is the index of its fixed-width record:
+ *
+ * <pre>
+ * [left + 1 | red bit : 4 bytes][right : 4 bytes][key : codec width]
+ * </pre>
+ *
+ * The red bit is the highest bit of the left field. Deleted records are chained
+ * into a free list through the right field and reused.
+ *
+ * The memory is released by {@link #close()}, which throws if it cannot free
+ * it right away; the tree cannot be used after that, and its methods and
+ * handle accessors throw IllegalStateException.
+ *
+ * @param <K> type of the keys
+ */
+public class OffHeapRedBlackTree<K extends Comparable<K>> extends HandleRedBlackTree
+		implements TreeStructure<Integer, K>, AutoCloseable {
+
+	private static final int DEFAULT_CHUNK_SHIFT = 16;
+	private static final int RED = 0x80000000;
+	private static final int LEFT = 0;
+	private static final int RIGHT = 4;
+	private static final int KEY = 8;
+
+	private final KeyCodec<K> codec;
+	private final int recordWidth;
+	private final int chunkShift;
+	private final int chunkMask;
+
+	private ByteBuffer[] chunks;
+	private int chunkCount;
+	/** Records [0, used) have been handed out at some point */
+	private int used;
+	/** Head of the free list, chained through the right field */
+	private int free = NIL;
+	private boolean closed;
+
+	/** Key of the update in progress, see {@link HandleRedBlackTree} */
+	private K probe;
+
+	public OffHeapRedBlackTree(KeyCodec<K> codec) {
+		this(codec, DEFAULT_CHUNK_SHIFT);
+	}
+
+	/**
+	 * @param codec      encoding of the keys
+	 * @param chunkShift every chunk holds 2^chunkShift nodes
+	 */
+	OffHeapRedBlackTree(KeyCodec<K> codec, int chunkShift) {
+		this.codec = codec;
+		this.recordWidth = KEY + codec.width();
+		this.chunkShift = chunkShift;
+		this.chunkMask = (1 << chunkShift) - 1;
+		this.chunks = new ByteBuffer[4];
+	}
+
+	/**
+	 * Get the handle of the root of the tree.
+	 *
+	 * @return root handle, or NIL if the tree is empty
+	 */
+	@Override
+	public Integer getRoot() {
+		return root;
+	}
+
+	@Override
+	public void insert(K k) {
+		ensureOpen();
+		probe = k;
+		insertProbe();
+		probe = null;
+	}
+
+	@Override
+	public K search(K k) {
+		ensureOpen();
+		int node = find(k);
+		return node == NIL ? null : key(node);
+	}
+
+	/**
+	 * Returns the node with key k, or NIL if it is not in the tree. The key is an
+	 * argument instead of the probe, so lookups write nothing and threads that
+	 * only search the tree don't disturb each other.
+	 */
+	private int find(K k) {
+		int node = root;
+		while (node != NIL) {
+			int compareTo = codec.compare(k, chunk(node), offset(node) + KEY);
+			if (compareTo == 0)
+				return node;
+			node = compareTo > 0 ? right(node) : left(node);
+		}
+		return NIL;
+	}
+
+	@Override
+	public K delete(K k) {
+		ensureOpen();
+		probe = k;
+		deleteProbe();
+		probe = null;
+		if (removedNode == NIL)
+			return null;
+		freeNode(removedNode);
+		removedNode = NIL;
+		return k;
+	}
+
+	/**
+	 * Key of the given node.
+	 *
+	 * @param node a node handle of this tree
+	 * @return its decoded key
+	 */
+	public K key(int node) {
+		ensureOpen();
+		return codec.read(chunk(node), offset(node) + KEY);
+	}
+
+	/**
+	 * Bytes of off-heap memory held by the tree.
+	 */
+	public long allocatedBytes() {
+		return (long) chunkCount * (recordWidth << chunkShift);
+	}
+
+	/**
+	 * Releases the off-heap memory of the tree.
+	 *
+	 * @throws IllegalStateException if the memory could not be freed right away.
+	 *                               The tree is closed all the same, and its
+	 *                               buffers are left to the garbage collector.
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		IllegalStateException failure = null;
+		for (int i = 0; i < chunkCount; i++) {
+			try {
+				release(chunks[i]);
+			} catch (IllegalStateException e) {
+				if (failure == null)
+					failure = e;
+			}
+			chunks[i] = null;
+		}
+		chunks = null;
+		chunkCount = 0;
+		root = NIL;
+		size = 0;
+		if (failure != null)
+			throw failure;
+	}
+
+	/*********************
+	 * NODE STORAGE
+	 *********************/
+
+	@Override
+	public int left(int node) {
+		ensureOpen();
+		return (chunk(node).getInt(offset(node) + LEFT) & ~RED) - 1;
+	}
+
+	@Override
+	public int right(int node) {
+		ensureOpen();
+		return chunk(node).getInt(offset(node) + RIGHT);
+	}
+
+	@Override
+	public boolean isRed(int node) {
+		ensureOpen();
+		return (chunk(node).getInt(offset(node) + LEFT) & RED) != 0;
+	}
+
+	@Override
+	protected void setLeft(int node, int left) {
+		ByteBuffer chunk = chunk(node);
+		int offset = offset(node) + LEFT;
+		chunk.putInt(offset, (chunk.getInt(offset) & RED) | (left + 1));
+	}
+
+	@Override
+	protected void setRight(int node, int right) {
+		chunk(node).putInt(offset(node) + RIGHT, right);
+	}
+
+	@Override
+	protected void setRed(int node, boolean isRed) {
+		ByteBuffer chunk = chunk(node);
+		int offset = offset(node) + LEFT;
+		int field = chunk.getInt(offset);
+		chunk.putInt(offset, isRed ? field | RED : field & ~RED);
+	}
+
+	@Override
+	protected int compareProbe(int node) {
+		return codec.compare(probe, chunk(node), offset(node) + KEY);
+	}
+
+	@Override
+	protected void copyKey(int from, int to) {
+		chunk(to).put(offset(to) + KEY, chunk(from), offset(from) + KEY, codec.width());
+	}
+
+	@Override
+	protected int newNode() {
+		int node;
+		if (free != NIL) {
+			node = free;
+			free = right(node);
+		} else {
+			if ((used >>> chunkShift) == chunkCount)
+				addChunk();
+			node = used++;
+		}
+		ByteBuffer chunk = chunk(node);
+		int offset = offset(node);
+		chunk.putInt(offset + LEFT, RED);
+		chunk.putInt(offset + RIGHT, NIL);
+		codec.write(chunk, offset + KEY, probe);
+		return node;
+	}
+
+	@Override
+	protected void freeNode(int node) {
+		setRight(node, free);
+		free = node;
+	}
+
+	@Override
+	protected String keyToString(int node) {
+		return String.valueOf(key(node));
+	}
+
+	private ByteBuffer chunk(int node) {
+		return chunks[node >>> chunkShift];
+	}
+
+	private int offset(int node) {
+		return (node & chunkMask) * recordWidth;
+	}
+
+	private void addChunk() {
+		if (chunkCount == chunks.length)
+			chunks = Arrays.copyOf(chunks, chunks.length * 2);
+		chunks[chunkCount++] = ByteBuffer.allocateDirect(recordWidth << chunkShift).order(ByteOrder.nativeOrder());
+	}
+
+	private void ensureOpen() {
+		if (closed)
+			throw new IllegalStateException("The tree has been closed");
+	}
+
+	/**
+	 * Frees the memory of a direct buffer right away through
+	 * sun.misc.Unsafe.invokeCleaner.
+	 *
+	 * @throws IllegalStateException if it is not available or fails. The buffer
+	 *                               is then left to the garbage collector.
+	 */
+	private static void release(ByteBuffer buffer) {
+		if (INVOKE_CLEANER == null)
+			throw new IllegalStateException("sun.misc.Unsafe.invokeCleaner is not available", CLEANER_FAILURE);
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			throw new IllegalStateException("Could not free an off-heap buffer", e);
+		}
+	}
+
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+	/** Why INVOKE_CLEANER could not be found, or null */
+	private static final Exception CLEANER_FAILURE;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		Exception failure = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			unsafe = null;
+			invokeCleaner = null;
+			failure = e;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+		CLEANER_FAILURE = failure;
+	}
+}
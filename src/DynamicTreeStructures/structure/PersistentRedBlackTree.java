@@ -0,0 +1,374 @@
+package DynamicTreeStructures.structure;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+
+/**
+ * Persistent red black tree. Nodes are immutable: an insertion or deletion
+ * copies the O(log n) nodes of the search path and shares every other subtree
+ * with the previous version, so old roots stay valid forever and a snapshot is
+ * just a reference to the current root.
+ *
+ * Insertion follows Okasaki (Red-black trees in a functional setting, 1999) and
+ * deletion follows Kahrs (Red-black trees with types, 2001). The static methods
+ * work on roots; an instance is a mutable handle to the latest version, which
+ * writers must not update concurrently. Snapshots can be taken and read from
+ * any thread.
+ *
+ * @param <K> type of the keys
+ */
+public class PersistentRedBlackTree<K extends Comparable<K>>
+		implements TreeStructure<NodePersistentRedBlackTree<K>, K> {
+
+	private volatile NodePersistentRedBlackTree<K> root;
+
+	public PersistentRedBlackTree() {
+		this.root = null;
+	}
+
+	private PersistentRedBlackTree(NodePersistentRedBlackTree<K> root) {
+		this.root = root;
+	}
+
+	/**
+	 * Get root of the current version of the tree.
+	 *
+	 * @return root node or null
+	 */
+	@Override
+	public NodePersistentRedBlackTree<K> getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns a view of the current version of the tree, that later updates of
+	 * this tree don't change. O(1).
+	 *
+	 * @return a tree with the current contents
+	 */
+	public PersistentRedBlackTree<K> snapshot() {
+		return new PersistentRedBlackTree<>(root);
+	}
+
+	@Override
+	public void insert(K k) {
+		root = insert(root, k);
+	}
+
+	@Override
+	public K search(K data) {
+		return search(root, data);
+	}
+
+	@Override
+	public K delete(K k) {
+		NodePersistentRedBlackTree<K> current = root;
+		K found = search(current, k);
+		if (found != null)
+			root = delete(current, k);
+		return found;
+	}
+
+	/**
+	 * Number of keys stored in the tree.
+	 *
+	 * @return the number of keys
+	 */
+	public int size() {
+		NodePersistentRedBlackTree<K> current = root;
+		return current == null ? 0 : current.getSize();
+	}
+
+	/**
+	 * Visits in order the keys k of the tree with lo <= k <= hi.
+	 *
+	 * @param lo       lower bound (inclusive)
+	 * @param hi       upper bound (inclusive)
+	 * @param consumer receives the keys in increasing order
+	 */
+	public void range(K lo, K hi, Consumer<K> consumer) {
+		if (lo.compareTo(hi) > 0)
+			return;
+		range(root, lo, hi, consumer);
+	}
+
+	/**
+	 * Returns the root of the tree with k inserted. root is not modified.
+	 *
+	 * @param root root of a version of the tree, or null
+	 * @param k    value to insert
+	 * @return root of the new version
+	 */
+	public static <K extends Comparable<K>> NodePersistentRedBlackTree<K> insert(NodePersistentRedBlackTree<K> root,
+			K k) {
+		return blacken(ins(root, k));
+	}
+
+	/**
+	 * Returns the root of the tree without k. root is not modified, and is
+	 * returned if k is not in the tree.
+	 *
+	 * @param root root of a version of the tree, or null
+	 * @param k    value to delete
+	 * @return root of the new version
+	 */
+	public static <K extends Comparable<K>> NodePersistentRedBlackTree<K> delete(NodePersistentRedBlackTree<K> root,
+			K k) {
+		// The rebalancing of del assumes that a node is removed
+		if (search(root, k) == null)
+			return root;
+		return blacken(del(root, k));
+	}
+
+	/**
+	 * Search the value in the tree of root.
+	 *
+	 * @return the stored value, or null if it is not in the tree
+	 */
+	public static <K extends Comparable<K>> K search(NodePersistentRedBlackTree<K> root, K data) {
+		NodePersistentRedBlackTree<K> node = root;
+		while (node != null) {
+			int cmp = data.compareTo(node.getData());
+			if (cmp == 0)
+				return node.getData();
+			node = cmp < 0 ? node.getLeft() : node.getRight();
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return toString(false);
+	}
+
+	@Override
+	public String toString(boolean formated) {
+		NodePersistentRedBlackTree<K> current = root;
+		if (current == null) {
+			return null;
+		}
+		ArrayList<NodePersistentRedBlackTree<K>> nodes = new ArrayList<>();
+		nodes.add(current);
+		toArrayNext(current, nodes);
+		StringBuilder builder = new StringBuilder();
+		if (formated) {
+			int max = 4;
+			for (NodePersistentRedBlackTree<K> node : nodes) {
+				max = Math.max(max, node.getData().toString().length());
+			}
+			String format = "%" + max + "s;%" + max + "s;%" + max + "s;%" + max + "s";
+			for (NodePersistentRedBlackTree<K> node : nodes) {
+				String v = node.getData().toString();
+				String c = node.isRed() ? "r" : "b";
+				String l = node.getLeft() != null ? node.getLeft().getData().toString() : "null";
+				String r = node.getRight() != null ? node.getRight().getData().toString() : "null";
+				builder.append(String.format(format, v, c, l, r)).append('\n');
+			}
+		} else {
+			for (NodePersistentRedBlackTree<K> node : nodes) {
+				builder.append(node.toString()).append('\n');
+			}
+		}
+		builder.deleteCharAt(builder.length() - 1);
+		return builder.toString();
+	}
+
+	/*********************
+	 * INSERTION METHODS
+	 *********************/
+
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> ins(NodePersistentRedBlackTree<K> node,
+			K k) {
+		if (node == null)
+			return new NodePersistentRedBlackTree<>(true, null, k, null);
+		int cmp = k.compareTo(node.getData());
+		if (cmp == 0)
+			return node;
+		if (node.isRed()) {
+			if (cmp < 0)
+				return red(ins(node.getLeft(), k), node.getData(), node.getRight());
+			return red(node.getLeft(), node.getData(), ins(node.getRight(), k));
+		}
+		if (cmp < 0)
+			return balance(ins(node.getLeft(), k), node.getData(), node.getRight());
+		return balance(node.getLeft(), node.getData(), ins(node.getRight(), k));
+	}
+
+	/**
+	 * Builds the black node (left, data, right), removing a red-red violation in
+	 * one of its children (or a red node with two red children).
+	 */
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> balance(NodePersistentRedBlackTree<K> left,
+			K data, NodePersistentRedBlackTree<K> right) {
+		if (isRed(left) && isRed(right))
+			return red(blacken(left), data, blacken(right));
+		if (isRed(left)) {
+			NodePersistentRedBlackTree<K> ll = left.getLeft();
+			NodePersistentRedBlackTree<K> lr = left.getRight();
+			if (isRed(ll))
+				return red(blacken(ll), left.getData(), black(lr, data, right));
+			if (isRed(lr))
+				return red(black(ll, left.getData(), lr.getLeft()), lr.getData(), black(lr.getRight(), data, right));
+		}
+		if (isRed(right)) {
+			NodePersistentRedBlackTree<K> rl = right.getLeft();
+			NodePersistentRedBlackTree<K> rr = right.getRight();
+			if (isRed(rr))
+				return red(black(left, data, rl), right.getData(), blacken(rr));
+			if (isRed(rl))
+				return red(black(left, data, rl.getLeft()), rl.getData(), black(rl.getRight(), right.getData(), rr));
+		}
+		return black(left, data, right);
+	}
+
+	/*********************
+	 * DELETION METHODS
+	 *********************/
+
+	/**
+	 * Deletes k, that must be in the subtree of node. If node is black, the black
+	 * height of the result is one less.
+	 */
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> del(NodePersistentRedBlackTree<K> node,
+			K k) {
+		int cmp = k.compareTo(node.getData());
+		NodePersistentRedBlackTree<K> left = node.getLeft();
+		NodePersistentRedBlackTree<K> right = node.getRight();
+		if (cmp < 0) {
+			if (isBlack(left))
+				return balanceLeft(del(left, k), node.getData(), right);
+			return red(del(left, k), node.getData(), right);
+		} else if (cmp > 0) {
+			if (isBlack(right))
+				return balanceRight(left, node.getData(), del(right, k));
+			return red(left, node.getData(), del(right, k));
+		}
+		return append(left, right);
+	}
+
+	/**
+	 * Builds (left, data, right) when left has a black height one less than right.
+	 */
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> balanceLeft(
+			NodePersistentRedBlackTree<K> left, K data, NodePersistentRedBlackTree<K> right) {
+		if (isRed(left))
+			return red(blacken(left), data, right);
+		if (isBlack(right))
+			return balance(left, data, redden(right));
+		// right is red with a black left child
+		NodePersistentRedBlackTree<K> rl = right.getLeft();
+		return red(black(left, data, rl.getLeft()), rl.getData(),
+				balance(rl.getRight(), right.getData(), redden(right.getRight())));
+	}
+
+	/**
+	 * Builds (left, data, right) when right has a black height one less than left.
+	 */
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> balanceRight(
+			NodePersistentRedBlackTree<K> left, K data, NodePersistentRedBlackTree<K> right) {
+		if (isRed(right))
+			return red(left, data, blacken(right));
+		if (isBlack(left))
+			return balance(redden(left), data, right);
+		// left is red with a black right child
+		NodePersistentRedBlackTree<K> lr = left.getRight();
+		return red(balance(redden(left.getLeft()), left.getData(), lr.getLeft()), lr.getData(),
+				black(lr.getRight(), data, right));
+	}
+
+	/**
+	 * Joins two trees of the same black height whose keys are all in order.
+	 */
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> append(NodePersistentRedBlackTree<K> left,
+			NodePersistentRedBlackTree<K> right) {
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		if (left.isRed() && right.isRed()) {
+			NodePersistentRedBlackTree<K> middle = append(left.getRight(), right.getLeft());
+			if (isRed(middle))
+				return red(red(left.getLeft(), left.getData(), middle.getLeft()), middle.getData(),
+						red(middle.getRight(), right.getData(), right.getRight()));
+			return red(left.getLeft(), left.getData(), red(middle, right.getData(), right.getRight()));
+		}
+		if (!left.isRed() && !right.isRed()) {
+			NodePersistentRedBlackTree<K> middle = append(left.getRight(), right.getLeft());
+			if (isRed(middle))
+				return red(black(left.getLeft(), left.getData(), middle.getLeft()), middle.getData(),
+						black(middle.getRight(), right.getData(), right.getRight()));
+			return balanceLeft(left.getLeft(), left.getData(), black(middle, right.getData(), right.getRight()));
+		}
+		if (right.isRed())
+			return red(append(left, right.getLeft()), right.getData(), right.getRight());
+		return red(left.getLeft(), left.getData(), append(left.getRight(), right));
+	}
+
+	/*********************
+	 * NODE HELPERS
+	 *********************/
+
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> red(NodePersistentRedBlackTree<K> left,
+			K data, NodePersistentRedBlackTree<K> right) {
+		return new NodePersistentRedBlackTree<>(true, left, data, right);
+	}
+
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> black(NodePersistentRedBlackTree<K> left,
+			K data, NodePersistentRedBlackTree<K> right) {
+		return new NodePersistentRedBlackTree<>(false, left, data, right);
+	}
+
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> blacken(
+			NodePersistentRedBlackTree<K> node) {
+		if (node == null || !node.isRed())
+			return node;
+		return black(node.getLeft(), node.getData(), node.getRight());
+	}
+
+	/**
+	 * Turns red a black node (sub1 in Kahrs).
+	 */
+	private static <K extends Comparable<K>> NodePersistentRedBlackTree<K> redden(NodePersistentRedBlackTree<K> node) {
+		if (node == null || node.isRed())
+			throw new RuntimeException("Tried to redden a node that is not black");
+		return red(node.getLeft(), node.getData(), node.getRight());
+	}
+
+	private static boolean isRed(NodePersistentRedBlackTree<?> node) {
+		return node != null && node.isRed();
+	}
+
+	private static boolean isBlack(NodePersistentRedBlackTree<?> node) {
+		return node != null && !node.isRed();
+	}
+
+	private static <K extends Comparable<K>> void range(NodePersistentRedBlackTree<K> node, K lo, K hi,
+			Consumer<K> consumer) {
+		while (node != null) {
+			K data = node.getData();
+			if (data.compareTo(lo) < 0) {
+				node = node.getRight();
+			} else if (data.compareTo(hi) > 0) {
+				node = node.getLeft();
+			} else {
+				range(node.getLeft(), lo, hi, consumer);
+				consumer.accept(data);
+				node = node.getRight();
+			}
+		}
+	}
+
+	private static <K extends Comparable<K>> void toArrayNext(NodePersistentRedBlackTree<K> node,
+			ArrayList<NodePersistentRedBlackTree<K>> list) {
+		if (node.getLeft() != null) {
+			list.add(node.getLeft());
+			toArrayNext(node.getLeft(), list);
+		}
+		if (node.getRight() != null) {
+			list.add(node.getRight());
+			toArrayNext(node.getRight(), list);
+		}
+	}
+}
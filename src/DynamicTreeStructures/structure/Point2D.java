@@ -0,0 +1,111 @@
+package DynamicTreeStructures.structure;
+
+/**
+ * Immutable point used as key of a {@link RangeTree2D}. Points are ordered by
+ * their x coordinate, and by their y coordinate when the x coordinates are
+ * equal.
+ *
+ * @param <X> type of the x coordinate
+ * @param <Y> type of the y coordinate
+ */
+public final class Point2D<X extends Comparable<X>, Y extends Comparable<Y>> implements Comparable<Point2D<X, Y>> {
+
+	private final X x;
+	private final Y y;
+	private final ByY<X, Y> byY;
+
+	public Point2D(X x, Y y) {
+		if (x == null || y == null)
+			throw new NullPointerException("Point2D coordinates cannot be null");
+		this.x = x;
+		this.y = y;
+		this.byY = new ByY<>(this);
+	}
+
+	public X getX() {
+		return x;
+	}
+
+	public Y getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the view of this point ordered by y, then by x. It is the key
+	 * stored in the associated structures of the range tree. The same view is
+	 * shared by every associated structure to avoid one allocation per level.
+	 *
+	 * @return the y-ordered view of this point
+	 */
+	ByY<X, Y> byY() {
+		return byY;
+	}
+
+	@Override
+	public int compareTo(Point2D<X, Y> other) {
+		int cmp = x.compareTo(other.x);
+		if (cmp != 0)
+			return cmp;
+		return y.compareTo(other.y);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Point2D))
+			return false;
+		Point2D<?, ?> other = (Point2D<?, ?>) obj;
+		return x.equals(other.x) && y.equals(other.y);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * x.hashCode() + y.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("(%s, %s)", x, y);
+	}
+
+	/**
+	 * A point ordered by its y coordinate, and by its x coordinate when the y
+	 * coordinates are equal.
+	 */
+	static final class ByY<X extends Comparable<X>, Y extends Comparable<Y>> implements Comparable<ByY<X, Y>> {
+
+		final Point2D<X, Y> point;
+
+		private ByY(Point2D<X, Y> point) {
+			this.point = point;
+		}
+
+		@Override
+		public int compareTo(ByY<X, Y> other) {
+			int cmp = point.y.compareTo(other.point.y);
+			if (cmp != 0)
+				return cmp;
+			return point.x.compareTo(other.point.x);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof ByY))
+				return false;
+			return point.equals(((ByY<?, ?>) obj).point);
+		}
+
+		@Override
+		public int hashCode() {
+			return point.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return point.toString();
+		}
+	}
+}
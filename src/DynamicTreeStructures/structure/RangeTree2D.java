@@ -0,0 +1,492 @@
+package DynamicTreeStructures.structure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import DynamicTreeStructures.interfaces.TreeStructure;
+
+/**
+ * Dynamic 2D range tree. The primary tree is a red-black tree on the points
+ * ordered by x (balanced with the same top-down 2-3-4 insertion of
+ * {@link RedBlackTree}), and every node of the primary tree keeps an
+ * associated {@link RedBlackTree} with the points of its subtree ordered by y.
+ *
+ * Orthogonal range queries cost O(log^2 n + k): O(log n) canonical subtrees
+ * are found in the primary tree, and each one is queried by y in its
+ * associated structure. Insertions add the point to the O(log n) associated
+ * structures of the search path; a rotation reuses the associated structure of
+ * the old subtree root and rebuilds the one of the node that goes down in
+ * linear time. Deletions remove the point from the associated structures of
+ * the path and leave a deleted mark in the primary node. When the deleted nodes
+ * outnumber the live ones the whole tree is rebuilt balanced.
+ *
+ * @param <X> type of the x coordinate
+ * @param <Y> type of the y coordinate
+ */
+public class RangeTree2D<X extends Comparable<X>, Y extends Comparable<Y>>
+		implements TreeStructure<NodeRangeTree2D<X, Y>, Point2D<X, Y>> {
+
+	private NodeRangeTree2D<X, Y> root;
+	private int size;
+	private int deleted;
+
+	public RangeTree2D() {
+		this.root = null;
+		this.size = 0;
+		this.deleted = 0;
+	}
+
+	/**
+	 * Get root of the primary tree.
+	 *
+	 * @return root node or null
+	 */
+	@Override
+	public NodeRangeTree2D<X, Y> getRoot() {
+		return root;
+	}
+
+	/**
+	 * Number of points stored in the tree.
+	 *
+	 * @return the number of (non deleted) points
+	 */
+	public int size() {
+		return size;
+	}
+
+	public void insert(X x, Y y) {
+		insert(new Point2D<>(x, y));
+	}
+
+	/**
+	 * Inserts the point in the tree. Inserting a point that is already in the
+	 * tree does nothing.
+	 *
+	 * @param point point to insert
+	 */
+	@Override
+	public void insert(Point2D<X, Y> point) {
+		NodeRangeTree2D<X, Y> node = find(point);
+		if (node != null) {
+			if (node.isDeleted()) {
+				// The node is still in the primary tree: revive it
+				addToPath(point, node);
+				node.setDeleted(false);
+				deleted--;
+				size++;
+			}
+			return;
+		}
+		root = insert(root, point);
+		root.setRed(false);
+		size++;
+	}
+
+	/**
+	 * Search the point in the tree.
+	 *
+	 * @param point point to search
+	 * @return the stored point if the search has been successful, or null
+	 *         otherwise
+	 */
+	@Override
+	public Point2D<X, Y> search(Point2D<X, Y> point) {
+		NodeRangeTree2D<X, Y> node = find(point);
+		if (node == null || node.isDeleted())
+			return null;
+		return node.getPoint();
+	}
+
+	public Point2D<X, Y> delete(X x, Y y) {
+		return delete(new Point2D<>(x, y));
+	}
+
+	/**
+	 * Deletes the point from the tree.
+	 *
+	 * @param point point to delete
+	 * @return the deleted point, or null if it was not in the tree
+	 */
+	@Override
+	public Point2D<X, Y> delete(Point2D<X, Y> point) {
+		NodeRangeTree2D<X, Y> node = find(point);
+		if (node == null || node.isDeleted())
+			return null;
+		Point2D.ByY<X, Y> key = node.getPoint().byY();
+		NodeRangeTree2D<X, Y> current = root;
+		while (current != node) {
+			current.getAssociated().delete(key);
+			current = point.compareTo(current.getPoint()) < 0 ? current.getLeft() : current.getRight();
+		}
+		node.getAssociated().delete(key);
+		node.setDeleted(true);
+		deleted++;
+		size--;
+		if (deleted > size) {
+			rebuild();
+		}
+		return node.getPoint();
+	}
+
+	/**
+	 * Reports all the points (x, y) of the tree with xLow <= x <= xHigh and yLow
+	 * <= y <= yHigh. Runs in O(log^2 n + k), where k is the number of reported
+	 * points. The points are reported grouped by canonical subtree, not in a
+	 * particular global order.
+	 *
+	 * @param xLow     lower bound of x (inclusive)
+	 * @param xHigh    upper bound of x (inclusive)
+	 * @param yLow     lower bound of y (inclusive)
+	 * @param yHigh    upper bound of y (inclusive)
+	 * @param consumer receives every point in the rectangle
+	 */
+	public void query(X xLow, X xHigh, Y yLow, Y yHigh, Consumer<Point2D<X, Y>> consumer) {
+		if (xLow.compareTo(xHigh) > 0 || yLow.compareTo(yHigh) > 0)
+			return;
+		// Find the split node: the first node of the search path with x in range
+		NodeRangeTree2D<X, Y> split = root;
+		while (split != null) {
+			X x = split.getPoint().getX();
+			if (x.compareTo(xLow) < 0) {
+				split = split.getRight();
+			} else if (x.compareTo(xHigh) > 0) {
+				split = split.getLeft();
+			} else {
+				break;
+			}
+		}
+		if (split == null)
+			return;
+		reportNode(split, yLow, yHigh, consumer);
+		// Path to xLow: right subtrees of the nodes in range are canonical
+		NodeRangeTree2D<X, Y> node = split.getLeft();
+		while (node != null) {
+			if (node.getPoint().getX().compareTo(xLow) >= 0) {
+				reportNode(node, yLow, yHigh, consumer);
+				reportSubtree(node.getRight(), yLow, yHigh, consumer);
+				node = node.getLeft();
+			} else {
+				node = node.getRight();
+			}
+		}
+		// Path to xHigh: left subtrees of the nodes in range are canonical
+		node = split.getRight();
+		while (node != null) {
+			if (node.getPoint().getX().compareTo(xHigh) <= 0) {
+				reportNode(node, yLow, yHigh, consumer);
+				reportSubtree(node.getLeft(), yLow, yHigh, consumer);
+				node = node.getRight();
+			} else {
+				node = node.getLeft();
+			}
+		}
+	}
+
+	/**
+	 * Returns all the points in the rectangle [xLow, xHigh] x [yLow, yHigh].
+	 *
+	 * @return list of the points in the rectangle
+	 */
+	public List<Point2D<X, Y>> query(X xLow, X xHigh, Y yLow, Y yHigh) {
+		List<Point2D<X, Y>> result = new ArrayList<>();
+		query(xLow, xHigh, yLow, yHigh, result::add);
+		return result;
+	}
+
+	/**
+	 * Visits all the points of the tree in increasing order (by x, then by y).
+	 *
+	 * @param consumer receives every point of the tree
+	 */
+	public void forEach(Consumer<Point2D<X, Y>> consumer) {
+		forEach(root, consumer);
+	}
+
+	@Override
+	public String toString() {
+		return toString(false);
+	}
+
+	@Override
+	public String toString(boolean formated) {
+		if (root == null) {
+			return null;
+		}
+		StringBuilder builder = new StringBuilder();
+		toString(root, builder);
+		builder.deleteCharAt(builder.length() - 1);
+		return builder.toString();
+	}
+
+	private void toString(NodeRangeTree2D<X, Y> node, StringBuilder builder) {
+		if (node == null)
+			return;
+		builder.append(node.toString()).append('\n');
+		toString(node.getLeft(), builder);
+		toString(node.getRight(), builder);
+	}
+
+	/*********************
+	 * QUERY METHODS
+	 *********************/
+
+	private void reportNode(NodeRangeTree2D<X, Y> node, Y yLow, Y yHigh, Consumer<Point2D<X, Y>> consumer) {
+		if (node.isDeleted())
+			return;
+		Y y = node.getPoint().getY();
+		if (y.compareTo(yLow) >= 0 && y.compareTo(yHigh) <= 0) {
+			consumer.accept(node.getPoint());
+		}
+	}
+
+	private void reportSubtree(NodeRangeTree2D<X, Y> node, Y yLow, Y yHigh, Consumer<Point2D<X, Y>> consumer) {
+		if (node == null)
+			return;
+		reportAssociated(node.getAssociated().getRoot(), yLow, yHigh, consumer);
+	}
+
+	/**
+	 * In-order traversal of an associated structure that only visits the
+	 * subtrees that can contain a y in [yLow, yHigh].
+	 */
+	private void reportAssociated(NodeRedBlackTree<Point2D.ByY<X, Y>> node, Y yLow, Y yHigh,
+			Consumer<Point2D<X, Y>> consumer) {
+		while (node != null) {
+			Point2D<X, Y> point = node.getData().point;
+			int cmpLow = point.getY().compareTo(yLow);
+			if (cmpLow < 0) {
+				node = node.getRight();
+				continue;
+			}
+			int cmpHigh = point.getY().compareTo(yHigh);
+			if (cmpHigh > 0) {
+				node = node.getLeft();
+				continue;
+			}
+			reportAssociated(node.getLeft(), yLow, yHigh, consumer);
+			consumer.accept(point);
+			node = node.getRight();
+		}
+	}
+
+	/*********************
+	 * INSERTION METHODS
+	 *********************/
+
+	private NodeRangeTree2D<X, Y> find(Point2D<X, Y> point) {
+		NodeRangeTree2D<X, Y> node = root;
+		while (node != null) {
+			int cmp = point.compareTo(node.getPoint());
+			if (cmp == 0)
+				return node;
+			node = cmp < 0 ? node.getLeft() : node.getRight();
+		}
+		return null;
+	}
+
+	private void addToPath(Point2D<X, Y> point, NodeRangeTree2D<X, Y> target) {
+		NodeRangeTree2D<X, Y> node = root;
+		while (node != target) {
+			node.getAssociated().insert(point.byY());
+			node = point.compareTo(node.getPoint()) < 0 ? node.getLeft() : node.getRight();
+		}
+		target.getAssociated().insert(point.byY());
+	}
+
+	/**
+	 * Same top-down insertion as {@link RedBlackTree}. The point is added to the
+	 * associated structure of every node on the way down, so the associated
+	 * structures are up to date when the rotations are done on the way up. The
+	 * point must not be in the tree.
+	 */
+	private NodeRangeTree2D<X, Y> insert(NodeRangeTree2D<X, Y> node, Point2D<X, Y> point) {
+		if (node == null) {
+			RedBlackTree<Point2D.ByY<X, Y>> associated = new RedBlackTree<>(point.byY());
+			return new NodeRangeTree2D<>(point, true, associated);
+		}
+		if (isRed(node.getLeft()) && isRed(node.getRight())) {
+			// Split the 4-node on the way down
+			node.getLeft().setRed(false);
+			node.getRight().setRed(false);
+			node.setRed(true);
+		}
+		node.getAssociated().insert(point.byY());
+		if (point.compareTo(node.getPoint()) < 0) {
+			node.setLeft(insert(node.getLeft(), point));
+		} else {
+			node.setRight(insert(node.getRight(), point));
+		}
+		NodeRangeTree2D<X, Y> left = node.getLeft();
+		NodeRangeTree2D<X, Y> right = node.getRight();
+		if (isRed(left)) {
+			if (isRed(left.getLeft())) {
+				node = centerLeft4Node(node);
+			} else if (isRed(left.getRight())) {
+				node.setLeft(rotateLeft(left));
+				node = centerLeft4Node(node);
+			}
+		} else if (isRed(right)) {
+			if (isRed(right.getLeft())) {
+				node.setRight(rotateRight(right));
+				node = centerRight4Node(node);
+			} else if (isRed(right.getRight())) {
+				node = centerRight4Node(node);
+			}
+		}
+		return node;
+	}
+
+	private boolean isRed(NodeRangeTree2D<X, Y> node) {
+		return node != null && node.isRed();
+	}
+
+	private NodeRangeTree2D<X, Y> centerLeft4Node(NodeRangeTree2D<X, Y> root) {
+		root = rotateRight(root);
+		root.setRed(false);
+		root.getRight().setRed(true);
+		return root;
+	}
+
+	private NodeRangeTree2D<X, Y> centerRight4Node(NodeRangeTree2D<X, Y> root) {
+		root = rotateLeft(root);
+		root.setRed(false);
+		root.getLeft().setRed(true);
+		return root;
+	}
+
+	/**
+	 * Makes the left node the root of oldRoot. The new root takes the associated
+	 * structure of oldRoot (same subtree), and the one of oldRoot is rebuilt.
+	 * Does not change colors.
+	 */
+	private NodeRangeTree2D<X, Y> rotateRight(NodeRangeTree2D<X, Y> oldRoot) {
+		NodeRangeTree2D<X, Y> newRoot = oldRoot.getLeft();
+		oldRoot.setLeft(newRoot.getRight());
+		newRoot.setRight(oldRoot);
+		newRoot.setAssociated(oldRoot.getAssociated());
+		oldRoot.setAssociated(rebuildAssociated(oldRoot));
+		return newRoot;
+	}
+
+	/**
+	 * Makes the right node the root of oldRoot. The new root takes the
+	 * associated structure of oldRoot (same subtree), and the one of oldRoot is
+	 * rebuilt. Does not change colors.
+	 */
+	private NodeRangeTree2D<X, Y> rotateLeft(NodeRangeTree2D<X, Y> oldRoot) {
+		NodeRangeTree2D<X, Y> newRoot = oldRoot.getRight();
+		oldRoot.setRight(newRoot.getLeft());
+		newRoot.setLeft(oldRoot);
+		newRoot.setAssociated(oldRoot.getAssociated());
+		oldRoot.setAssociated(rebuildAssociated(oldRoot));
+		return newRoot;
+	}
+
+	/*********************
+	 * REBUILDING METHODS
+	 *********************/
+
+	/**
+	 * Builds the associated structure of node from the associated structures of
+	 * its children in time linear in the size of the subtree.
+	 */
+	private RedBlackTree<Point2D.ByY<X, Y>> rebuildAssociated(NodeRangeTree2D<X, Y> node) {
+		List<Point2D.ByY<X, Y>> leftKeys = new ArrayList<>();
+		List<Point2D.ByY<X, Y>> rightKeys = new ArrayList<>();
+		if (node.getLeft() != null)
+			inOrder(node.getLeft().getAssociated().getRoot(), leftKeys);
+		if (node.getRight() != null)
+			inOrder(node.getRight().getAssociated().getRoot(), rightKeys);
+		List<Point2D.ByY<X, Y>> keys = merge(leftKeys, rightKeys);
+		if (!node.isDeleted()) {
+			Point2D.ByY<X, Y> own = node.getPoint().byY();
+			int position = 0;
+			while (position < keys.size() && keys.get(position).compareTo(own) < 0) {
+				position++;
+			}
+			keys.add(position, own);
+		}
+		return RedBlackTree.fromSortedDistinct(keys);
+	}
+
+	/**
+	 * Rebuilds the whole tree balanced, dropping the deleted nodes.
+	 */
+	private void rebuild() {
+		List<Point2D<X, Y>> points = new ArrayList<>(size);
+		forEach(root, points::add);
+		deleted = 0;
+		if (points.isEmpty()) {
+			root = null;
+			return;
+		}
+		int height = 31 - Integer.numberOfLeadingZeros(points.size());
+		boolean complete = points.size() == (1 << (height + 1)) - 1;
+		root = build(points, 0, points.size(), 0, complete ? -1 : height, new ArrayList<>());
+	}
+
+	/**
+	 * Builds a balanced primary tree on points[lo, hi). Nodes at redDepth are
+	 * colored red (the last, incomplete level). The points of the subtree,
+	 * ordered by y, are added to byY.
+	 */
+	private NodeRangeTree2D<X, Y> build(List<Point2D<X, Y>> points, int lo, int hi, int depth, int redDepth,
+			List<Point2D.ByY<X, Y>> byY) {
+		if (lo >= hi)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		List<Point2D.ByY<X, Y>> leftKeys = new ArrayList<>();
+		List<Point2D.ByY<X, Y>> rightKeys = new ArrayList<>();
+		NodeRangeTree2D<X, Y> left = build(points, lo, mid, depth + 1, redDepth, leftKeys);
+		NodeRangeTree2D<X, Y> right = build(points, mid + 1, hi, depth + 1, redDepth, rightKeys);
+		List<Point2D.ByY<X, Y>> keys = merge(leftKeys, rightKeys);
+		Point2D.ByY<X, Y> own = points.get(mid).byY();
+		int position = 0;
+		while (position < keys.size() && keys.get(position).compareTo(own) < 0) {
+			position++;
+		}
+		keys.add(position, own);
+		NodeRangeTree2D<X, Y> node = new NodeRangeTree2D<>(points.get(mid), depth == redDepth, RedBlackTree.fromSortedDistinct(keys));
+		node.setLeft(left);
+		node.setRight(right);
+		byY.addAll(keys);
+		return node;
+	}
+
+	private void forEach(NodeRangeTree2D<X, Y> node, Consumer<Point2D<X, Y>> consumer) {
+		if (node == null)
+			return;
+		forEach(node.getLeft(), consumer);
+		if (!node.isDeleted())
+			consumer.accept(node.getPoint());
+		forEach(node.getRight(), consumer);
+	}
+
+	private static <K extends Comparable<K>> void inOrder(NodeRedBlackTree<K> node, List<K> keys) {
+		if (node == null)
+			return;
+		inOrder(node.getLeft(), keys);
+		keys.add(node.getData());
+		inOrder(node.getRight(), keys);
+	}
+
+	private static <K extends Comparable<K>> List<K> merge(List<K> a, List<K> b) {
+		List<K> merged = new ArrayList<>(a.size() + b.size() + 1);
+		int i = 0;
+		int j = 0;
+		while (i < a.size() && j < b.size()) {
+			if (a.get(i).compareTo(b.get(j)) <= 0) {
+				merged.add(a.get(i++));
+			} else {
+				merged.add(b.get(j++));
+			}
+		}
+		while (i < a.size())
+			merged.add(a.get(i++));
+		while (j < b.size())
+			merged.add(b.get(j++));
+		return merged;
+	}
+}
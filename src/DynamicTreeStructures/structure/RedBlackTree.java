@@ -1,11 +1,24 @@
 package DynamicTreeStructures.structure;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import DynamicTreeStructures.instrumentation.TreeCounters;
+import DynamicTreeStructures.instrumentation.TreeOperationEvent;
 import DynamicTreeStructures.interfaces.TreeStructure;
 
 /**
@@ -19,6 +32,59 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 
 	public String createdWith;
 
+	/**
+	 * Value removed by the deletion in progress. It replaces a result wrapper, so
+	 * deletions don't allocate.
+	 */
+	private K removed;
+
+	/**
+	 * Ancestor buffer of the iterative insertion. It is allocated by the first
+	 * insertion, so that the scratch trees of split and join and the associated
+	 * trees of a range tree that are never inserted into don't pay for it. It
+	 * starts small, since most of those trees are, and doubles for deeper trees.
+	 */
+	private NodeRedBlackTree<K>[] path;
+
+	/**
+	 * Second node returned by extractLeft234 and extractRight234.
+	 */
+	private NodeRedBlackTree<K> extracted;
+
+	/**
+	 * Results of split, in the same way.
+	 */
+	private NodeRedBlackTree<K> splitLeft;
+	private NodeRedBlackTree<K> splitRight;
+	private boolean splitFound;
+	private int splitLeftHeight;
+	private int splitRightHeight;
+
+	/**
+	 * Black height of the tree returned by the last join-based operation.
+	 */
+	private int height;
+
+	/** Structural counters, or null if {@link TreeCounters#ENABLED} is false */
+	private final TreeCounters counters = TreeCounters.create();
+
+	/**
+	 * Rotations done by the operation being recorded by a
+	 * {@link TreeOperationEvent}, or -1 if none is being recorded.
+	 */
+	private int rotated = -1;
+
+	/**
+	 * Number of updates of the tree. The saved path of {@link #searchNear} is
+	 * checked again when it changes.
+	 */
+	private int modCount;
+
+	/**
+	 * Saved path of {@link #searchNear}, or null until its first call.
+	 */
+	private SearchPath<K> searchPath;
+
 	public RedBlackTree() {
 		this.root = null;
 	}
@@ -42,6 +108,15 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		return root;
 	}
 
+	/**
+	 * Structural counters of the tree.
+	 *
+	 * @return the counters, or null if {@link TreeCounters#ENABLED} is false
+	 */
+	public TreeCounters getCounters() {
+		return counters;
+	}
+
 	/**
 	 * Insertion of value in defined red black tree. Insertion based on the book of
 	 * algorithms of Sedgewick and the lecture slides of Algorithms and Data
@@ -49,10 +124,111 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	 *
 	 * //SECOND VERSION because we split on the way down.
 	 *
+	 * Iterative: the path is kept in an ancestor buffer and the 4-nodes are
+	 * balanced on the way back up, only where a split or the new node could have
+	 * made two reds meet. It builds the same tree as {@link #insertRecursive}.
+	 *
 	 * @param k value to insert
 	 */
 	@Override
 	public void insert(K k) {
+		if (TreeCounters.ENABLED)
+			counters.countOperation();
+		modCount++;
+		TreeOperationEvent event = TreeOperationEvent.start();
+		if (event != null)
+			rotated = 0;
+		if (root == null) {
+			root = new NodeRedBlackTree<>(k);
+			root.setRed(false);
+			if (event != null)
+				commit(event, "insert", 0);
+			return;
+		}
+		NodeRedBlackTree<K>[] path = this.path;
+		if (path == null)
+			path = this.path = newNodeArray(16);
+		int depth = 0;
+		// Nodes compared on the way down
+		int length;
+		// Highest depth where a node became red (split or new node)
+		int dirty = Integer.MAX_VALUE;
+		NodeRedBlackTree<K> node = root;
+		while (true) {
+			if (depth + 1 == path.length)
+				path = this.path = Arrays.copyOf(path, 2 * path.length);
+			path[depth] = node;
+			NodeRedBlackTree<K> left = node.getLeft();
+			NodeRedBlackTree<K> right = node.getRight();
+			if (left != null && right != null && left.isRed() && right.isRed()) {
+				// Split the 4-node on the way down
+				left.setRed(false);
+				right.setRed(false);
+				node.setRed(true);
+				if (TreeCounters.ENABLED)
+					counters.countSplit();
+				if (dirty == Integer.MAX_VALUE)
+					dirty = depth;
+			}
+			int cmp = compare(k, node.getData());
+			if (cmp == 0) {
+				// Replacement: undo the size increments of the ancestors
+				length = depth + 1;
+				node.setData(k);
+				for (int i = 0; i < depth; i++) {
+					path[i].addSize(-1);
+				}
+				break;
+			}
+			// Sizes are updated on the way down, so the rotations on the way up
+			// find the children with their final size
+			node.addSize(1);
+			NodeRedBlackTree<K> next = cmp < 0 ? left : right;
+			if (next == null) {
+				next = new NodeRedBlackTree<>(k);
+				if (cmp < 0) {
+					node.setLeft(next);
+				} else {
+					node.setRight(next);
+				}
+				path[++depth] = next;
+				length = depth;
+				dirty = Math.min(dirty, depth);
+				break;
+			}
+			node = next;
+			depth++;
+		}
+		// A red node at depth d can only be balanced at depth d - 2. Above that
+		// nothing changes.
+		int top = Math.max(0, dirty - 2);
+		for (int i = depth - 1; i >= top; i--) {
+			NodeRedBlackTree<K> old = path[i];
+			NodeRedBlackTree<K> balanced = balance4Node(old);
+			if (balanced != old) {
+				if (i == 0) {
+					root = balanced;
+				} else if (path[i - 1].getLeft() == old) {
+					path[i - 1].setLeft(balanced);
+				} else {
+					path[i - 1].setRight(balanced);
+				}
+			}
+		}
+		Arrays.fill(path, 0, depth + 1, null);
+		root.setRed(false);
+		if (event != null)
+			commit(event, "insert", length);
+	}
+
+	/**
+	 * Recursive version of {@link #insert(Comparable)}. Kept as the reference the
+	 * iterative insertion must agree with.
+	 *
+	 * @param k value to insert
+	 */
+	void insertRecursive(K k) {
+		modCount++;
 		root = insert(root, k);
 		root.setRed(false);
 	}
@@ -66,50 +242,225 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	 */
 	@Override
 	public K search(K data) {
+		if (TreeCounters.ENABLED)
+			counters.countOperation();
+		TreeOperationEvent event = TreeOperationEvent.start();
+		int depth = 0;
+		K result = null;
 		NodeRedBlackTree<K> node = root;
 		while (node != null) {
 			K nodeData = node.getData();
+			depth++;
+			if (TreeCounters.ENABLED)
+				counters.countComparison();
 			if (nodeData.equals(data)) {
-				return nodeData;
+				result = nodeData;
+				break;
 			}
-			if (nodeData.compareTo(data) < 0) {
+			if (compare(nodeData, data) < 0) {
 				node = node.getRight();
 			} else {
 				node = node.getLeft();
 			}
 		}
-		return null;
+		if (event != null)
+			commit(event, "search", depth);
+		return result;
+	}
+
+	/**
+	 * Same as {@link #search(Comparable)}, but starting from the path of the
+	 * previous call instead of the root. It climbs the saved path only until the
+	 * subtree that must hold data, and descends from there.
+	 *
+	 * Nearby keys whose lowest common ancestor is deep in the tree are found in
+	 * fewer steps than from the root, and a sweep over the keys in order costs
+	 * O(1) amortized per search. Without parent pointers or level links this is
+	 * not a finger search: two neighbors on either side of a node near the root
+	 * still cost O(log n). After an update of the tree the saved path is checked
+	 * from the root and kept down to the first node that moved.
+	 *
+	 * @param data value to search
+	 * @return the data if the search has been successful, or null otherwise
+	 */
+	public K searchNear(K data) {
+		if (TreeCounters.ENABLED)
+			counters.countOperation();
+		TreeOperationEvent event = TreeOperationEvent.start();
+		SearchPath<K> saved = searchPath;
+		if (saved == null)
+			saved = searchPath = new SearchPath<>();
+		if (saved.modCount != modCount)
+			revalidate(saved);
+		ArrayList<NodeRedBlackTree<K>> nodes = saved.nodes;
+		// Climb to the deepest node whose subtree covers data
+		int depth = nodes.size() - 1;
+		while (depth > 0 && !inside(data, saved.low.get(depth), saved.high.get(depth))) {
+			depth--;
+		}
+		NodeRedBlackTree<K> node = root;
+		K low = null;
+		K high = null;
+		if (depth < 0) {
+			depth = 0;
+		} else {
+			node = nodes.get(depth);
+			low = saved.low.get(depth);
+			high = saved.high.get(depth);
+		}
+		// The descent replaces the path from there down
+		saved.truncate(depth);
+		K result = null;
+		// Nodes compared on the way down from the start node
+		int length = 0;
+		while (node != null) {
+			length++;
+			saved.add(node, low, high);
+			int cmp = compare(data, node.getData());
+			if (cmp == 0) {
+				result = node.getData();
+				break;
+			}
+			if (cmp < 0) {
+				high = node.getData();
+				node = node.getLeft();
+			} else {
+				low = node.getData();
+				node = node.getRight();
+			}
+		}
+		if (event != null)
+			commit(event, "searchNear", length);
+		return result;
+	}
+
+	/**
+	 * Keeps the saved path from the root down to the first node that is no longer
+	 * a child of the node above it, and recomputes the bounds from the current
+	 * keys, which a deletion may have moved. The nodes below were rotated or
+	 * deleted, and are released.
+	 */
+	private void revalidate(SearchPath<K> saved) {
+		ArrayList<NodeRedBlackTree<K>> nodes = saved.nodes;
+		int valid = 0;
+		if (!nodes.isEmpty() && nodes.get(0) == root) {
+			K low = null;
+			K high = null;
+			saved.low.set(0, null);
+			saved.high.set(0, null);
+			for (valid = 1; valid < nodes.size(); valid++) {
+				NodeRedBlackTree<K> parent = nodes.get(valid - 1);
+				NodeRedBlackTree<K> node = nodes.get(valid);
+				if (parent.getLeft() == node) {
+					high = parent.getData();
+				} else if (parent.getRight() == node) {
+					low = parent.getData();
+				} else {
+					break;
+				}
+				saved.low.set(valid, low);
+				saved.high.set(valid, high);
+			}
+		}
+		saved.truncate(valid);
+		saved.modCount = modCount;
+	}
+
+	/**
+	 * Whether low < data < high, where a null bound is unbounded.
+	 */
+	private boolean inside(K data, K low, K high) {
+		return (low == null || compare(data, low) > 0) && (high == null || compare(data, high) < 0);
 	}
 	
 	/**
-	 * Not implemented already
+	 * Deletes the value from the tree. Allocates nothing: the deleted value is
+	 * passed back through the field removed.
 	 *
 	 * @return The element K if it is in the RedBlackTree, or null if it is not
 	 */
 	@Override
 	public K delete(K k) {
-		Wrapper<K> result = new Wrapper<>();
-		root = delete2Rec234Launch(root, k, result);
-		//result.item = null;
-		return result.item;
+		if (TreeCounters.ENABLED)
+			counters.countOperation();
+		TreeOperationEvent event = TreeOperationEvent.start();
+		int length = 0;
+		if (event != null) {
+			rotated = 0;
+			length = deletionPathLength(k);
+		}
+		modCount++;
+		removed = null;
+		root = delete2Rec234Launch(root, k);
+		if (event != null)
+			commit(event, "delete", length);
+		return takeRemoved();
 	}
 
-	class Wrapper<T> {
-		T item = null;
-
-		Wrapper() {
+	/**
+	 * Deletes the minimum value of the tree.
+	 *
+	 * @return the deleted value, or null if the tree is empty
+	 */
+	public K deleteMin() {
+		if (TreeCounters.ENABLED)
+			counters.countOperation();
+		TreeOperationEvent event = TreeOperationEvent.start();
+		int length = 0;
+		if (event != null) {
+			rotated = 0;
+			for (NodeRedBlackTree<K> node = root; node != null; node = node.getLeft()) {
+				length++;
+			}
 		}
+		modCount++;
+		removed = null;
+		root = deleteMinRec234Launch(root);
+		if (event != null)
+			commit(event, "deleteMin", length);
+		return takeRemoved();
+	}
 
-		Wrapper(T item) {
-			this.item = item;
+	/**
+	 * Nodes on the path from the root to k and, if k has a right subtree, on to
+	 * its successor, which replaces it. Measured before deleting, for the
+	 * TreeOperationEvent.
+	 */
+	private int deletionPathLength(K k) {
+		int length = 0;
+		NodeRedBlackTree<K> node = root;
+		while (node != null) {
+			length++;
+			int cmp = k.compareTo(node.getData());
+			if (cmp == 0) {
+				for (node = node.getRight(); node != null; node = node.getLeft()) {
+					length++;
+				}
+				break;
+			}
+			node = cmp < 0 ? node.getLeft() : node.getRight();
 		}
+		return length;
 	}
-	
-	public K deleteMin() {
-		Wrapper<K> result = new Wrapper<>();
-		// root = deleteMin(root, result); //old
-		root = deleteMinRec234Launch(root, result);
-		return result.item;
+
+	/**
+	 * Commits the event of an operation, with the rotations it did, and stops
+	 * counting them.
+	 */
+	private void commit(TreeOperationEvent event, String operation, int depth) {
+		event.commit(getClass(), operation, depth, Math.max(rotated, 0));
+		rotated = -1;
+	}
+
+	/**
+	 * Returns the value left by the last deletion and clears the fields used by
+	 * it, so that the tree does not retain deleted values.
+	 */
+	private K takeRemoved() {
+		K result = removed;
+		removed = null;
+		extracted = null;
+		return result;
 	}
 
 	/**
@@ -213,36 +564,125 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	}
 
 	/**
-	 * Returns a RedBlackTree<Integer> made from the toString() unformatted
-	 * description of a RBTree.
+	 * Builds a red black tree from keys sorted in increasing order in O(n). The
+	 * tree is perfectly balanced, and only the nodes of the last level, if it is
+	 * incomplete, are red. Equal consecutive keys are kept once.
+	 *
+	 * @param keys the keys, sorted
+	 * @return the tree with the keys
+	 * @throws IllegalArgumentException if the keys are not sorted
+	 */
+	public static <K extends Comparable<K>> RedBlackTree<K> fromSorted(K[] keys) {
+		int duplicates = 0;
+		for (int i = 1; i < keys.length; i++) {
+			int cmp = keys[i - 1].compareTo(keys[i]);
+			if (cmp > 0)
+				throw new IllegalArgumentException("Keys not sorted at index " + i);
+			if (cmp == 0)
+				duplicates++;
+		}
+		if (duplicates == 0)
+			return fromSortedDistinct(Arrays.asList(keys));
+		return fromSorted(Arrays.asList(keys).iterator());
+	}
+
+	/**
+	 * Builds a red black tree from keys sorted in increasing order in O(n), as
+	 * {@link #fromSorted(Comparable[])}. The keys are buffered to know their
+	 * number before building.
+	 *
+	 * @param keys the keys, sorted
+	 * @return the tree with the keys
+	 * @throws IllegalArgumentException if the keys are not sorted
+	 */
+	public static <K extends Comparable<K>> RedBlackTree<K> fromSorted(Iterator<K> keys) {
+		ArrayList<K> distinct = new ArrayList<>();
+		K last = null;
+		while (keys.hasNext()) {
+			K key = keys.next();
+			if (last != null) {
+				int cmp = last.compareTo(key);
+				if (cmp > 0)
+					throw new IllegalArgumentException("Keys not sorted at index " + distinct.size());
+				if (cmp == 0)
+					continue;
+			}
+			distinct.add(key);
+			last = key;
+		}
+		return fromSortedDistinct(distinct);
+	}
+
+	/**
+	 * Builds the tree of keys, that must be sorted and distinct. Not checked.
+	 */
+	static <K extends Comparable<K>> RedBlackTree<K> fromSortedDistinct(List<K> keys) {
+		if (keys.isEmpty())
+			return new RedBlackTree<>();
+		int height = 31 - Integer.numberOfLeadingZeros(keys.size());
+		boolean complete = keys.size() == (1 << (height + 1)) - 1;
+		return new RedBlackTree<K>(buildBalanced(keys, 0, keys.size(), 0, complete ? -1 : height));
+	}
+
+	private static <K extends Comparable<K>> NodeRedBlackTree<K> buildBalanced(List<K> keys, int lo, int hi,
+			int depth, int redDepth) {
+		if (lo >= hi)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		NodeRedBlackTree<K> node = new NodeRedBlackTree<>(keys.get(mid), depth == redDepth);
+		node.setLeft(buildBalanced(keys, lo, mid, depth + 1, redDepth));
+		node.setRight(buildBalanced(keys, mid + 1, hi, depth + 1, redDepth));
+		node.updateSize();
+		return node;
+	}
+
+	/**
+	 * Returns a RedBlackTree<Integer> made from the toString() description of a
+	 * RBTree.
 	 * 
 	 * @param s the string
 	 * @return The corresponding RedBlackTree<K>
 	 */
 	public static RedBlackTree<Integer> fromString(String s) {
-		String[] lines = s.split("\\R+");
-		Iterator<String> linesIt = Arrays.asList(lines).iterator();
-
-		RedBlackTree<Integer> rbt = new RedBlackTree<>();
-		if (linesIt.hasNext()) {
-			NodeRedBlackTree<Integer> root = parseRecursive(linesIt);
-			rbt.root = root;
+		try {
+			return fromReader(new StringReader(s), RedBlackTree::parseInt);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		return rbt;
 	}
 
-	private static NodeRedBlackTree<Integer> parseRecursive(Iterator<String> linesIt) {
-		String[] parts = linesIt.next().strip().split(";");
-		NodeRedBlackTree<Integer> node = new NodeRedBlackTree<Integer>(Integer.parseInt(parts[0]));
-		String color = parts[1].strip();
-		node.setRed(color.equals("red") || color.equals("r"));
-		if (!parts[2].strip().equals("null")) {
-			node.setLeft(parseRecursive(linesIt));
-		}
-		if (!parts[3].strip().equals("null")) {
-			node.setRight(parseRecursive(linesIt));
-		}
-		return node;
+	/**
+	 * Reads a tree in the toString() format from reader, until its end. The input
+	 * is streamed and the tree rebuilt without recursion, so it can be larger
+	 * than a String and arbitrarily deep. An input that is not an ordered red
+	 * black tree is rebuilt balanced from its keys.
+	 * 
+	 * @param reader    the input
+	 * @param keyParser parses a key. The sequence is reused afterwards, so it
+	 *                  must not be kept.
+	 * @return The corresponding RedBlackTree<K>
+	 * @throws IOException              if the input cannot be read
+	 * @throws IllegalArgumentException if the input is not a tree
+	 */
+	public static <K extends Comparable<K>> RedBlackTree<K> fromReader(Reader reader,
+			Function<CharSequence, K> keyParser) throws IOException {
+		return new RedBlackTree<>(new RedBlackTreeParser<>(keyParser).parse(reader));
+	}
+
+	/**
+	 * Reads a tree in the toString() format from a UTF-8 stream, as
+	 * {@link #fromReader(Reader, Function)}.
+	 */
+	public static <K extends Comparable<K>> RedBlackTree<K> fromStream(InputStream in,
+			Function<CharSequence, K> keyParser) throws IOException {
+		return fromReader(new InputStreamReader(in, StandardCharsets.UTF_8), keyParser);
+	}
+
+	/**
+	 * Integer key parser that doesn't create a String.
+	 */
+	public static Integer parseInt(CharSequence s) {
+		return Integer.parseInt(s, 0, s.length(), 10);
 	}
 
 	/**
@@ -266,7 +706,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			return null;
 		}
 		// General case
-		int cmp = node.getData().compareTo(data);
+		int cmp = compare(node.getData(), data);
 		if (cmp <= 0) {
 			// This node is smaller than or equal to data. It cannot be its successor
 			return successor(node.getRight(), data);
@@ -285,6 +725,600 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		}
 	}
 
+	/**
+	 * Number of keys in the tree, in O(1).
+	 * 
+	 * @return the number of keys
+	 */
+	public int size() {
+		return root == null ? 0 : root.getSize();
+	}
+
+	/**
+	 * Returns the number of keys in the tree strictly smaller than data. If data
+	 * is in the tree, this is its (0-based) position in sorted order.
+	 * 
+	 * @param data the key
+	 * @return the number of keys smaller than data
+	 */
+	public int rank(K data) {
+		return countSmaller(data, false);
+	}
+
+	/**
+	 * Returns the key at the given (0-based) position in sorted order.
+	 * 
+	 * @param index position of the key, between 0 and size() - 1
+	 * @return the index-th smallest key
+	 */
+	public K select(int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+		NodeRedBlackTree<K> node = root;
+		while (true) {
+			int leftSize = size(node.getLeft());
+			if (index < leftSize) {
+				node = node.getLeft();
+			} else if (index > leftSize) {
+				index -= leftSize + 1;
+				node = node.getRight();
+			} else {
+				return node.getData();
+			}
+		}
+	}
+
+	/**
+	 * Visits in order the keys k of the tree with lo <= k <= hi. Only the subtrees
+	 * that can contain keys in the range are visited, so the cost is O(log n + k)
+	 * where k is the number of visited keys.
+	 * 
+	 * @param lo       lower bound (inclusive)
+	 * @param hi       upper bound (inclusive)
+	 * @param consumer receives the keys in increasing order
+	 */
+	public void range(K lo, K hi, Consumer<K> consumer) {
+		if (lo.compareTo(hi) > 0)
+			return;
+		range(root, lo, hi, consumer);
+	}
+
+	/**
+	 * Returns the number of keys k of the tree with lo <= k <= hi in O(log n),
+	 * using the subtree sizes.
+	 * 
+	 * @param lo lower bound (inclusive)
+	 * @param hi upper bound (inclusive)
+	 * @return the number of keys in the range
+	 */
+	public int countRange(K lo, K hi) {
+		if (lo.compareTo(hi) > 0)
+			return 0;
+		return countSmaller(hi, true) - countSmaller(lo, false);
+	}
+
+	/**
+	 * Joins left, key and right into one tree in O(log n), where every key of
+	 * left is smaller than key and every key of right is greater. The nodes of
+	 * left and right are moved to the result, and both trees are left empty.
+	 *
+	 * @param left  tree with the smaller keys
+	 * @param key   the middle key
+	 * @param right tree with the greater keys
+	 * @return the joined tree
+	 */
+	public static <K extends Comparable<K>> RedBlackTree<K> join(RedBlackTree<K> left, K key, RedBlackTree<K> right) {
+		if ((left.root != null && left.max(left.root).compareTo(key) >= 0)
+				|| (right.root != null && right.min(right.root).compareTo(key) <= 0))
+			throw new IllegalArgumentException("The keys of the trees are not in order around " + key);
+		RedBlackTree<K> result = new RedBlackTree<>();
+		result.root = blacken(result.join(left.root, blackHeight(left.root), new NodeRedBlackTree<>(key), right.root,
+				blackHeight(right.root)));
+		left.root = null;
+		right.root = null;
+		left.modCount++;
+		right.modCount++;
+		return result;
+	}
+
+	/**
+	 * Splits the tree by key in O(log n). This tree keeps the keys smaller than
+	 * key, and the greater ones are moved to the returned tree. key itself is
+	 * removed from the tree.
+	 *
+	 * @param key the key to split by
+	 * @return tree with the keys greater than key
+	 */
+	public RedBlackTree<K> split(K key) {
+		modCount++;
+		split(root, blackHeight(root), key);
+		root = blacken(splitLeft);
+		RedBlackTree<K> greater = new RedBlackTree<>();
+		greater.root = blacken(splitRight);
+		splitLeft = null;
+		splitRight = null;
+		return greater;
+	}
+
+	/**
+	 * Adds to this tree the keys of other, in O(m log(n/m + 1)) for trees of sizes
+	 * m <= n. The nodes of other are reused, and other is left empty.
+	 *
+	 * @param other the tree to add
+	 */
+	public void union(RedBlackTree<K> other) {
+		root = blacken(union(root, blackHeight(root), other.root, blackHeight(other.root)));
+		other.root = null;
+		modCount++;
+		other.modCount++;
+	}
+
+	/**
+	 * Keeps in this tree only the keys that are in other, in O(m log(n/m + 1)).
+	 * other is left empty.
+	 *
+	 * @param other the tree to intersect with
+	 */
+	public void intersection(RedBlackTree<K> other) {
+		root = blacken(intersection(root, blackHeight(root), other.root, blackHeight(other.root)));
+		other.root = null;
+		modCount++;
+		other.modCount++;
+	}
+
+	/**
+	 * Removes from this tree the keys that are in other, in O(m log(n/m + 1)).
+	 * other is left empty.
+	 *
+	 * @param other the tree with the keys to remove
+	 */
+	public void difference(RedBlackTree<K> other) {
+		root = blacken(difference(root, blackHeight(root), other.root, blackHeight(other.root)));
+		other.root = null;
+		modCount++;
+		other.modCount++;
+	}
+
+	/**
+	 * Same as {@link #union(RedBlackTree)}, recursing on both sides in parallel
+	 * in the common ForkJoinPool.
+	 *
+	 * @param other the tree to add
+	 */
+	public void parallelUnion(RedBlackTree<K> other) {
+		parallel(SetOperation.UNION, other);
+	}
+
+	/**
+	 * Same as {@link #intersection(RedBlackTree)}, recursing on both sides in
+	 * parallel in the common ForkJoinPool.
+	 *
+	 * @param other the tree to intersect with
+	 */
+	public void parallelIntersection(RedBlackTree<K> other) {
+		parallel(SetOperation.INTERSECTION, other);
+	}
+
+	/**
+	 * Same as {@link #difference(RedBlackTree)}, recursing on both sides in
+	 * parallel in the common ForkJoinPool.
+	 *
+	 * @param other the tree with the keys to remove
+	 */
+	public void parallelDifference(RedBlackTree<K> other) {
+		parallel(SetOperation.DIFFERENCE, other);
+	}
+
+	private void range(NodeRedBlackTree<K> node, K lo, K hi, Consumer<K> consumer) {
+		while (node != null) {
+			K data = node.getData();
+			if (compare(data, lo) < 0) {
+				// This node and its left subtree are out of range
+				node = node.getRight();
+			} else if (compare(data, hi) > 0) {
+				// This node and its right subtree are out of range
+				node = node.getLeft();
+			} else {
+				range(node.getLeft(), lo, hi, consumer);
+				consumer.accept(data);
+				node = node.getRight();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of keys smaller than data (or equal, if inclusive).
+	 */
+	private int countSmaller(K data, boolean inclusive) {
+		int count = 0;
+		NodeRedBlackTree<K> node = root;
+		while (node != null) {
+			int cmp = compare(data, node.getData());
+			if (cmp < 0 || (cmp == 0 && !inclusive)) {
+				node = node.getLeft();
+			} else {
+				// This node and its left subtree are counted
+				count += size(node.getLeft()) + 1;
+				node = node.getRight();
+			}
+		}
+		return count;
+	}
+
+	private static int size(NodeRedBlackTree<?> node) {
+		return node == null ? 0 : node.getSize();
+	}
+
+	/*********************
+	 * JOIN AND SPLIT METHODS
+	 *********************/
+
+	/**
+	 * Joins the trees left and right, of black heights leftHeight and
+	 * rightHeight, with the node middle between them. The roots of left and right
+	 * are made black, and the result may have a red root. Leaves the black height
+	 * of the result in height. O(|leftHeight - rightHeight| + 1).
+	 */
+	private NodeRedBlackTree<K> join(NodeRedBlackTree<K> left, int leftHeight, NodeRedBlackTree<K> middle,
+			NodeRedBlackTree<K> right, int rightHeight) {
+		if (isRed(left)) {
+			left.setRed(false);
+			leftHeight++;
+		}
+		if (isRed(right)) {
+			right.setRed(false);
+			rightHeight++;
+		}
+		height = Math.max(leftHeight, rightHeight);
+		if (leftHeight > rightHeight)
+			return joinRight(left, leftHeight, middle, right, rightHeight);
+		if (rightHeight > leftHeight)
+			return joinLeft(left, leftHeight, middle, right, rightHeight);
+		return attach(left, middle, right);
+	}
+
+	/**
+	 * Hangs middle and right from the right spine of left, at the first black
+	 * node with the black height of right. height is the black height of left.
+	 */
+	private NodeRedBlackTree<K> joinRight(NodeRedBlackTree<K> left, int height, NodeRedBlackTree<K> middle,
+			NodeRedBlackTree<K> right, int rightHeight) {
+		if (!isRed(left) && height == rightHeight)
+			return attach(left, middle, right);
+		NodeRedBlackTree<K> joined = joinRight(left.getRight(), left.isRed() ? height : height - 1, middle, right,
+				rightHeight);
+		left.setRight(joined);
+		if (!left.isRed() && joined.isRed() && isRed(joined.getRight())) {
+			// Two reds in a row under a black node: rotate them into a 4-node
+			joined.getRight().setRed(false);
+			return rotateLeft(left);
+		}
+		left.updateSize();
+		return left;
+	}
+
+	/**
+	 * Symmetric to joinRight. height is the black height of right.
+	 */
+	private NodeRedBlackTree<K> joinLeft(NodeRedBlackTree<K> left, int leftHeight, NodeRedBlackTree<K> middle,
+			NodeRedBlackTree<K> right, int height) {
+		if (!isRed(right) && height == leftHeight)
+			return attach(left, middle, right);
+		NodeRedBlackTree<K> joined = joinLeft(left, leftHeight, middle, right.getLeft(),
+				right.isRed() ? height : height - 1);
+		right.setLeft(joined);
+		if (!right.isRed() && joined.isRed() && isRed(joined.getLeft())) {
+			joined.getLeft().setRed(false);
+			return rotateRight(right);
+		}
+		right.updateSize();
+		return right;
+	}
+
+	/**
+	 * Makes middle a red node with the given children.
+	 */
+	private NodeRedBlackTree<K> attach(NodeRedBlackTree<K> left, NodeRedBlackTree<K> middle,
+			NodeRedBlackTree<K> right) {
+		middle.setLeft(left);
+		middle.setRight(right);
+		middle.setRed(true);
+		middle.updateSize();
+		return middle;
+	}
+
+	/**
+	 * Joins two trees where every key of left is smaller than every key of right.
+	 * Leaves the black height of the result in height.
+	 */
+	private NodeRedBlackTree<K> join2(NodeRedBlackTree<K> left, int leftHeight, NodeRedBlackTree<K> right,
+			int rightHeight) {
+		if (left == null) {
+			height = rightHeight;
+			return right;
+		}
+		if (right == null) {
+			height = leftHeight;
+			return left;
+		}
+		left = splitLast(left, leftHeight);
+		NodeRedBlackTree<K> last = extracted;
+		extracted = null;
+		return join(left, height, last, right, rightHeight);
+	}
+
+	/**
+	 * Removes the maximum node of the tree of node, of black height nodeHeight.
+	 * Returns the remaining tree, leaves its black height in height and the
+	 * removed node in extracted.
+	 */
+	private NodeRedBlackTree<K> splitLast(NodeRedBlackTree<K> node, int nodeHeight) {
+		int childHeight = node.isRed() ? nodeHeight : nodeHeight - 1;
+		NodeRedBlackTree<K> left = node.getLeft();
+		NodeRedBlackTree<K> right = node.getRight();
+		if (right == null) {
+			extracted = node;
+			node.setLeft(null);
+			height = childHeight;
+			return left;
+		}
+		NodeRedBlackTree<K> rest = splitLast(right, childHeight);
+		NodeRedBlackTree<K> last = extracted;
+		NodeRedBlackTree<K> joined = join(left, childHeight, node, rest, height);
+		extracted = last;
+		return joined;
+	}
+
+	/**
+	 * Splits the tree of node, of black height nodeHeight, by key. The keys
+	 * smaller than key are left in splitLeft, the greater ones in splitRight,
+	 * with their black heights, and splitFound tells if key was in the tree. The
+	 * node with key is dropped.
+	 */
+	private void split(NodeRedBlackTree<K> node, int nodeHeight, K key) {
+		if (node == null) {
+			splitLeft = null;
+			splitRight = null;
+			splitLeftHeight = 0;
+			splitRightHeight = 0;
+			splitFound = false;
+			return;
+		}
+		int childHeight = node.isRed() ? nodeHeight : nodeHeight - 1;
+		NodeRedBlackTree<K> left = node.getLeft();
+		NodeRedBlackTree<K> right = node.getRight();
+		int cmp = compare(key, node.getData());
+		if (cmp == 0) {
+			splitLeft = left;
+			splitRight = right;
+			splitLeftHeight = childHeight;
+			splitRightHeight = childHeight;
+			splitFound = true;
+		} else if (cmp < 0) {
+			split(left, childHeight, key);
+			splitRight = join(splitRight, splitRightHeight, node, right, childHeight);
+			splitRightHeight = height;
+		} else {
+			split(right, childHeight, key);
+			splitLeft = join(left, childHeight, node, splitLeft, splitLeftHeight);
+			splitLeftHeight = height;
+		}
+	}
+
+	/*
+	 * The set operations split a by the root of b, recurse on both sides and join
+	 * the results with the root of b. They leave the black height of the result
+	 * in height.
+	 */
+
+	private NodeRedBlackTree<K> union(NodeRedBlackTree<K> a, int aHeight, NodeRedBlackTree<K> b, int bHeight) {
+		if (a == null) {
+			height = bHeight;
+			return b;
+		}
+		if (b == null) {
+			height = aHeight;
+			return a;
+		}
+		int bChildHeight = b.isRed() ? bHeight : bHeight - 1;
+		NodeRedBlackTree<K> bLeft = b.getLeft();
+		NodeRedBlackTree<K> bRight = b.getRight();
+		split(a, aHeight, b.getData());
+		NodeRedBlackTree<K> aRight = splitRight;
+		int aRightHeight = splitRightHeight;
+		NodeRedBlackTree<K> left = union(splitLeft, splitLeftHeight, bLeft, bChildHeight);
+		int leftHeight = height;
+		NodeRedBlackTree<K> right = union(aRight, aRightHeight, bRight, bChildHeight);
+		return join(left, leftHeight, b, right, height);
+	}
+
+	private NodeRedBlackTree<K> intersection(NodeRedBlackTree<K> a, int aHeight, NodeRedBlackTree<K> b,
+			int bHeight) {
+		if (a == null || b == null) {
+			height = 0;
+			return null;
+		}
+		int bChildHeight = b.isRed() ? bHeight : bHeight - 1;
+		NodeRedBlackTree<K> bLeft = b.getLeft();
+		NodeRedBlackTree<K> bRight = b.getRight();
+		split(a, aHeight, b.getData());
+		NodeRedBlackTree<K> aRight = splitRight;
+		int aRightHeight = splitRightHeight;
+		boolean found = splitFound;
+		NodeRedBlackTree<K> left = intersection(splitLeft, splitLeftHeight, bLeft, bChildHeight);
+		int leftHeight = height;
+		NodeRedBlackTree<K> right = intersection(aRight, aRightHeight, bRight, bChildHeight);
+		if (found)
+			return join(left, leftHeight, b, right, height);
+		return join2(left, leftHeight, right, height);
+	}
+
+	private NodeRedBlackTree<K> difference(NodeRedBlackTree<K> a, int aHeight, NodeRedBlackTree<K> b,
+			int bHeight) {
+		if (a == null || b == null) {
+			height = aHeight;
+			return a;
+		}
+		int bChildHeight = b.isRed() ? bHeight : bHeight - 1;
+		NodeRedBlackTree<K> bLeft = b.getLeft();
+		NodeRedBlackTree<K> bRight = b.getRight();
+		split(a, aHeight, b.getData());
+		NodeRedBlackTree<K> aRight = splitRight;
+		int aRightHeight = splitRightHeight;
+		NodeRedBlackTree<K> left = difference(splitLeft, splitLeftHeight, bLeft, bChildHeight);
+		int leftHeight = height;
+		NodeRedBlackTree<K> right = difference(aRight, aRightHeight, bRight, bChildHeight);
+		return join2(left, leftHeight, right, height);
+	}
+
+	enum SetOperation {
+		UNION, INTERSECTION, DIFFERENCE
+	}
+
+	/**
+	 * Below this number of keys in the two trees together, the parallel set
+	 * operations run sequentially.
+	 */
+	private static final int PARALLEL_CUTOFF = 1 << 13;
+
+	private void parallel(SetOperation operation, RedBlackTree<K> other) {
+		parallel(operation, other, PARALLEL_CUTOFF);
+	}
+
+	/**
+	 * Parallel set operation with a given sequential cutoff, so that tests can
+	 * fork on small trees.
+	 */
+	void parallel(SetOperation operation, RedBlackTree<K> other, int cutoff) {
+		SetOperationTask<K> task = new SetOperationTask<>(operation, cutoff, root, blackHeight(root), other.root,
+				blackHeight(other.root));
+		root = blacken(ForkJoinPool.commonPool().invoke(task));
+		other.root = null;
+		modCount++;
+		other.modCount++;
+	}
+
+	/**
+	 * Parallel version of union, intersection and difference. The two recursive
+	 * calls run as a forked task and in the current thread. Each task splits and
+	 * joins through its own scratch tree, since the results of split and join are
+	 * passed through fields; the tasks work on disjoint sets of nodes.
+	 */
+	private static class SetOperationTask<K extends Comparable<K>> extends RecursiveTask<NodeRedBlackTree<K>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final SetOperation operation;
+		private final int cutoff;
+		private final NodeRedBlackTree<K> a;
+		private final int aHeight;
+		private final NodeRedBlackTree<K> b;
+		private final int bHeight;
+		/** Black height of the result */
+		private int height;
+
+		SetOperationTask(SetOperation operation, int cutoff, NodeRedBlackTree<K> a, int aHeight,
+				NodeRedBlackTree<K> b, int bHeight) {
+			this.operation = operation;
+			this.cutoff = cutoff;
+			this.a = a;
+			this.aHeight = aHeight;
+			this.b = b;
+			this.bHeight = bHeight;
+		}
+
+		@Override
+		protected NodeRedBlackTree<K> compute() {
+			RedBlackTree<K> scratch = new RedBlackTree<>();
+			NodeRedBlackTree<K> result;
+			if (a == null || b == null || size(a) + size(b) < cutoff) {
+				switch (operation) {
+				case UNION:
+					result = scratch.union(a, aHeight, b, bHeight);
+					break;
+				case INTERSECTION:
+					result = scratch.intersection(a, aHeight, b, bHeight);
+					break;
+				default:
+					result = scratch.difference(a, aHeight, b, bHeight);
+				}
+				height = scratch.height;
+				return result;
+			}
+			int bChildHeight = b.isRed() ? bHeight : bHeight - 1;
+			NodeRedBlackTree<K> bLeft = b.getLeft();
+			NodeRedBlackTree<K> bRight = b.getRight();
+			scratch.split(a, aHeight, b.getData());
+			SetOperationTask<K> leftTask = new SetOperationTask<>(operation, cutoff, scratch.splitLeft,
+					scratch.splitLeftHeight, bLeft, bChildHeight);
+			SetOperationTask<K> rightTask = new SetOperationTask<>(operation, cutoff, scratch.splitRight,
+					scratch.splitRightHeight, bRight, bChildHeight);
+			leftTask.fork();
+			NodeRedBlackTree<K> right = rightTask.compute();
+			NodeRedBlackTree<K> left = leftTask.join();
+			if (operation == SetOperation.UNION || (operation == SetOperation.INTERSECTION && scratch.splitFound)) {
+				result = scratch.join(left, leftTask.height, b, right, rightTask.height);
+			} else {
+				result = scratch.join2(left, leftTask.height, right, rightTask.height);
+			}
+			height = scratch.height;
+			return result;
+		}
+	}
+
+	/**
+	 * A new array of nodes. Arrays of a generic type can't be created, so it
+	 * creates one of wildcard nodes; only nodes of K are ever stored in it.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <K extends Comparable<K>> NodeRedBlackTree<K>[] newNodeArray(int length) {
+		return (NodeRedBlackTree<K>[]) new NodeRedBlackTree<?>[length];
+	}
+
+	private static <K extends Comparable<K>> NodeRedBlackTree<K> blacken(NodeRedBlackTree<K> node) {
+		if (node != null)
+			node.setRed(false);
+		return node;
+	}
+
+	/**
+	 * a.compareTo(b), counted.
+	 */
+	private int compare(K a, K b) {
+		if (TreeCounters.ENABLED)
+			counters.countComparison();
+		return a.compareTo(b);
+	}
+
+	private static boolean isRed(NodeRedBlackTree<?> node) {
+		return node != null && node.isRed();
+	}
+
+	/**
+	 * Number of black nodes from node to a leaf, following the left spine.
+	 */
+	private static int blackHeight(NodeRedBlackTree<?> node) {
+		int height = 0;
+		while (node != null) {
+			if (!node.isRed())
+				height++;
+			node = node.getLeft();
+		}
+		return height;
+	}
+
+	private K min(NodeRedBlackTree<K> node) {
+		while (node.getLeft() != null)
+			node = node.getLeft();
+		return node.getData();
+	}
+
+	private K max(NodeRedBlackTree<K> node) {
+		while (node.getRight() != null)
+			node = node.getRight();
+		return node.getData();
+	}
+
 	/**
 	 * Returns the sub-tree with the inserted node.
 	 * @param node the root of the tree
@@ -306,8 +1340,10 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			node.getLeft().setRed(false);
 			node.getRight().setRed(false);
 			node.setRed(true);
+			if (TreeCounters.ENABLED)
+				counters.countSplit();
 		}
-		int cmp = data.compareTo(node.getData());
+		int cmp = compare(data, node.getData());
 		if (cmp < 0) {
 			// The data goes to the left
 			NodeRedBlackTree<K> leftNode = node.getLeft();
@@ -320,6 +1356,19 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		} else { // We are in a replacement!
 			node.setData(data);
 		}
+		node = balance4Node(node);
+		node.updateSize();
+		return node;
+	}
+
+	/**
+	 * Balances the 4-node that could have been created unbalanced under node by
+	 * an insertion.
+	 *
+	 * @param node the node to check
+	 * @return the new root of the subtree
+	 */
+	private NodeRedBlackTree<K> balance4Node(NodeRedBlackTree<K> node) {
 		// Now we have to see if we need to do a rotation, because
 		// 4-nodes could have been created unbalanced. In this implementation
 		// 3-nodes are always balanced by definition (we allow right-leaning
@@ -383,31 +1432,41 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 
 	/**
 	 * Makes the right node the root of @oldRoot. IMPORTANT: DOES NOT CHANGE COLORS,
-	 * ONLY POSITIONS [For now we don't have a parameter size. If we include it
-	 * later, we'll have to re-compute it here]
+	 * ONLY POSITIONS. The sizes of both nodes are re-computed.
 	 *
 	 * @param oldRoot node to rotate
 	 * @return rotated right node
 	 */
 	private NodeRedBlackTree<K> rotateRight(NodeRedBlackTree<K> oldRoot) {
+		if (TreeCounters.ENABLED)
+			counters.countRotation();
+		if (rotated >= 0)
+			rotated++;
 		NodeRedBlackTree<K> newRoot = oldRoot.getLeft();
 		oldRoot.setLeft(newRoot.getRight());
 		newRoot.setRight(oldRoot);
+		oldRoot.updateSize();
+		newRoot.updateSize();
 		return newRoot;
 	}
 
 	/**
 	 * Makes the left node the root of @oldRoot. IMPORTANT: DOES NOT CHANGE COLORS,
-	 * ONLY POSITIONS [For now we don't have a parameter size. If we include it
-	 * later, we'll have to re-compute it here].
+	 * ONLY POSITIONS. The sizes of both nodes are re-computed.
 	 *
 	 * @param oldRoot node to rotate
 	 * @return rotated left node
 	 */
 	private NodeRedBlackTree<K> rotateLeft(NodeRedBlackTree<K> oldRoot) {
+		if (TreeCounters.ENABLED)
+			counters.countRotation();
+		if (rotated >= 0)
+			rotated++;
 		NodeRedBlackTree<K> newRoot = oldRoot.getRight();
 		oldRoot.setRight(newRoot.getLeft());
 		newRoot.setLeft(oldRoot);
+		oldRoot.updateSize();
+		newRoot.updateSize();
 		return newRoot;
 	}
 
@@ -435,18 +1494,16 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	
 	/**
 	 * Given the root of a 2-3-4 node, it removes its left-most element and returns
-	 * it. The left-most RBT node is returned in the first element of the array. The
-	 * remaining 2-3-4 node is returned in the second element of the array. The
-	 * colors are changed accordingly. The left node is returned as black.
+	 * it. The remaining 2-3-4 node is left in the field extracted. The colors are
+	 * changed accordingly. The left node is returned as black.
 	 * 
 	 * @param root           the root of the 2-3-4 node
 	 * @param leftKeepsRight establishes if the left node keeps the right child or
 	 *                       instead it is kept by the parent.
-	 * @return [left_node, node_without_left]
+	 * @return the left node (the node without it is left in extracted)
 	 */
 	
-	private ArrayList<NodeRedBlackTree<K>> extractLeft234(NodeRedBlackTree<K> root, boolean leftKeepsRight) {
-		ArrayList<NodeRedBlackTree<K>> ret = new ArrayList<NodeRedBlackTree<K>>(2);
+	private NodeRedBlackTree<K> extractLeft234(NodeRedBlackTree<K> root, boolean leftKeepsRight) {
 		if (root == null) {
 			throw new RuntimeException("Tried to extract left (2-3-4 method) in a null node");
 		}
@@ -455,9 +1512,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		NodeRedBlackTree<K> left = root.getLeft();
 		if (left != null && left.isRed()) {
 			// We return the left
-			ret.add(left);
 			left.setRed(false);
-			ret.add(root);
+			extracted = root;
 			if (leftKeepsRight) {
 				root.setLeft(null); 
 			} else {
@@ -466,9 +1522,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			}
 		} else {
 			// The left is the root.
-			ret.add(root);
 			NodeRedBlackTree<K> right = root.getRight();
-			ret.add(right);
+			extracted = right;
 			if (right != null) {
 				if (leftKeepsRight) { // Might want to check this
 					root.setRight(right.getLeft());
@@ -478,13 +1533,13 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 				}
 				right.setRed(false);
 			}
+			return root;
 		}
-		return ret;
+		return left;
 	}
 	
 	
-	private ArrayList<NodeRedBlackTree<K>> extractRight234(NodeRedBlackTree<K> root, boolean rightKeepsLeft) {
-		ArrayList<NodeRedBlackTree<K>> ret = new ArrayList<>(2);
+	private NodeRedBlackTree<K> extractRight234(NodeRedBlackTree<K> root, boolean rightKeepsLeft) {
 		if (root == null) {
 			throw new RuntimeException("Tried to extract left (2-3-4 method) in a null node");
 		}
@@ -493,8 +1548,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		NodeRedBlackTree<K> right = root.getRight();
 		if (right != null && right.isRed()) {
 			right.setRed(false);
-			ret.add(right);
-			ret.add(root);
+			extracted = root;
 			if (rightKeepsLeft) {
 				root.setRight(null);
 			} else {
@@ -503,9 +1557,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			}
 		} else {
 			//the right is the root.
-			ret.add(root);
 			NodeRedBlackTree<K> left = root.getLeft();
-			ret.add(left);
+			extracted = left;
 			if (left != null) {
 				if (rightKeepsLeft) {
 					root.setLeft(left.getRight());
@@ -515,8 +1568,9 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 				}
 				left.setRed(false);
 			}
+			return root;
 		}
-		return ret;
+		return right;
 	}
 
 	/**
@@ -563,6 +1617,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	 */
 	private NodeRedBlackTree<K> mergeNodes234(NodeRedBlackTree<K> left, NodeRedBlackTree<K> middle,
 			NodeRedBlackTree<K> right) {
+		if (TreeCounters.ENABLED)
+			counters.countMerge();
 		middle.setLeft(left);
 		middle.setRight(right);
 		middle.setRed(false);
@@ -611,14 +1667,13 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	
 	/**
 	 * Deletes the minimum node in the 2-3-4 tree of root. Returns the new tree root,
-	 * and includes the deleted value in result. If the tree is empty, the result is null.
+	 * and leaves the deleted value in removed. If the tree is empty, removed is not set.
 	 * @param root
-	 * @param result
 	 * @return
 	 */
-	private NodeRedBlackTree<K> deleteMinRec234Launch(NodeRedBlackTree<K> root, Wrapper<K> result) {
+	private NodeRedBlackTree<K> deleteMinRec234Launch(NodeRedBlackTree<K> root) {
 		if (root == null)
-			//result has not been set, so it is null
+			//removed has not been set, so it is null
 			return null;
 		//We check if there is any 2-3-4 node to the left of root
 		NodeRedBlackTree<K> leftParent = leftNode234(root);
@@ -628,7 +1683,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			NodeRedBlackTree<K> rootLeft = root.getLeft();
 			if (rootLeft == null) {
 				// Root is the left-most node
-				result.item = root.getData();
+				removed = root.getData();
 				// The right element is the new root (whether it exists or not)
 				NodeRedBlackTree<K> rootRight = root.getRight();
 				if (rootRight != null)
@@ -636,9 +1691,10 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 				return rootRight;
 			} else {
 				// The left-most element is the minimum
-				result.item = rootLeft.getData();
+				removed = rootLeft.getData();
 				// We delete the left node (has no children by 2-3-4 property)
 				root.setLeft(null);
+				root.updateSize();
 				// Root does not change
 				return root;
 			}
@@ -655,7 +1711,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 						root = mergeNodes234(leftParent, root, sibling);
 						// The tree has shrunk in size. We should re-start the algorithm
 						// in case we need rebalancing from the root again
-						return deleteMinRec234Launch(root, result);
+						return deleteMinRec234Launch(root);
 					} else {
 						// Borrow from the sibling
 						root = doLeftBorrow(leftParent, root, sibling);
@@ -667,12 +1723,12 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			} 
 			//End of 2-node special invariant check
 			//Perform deletion
-			return deleteMinRec234(root, result);
+			return deleteMinRec234(root);
 		}
 	}	
 	
-	private NodeRedBlackTree<K> deleteRec234Launch(NodeRedBlackTree<K> root, K search, Wrapper<K> result) {
-		if (root == null) { //Empty tree. result wrapper is null by default.
+	private NodeRedBlackTree<K> deleteRec234Launch(NodeRedBlackTree<K> root, K search) {
+		if (root == null) { //Empty tree. removed is null by default.
 			return null;
 		}
 		/*
@@ -684,14 +1740,14 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		NodeRedBlackTree<K> leftChild = leftNode234(root);
 		boolean leaf = leftChild == null;
 		if (leaf) { //Won't have to do any successor substitution
-			root = deleteInLeaf(root, search, result);
+			root = deleteInLeaf(root, search);
 			return root;
 		} else { 
 			//If we find the element in the root 2-3-4 node, we'll have to substitute 
 			//by the successor. Else, we start checking the "no 2-node" invariant on 
 			//the corresponding child. Successor will have to check the "no 2-node invariant" too
 			//First, find if the search data is in this node.
-			int compare = search.compareTo(root.getData());
+			int compare = compare(search, root.getData());
 			if (compare == 0) {
 				//replace with successor
 			} else if (compare < 0) {
@@ -699,7 +1755,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 				NodeRedBlackTree<K> left = root.getLeft();
 				if (left.isRed()) {
 					//check in left
-					int compareLeft = search.compareTo(left.getData());
+					int compareLeft = compare(search, left.getData());
 					if (compareLeft == 0) {
 						//replace with successor.
 						//check invariant on the right of left.
@@ -710,12 +1766,12 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 						//check invariant on the left of left and recurse
 						root = rebalance2Node234Left(root, left.getLeft());
 						//continue delete
-						deleteRec234(root, search, result);
+						deleteRec234(root, search);
 					} else {
 						//check invariant on the right of left and recurse
 						root = rebalance2Node234Middle(root, left.getRight(), true);
 						//continue delete
-						deleteRec234(root, search, result);
+						deleteRec234(root, search);
 					}
 				} else {
 					//check invariant on the left, and recurse on left
@@ -729,16 +1785,16 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 								//merge
 								root = mergeNodes234(left, root, right);
 								//relaunch, size has changed.
-								deleteRec234Launch(root, search, result);
+								deleteRec234Launch(root, search);
 							} else {
 								//borrow
 								root = doLeftBorrow(left, root, right);
 								//continue with delete
-								deleteRec234(root, search, result);
+								deleteRec234(root, search);
 							}
 						} else {
 							//just delete
-							deleteRec234(root, search, result);
+							deleteRec234(root, search);
 						}
 					} else {
 						//root is not 2-node.
@@ -746,7 +1802,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 							//normal rebalance
 							root = rebalance2Node234Left(root, left);
 						}
-						deleteRec234(root, search, result);
+						deleteRec234(root, search);
 					}
 				}
 			} else {
@@ -756,8 +1812,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		return null;
 	}
 	
-	private NodeRedBlackTree<K> delete2Rec234Launch(NodeRedBlackTree<K> root, K search, Wrapper<K> result) {
-		if (root == null) { //Empty tree. result wrapper is null by default.
+	private NodeRedBlackTree<K> delete2Rec234Launch(NodeRedBlackTree<K> root, K search) {
+		if (root == null) { //Empty tree. removed is null by default.
 			return null;
 		}
 		/*
@@ -769,10 +1825,10 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		NodeRedBlackTree<K> left234Child = leftNode234(root);
 		boolean leaf = left234Child == null;
 		if (leaf) { //Won't have to do any successor substitution
-			root = deleteInLeaf(root, search, result);
+			root = deleteInLeaf(root, search);
 			return root;
 		} //Else: there is a second level
-		int compareTo = search.compareTo(root.getData());
+		int compareTo = compare(search, root.getData());
 		if (is2Node(root)) {
 			//We may have to shrink the size of the tree or do a special rebalance
 			if (compareTo >= 0) {
@@ -784,7 +1840,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 					if (is2Node(leftSibling)) {
 						//shrink and restart (edge case, returns here)
 						root = mergeNodes234(leftSibling, root, right);
-						return delete2Rec234Launch(root, search, result);
+						return delete2Rec234Launch(root, search);
 					} else {
 						//borrow
 						root = doRightBorrow(right, root, leftSibling);
@@ -799,7 +1855,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 					if (is2Node(rightSibling)) {
 						//shrink and restart (edge case, returns here)
 						root = mergeNodes234(left, root, rightSibling);
-						return delete2Rec234Launch(root, search, result);
+						return delete2Rec234Launch(root, search);
 					} else {
 						//borrow
 						root = doLeftBorrow(left, root, rightSibling);
@@ -812,7 +1868,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			root = applyNo2NodeInvariant(root, search);
 		}
 		//continue with delete
-		return deleteRec234(root, search, result);
+		return deleteRec234(root, search);
 	}
 	
 	/**
@@ -824,11 +1880,11 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	 */
 	private NodeRedBlackTree<K> applyNo2NodeInvariant(NodeRedBlackTree<K> root, K search) {
 		//check the invariant
-		int compareTo = search.compareTo(root.getData());
+		int compareTo = compare(search, root.getData());
 		if (compareTo < 0) {
 			NodeRedBlackTree<K> left = root.getLeft();
 			if (left.isRed()) {
-				int compareToLeft = search.compareTo(left.getData());
+				int compareToLeft = compare(search, left.getData());
 				if (compareToLeft >= 0) {
 					//invariant on the middle
 					NodeRedBlackTree<K> middleChild = left.getRight();
@@ -858,7 +1914,7 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		} else {
 			NodeRedBlackTree<K> right = root.getRight();
 			if (right.isRed()) {
-				int compareToRight = search.compareTo(right.getData());
+				int compareToRight = compare(search, right.getData());
 				if (compareToRight >= 0) {
 					NodeRedBlackTree<K> rightChild = right.getRight();
 					if (is2Node(rightChild)) 
@@ -880,63 +1936,62 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	 * Deletes a key from the 2-3-4 tree rooted at root. Root is not a 2-node, and root is not a leaf.
 	 * @param root
 	 * @param search
-	 * @param result
 	 * @return
 	 */
-	private NodeRedBlackTree<K> deleteRec234(NodeRedBlackTree<K> root, K search, Wrapper<K> result) {
+	private NodeRedBlackTree<K> deleteRec234(NodeRedBlackTree<K> root, K search) {
 		root = applyNo2NodeInvariant(root, search);
 		//GO
-		int compareTo = search.compareTo(root.getData());
+		int compareTo = compare(search, root.getData());
 		if (compareTo == 0) {
 			//Replace by successor. Successor is the minimum of the right tree
 			NodeRedBlackTree<K> right = root.getRight();
 			if (right.isRed()) {
 				NodeRedBlackTree<K> left = right.getLeft();
-				Wrapper<K> successor = new Wrapper<>();
-				left = deleteMinRec234Launch(left, successor);
+				left = deleteMinRec234Launch(left);
 				right.setLeft(left);
-				result.item = root.getData();
-				root.changeData(successor.item);
+				K successor = removed;
+				removed = root.getData();
+				root.changeData(successor);
 			} else {
-				Wrapper<K> successor = new Wrapper<>();
-				right = deleteMinRec234Launch(right, successor);
+				right = deleteMinRec234Launch(right);
 				root.setRight(right);
-				result.item = root.getData();
-				root.changeData(successor.item);
+				K successor = removed;
+				removed = root.getData();
+				root.changeData(successor);
 			}
 		} else if (compareTo < 0) {
 			//Search in left
 			NodeRedBlackTree<K> left = root.getLeft();
 			if (left.isRed()) {
-				int compareToLeft = search.compareTo(left.getData());
+				int compareToLeft = compare(search, left.getData());
 				if (compareToLeft == 0) {
 					//Replace by successor
 					NodeRedBlackTree<K> right = left.getRight();
-					Wrapper<K> successor = new Wrapper<>();
-					right = deleteMinRec234Launch(right, successor);
+					right = deleteMinRec234Launch(right);
 					left.setRight(right);
-					result.item = left.getData();
-					left.changeData(successor.item);
+					K successor = removed;
+					removed = left.getData();
+					left.changeData(successor);
 				} else if (compareToLeft < 0) {
 					NodeRedBlackTree<K> leftChild234 = left.getLeft();
 					if (is234Leaf(leftChild234)) 
-						leftChild234 = deleteInLeaf(leftChild234, search, result);
+						leftChild234 = deleteInLeaf(leftChild234, search);
 					else
-						leftChild234 = deleteRec234(leftChild234, search, result);
+						leftChild234 = deleteRec234(leftChild234, search);
 					left.setLeft(leftChild234);
 				} else if (compareToLeft > 0) {
 					NodeRedBlackTree<K> middleChild234 = left.getRight();
 					if (is234Leaf(middleChild234)) 
-						middleChild234 = deleteInLeaf(middleChild234, search, result);
+						middleChild234 = deleteInLeaf(middleChild234, search);
 					else
-						middleChild234 = deleteRec234(middleChild234, search, result);
+						middleChild234 = deleteRec234(middleChild234, search);
 					left.setRight(middleChild234);
 				}
 			} else {
 				if (is234Leaf(left)) {
-					left = deleteInLeaf(left, search, result);
+					left = deleteInLeaf(left, search);
 				} else {
-					left = deleteRec234(left, search, result);
+					left = deleteRec234(left, search);
 				}
 				root.setLeft(left);
 			}
@@ -944,39 +1999,40 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			//Search in right
 			NodeRedBlackTree<K> right = root.getRight();
 			if (right.isRed()) {
-				int compareToRight = search.compareTo(right.getData());
+				int compareToRight = compare(search, right.getData());
 				if (compareToRight == 0) {
 					//Replace by successor
 					NodeRedBlackTree<K> rightChild = right.getRight();
-					Wrapper<K> successor = new Wrapper<>();
-					rightChild = deleteMinRec234Launch(rightChild, successor);
+					rightChild = deleteMinRec234Launch(rightChild);
 					right.setRight(rightChild);
-					result.item = right.getData();
-					right.changeData(successor.item);
+					K successor = removed;
+					removed = right.getData();
+					right.changeData(successor);
 				} else if (compareToRight < 0) {
 					NodeRedBlackTree<K> middleChild234 = right.getLeft();
 					if (is234Leaf(middleChild234)) 
-						middleChild234 = deleteInLeaf(middleChild234, search, result);
+						middleChild234 = deleteInLeaf(middleChild234, search);
 					else
-						middleChild234 = deleteRec234(middleChild234, search, result);
+						middleChild234 = deleteRec234(middleChild234, search);
 					right.setLeft(middleChild234);
 				} else if (compareToRight > 0) {
 					NodeRedBlackTree<K> rightChild234 = right.getRight();
 					if (is234Leaf(rightChild234)) 
-						rightChild234 = deleteInLeaf(rightChild234, search, result);
+						rightChild234 = deleteInLeaf(rightChild234, search);
 					else
-						rightChild234 = deleteRec234(rightChild234, search, result);
+						rightChild234 = deleteRec234(rightChild234, search);
 					right.setRight(rightChild234);
 				}
 			} else {
 				if (is234Leaf(right)) {
-					right = deleteInLeaf(right, search, result);
+					right = deleteInLeaf(right, search);
 				} else {
-					right = deleteRec234(right, search, result);
+					right = deleteRec234(right, search);
 				}
 				root.setRight(right);
 			}
 		}
+		updateSizes234(root);
 		return root;
 	}
 	
@@ -985,11 +2041,11 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		return left == null || (left.isRed() && (left.getLeft() == null));
 	}
 	
-	private NodeRedBlackTree<K> deleteInLeaf(NodeRedBlackTree<K> root, K search, Wrapper<K> result) {
-		int compare = search.compareTo(root.getData());
+	private NodeRedBlackTree<K> deleteInLeaf(NodeRedBlackTree<K> root, K search) {
+		int compare = compare(search, root.getData());
 		if (compare == 0) {
 			//We have found the leaf.
-			result.item = root.getData();
+			removed = root.getData();
 			NodeRedBlackTree<K> left = root.getLeft();
 			if (left == null) {
 				NodeRedBlackTree<K> right = root.getRight();
@@ -1002,13 +2058,15 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			} else {
 				left.setRight(root.getRight()); //new root is left
 				left.setRed(false);
+				left.updateSize();
 				return left;
 			}
 		} else if (compare < 0) {
 			NodeRedBlackTree<K> left = root.getLeft();
-			if (left != null && (search.compareTo(left.getData()) == 0)) {
-				result.item = left.getData();
+			if (left != null && (compare(search, left.getData()) == 0)) {
+				removed = left.getData();
 				root.setLeft(null);
+				root.updateSize();
 				return root;
 			} else {
 				//element not found in 2-3-4 leaf
@@ -1016,9 +2074,10 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			}
 		} else {
 			NodeRedBlackTree<K> right = root.getRight();
-			if (right != null && (search.compareTo(right.getData()) == 0)) {
-				result.item = right.getData();
+			if (right != null && (compare(search, right.getData()) == 0)) {
+				removed = right.getData();
 				root.setRight(null);
+				root.updateSize();
 				return root;
 			} else {
 				//element not found in 2-3-4 leaf
@@ -1031,10 +2090,9 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	 * Deletes the minimum leaf on the tree rooted at leftParent. Returns the resulting tree.
 	 * leftParent should not be null, or a 2-node, or a 2-3-4 leaf.
 	 * @param leftParent
-	 * @param result
 	 * @return
 	 */
-	private NodeRedBlackTree<K> deleteMinRec234(NodeRedBlackTree<K> leftParent, Wrapper<K> result) {
+	private NodeRedBlackTree<K> deleteMinRec234(NodeRedBlackTree<K> leftParent) {
 		NodeRedBlackTree<K> leftChild = leftNode234(leftParent); //Always exists, launcher deals with this case
 		if (is2Node(leftChild)) {
 			leftParent = rebalance2Node234Left(leftParent, leftChild);
@@ -1048,12 +2106,13 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 				leftChild.setRed(false);
 				ret = leftChild.getLeft();
 			}
-			result.item = ret.getData();
+			removed = ret.getData();
 			leftChild.setLeft(null);
 		} else {
-			leftChild = deleteMinRec234(leftChild, result);
+			leftChild = deleteMinRec234(leftChild);
 		}
 		setLeftChild234(leftParent, leftChild);
+		updateSizes234(leftParent);
 		return leftParent;
 	}
 	
@@ -1089,9 +2148,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	private NodeRedBlackTree<K> rightNodeBorrowFromRight(NodeRedBlackTree<K> leftChild,
 			NodeRedBlackTree<K> root, NodeRedBlackTree<K> rightSibling) {
 		
-		ArrayList<NodeRedBlackTree<K>> rightPartRoot = extractRight234(root, true);
-		NodeRedBlackTree<K> lca = rightPartRoot.get(0);
-		NodeRedBlackTree<K> newRoot = rightPartRoot.get(1);
+		NodeRedBlackTree<K> lca = extractRight234(root, true);
+		NodeRedBlackTree<K> newRoot = extracted;
 		
 		lca = doLeftBorrow(leftChild, lca, rightSibling);
 		newRoot.setRight(lca);
@@ -1101,6 +2159,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	
 	private NodeRedBlackTree<K> doLeftBorrow(NodeRedBlackTree<K> leftChild, 
 			NodeRedBlackTree<K> parent, NodeRedBlackTree<K> rightSibling) {
+		if (TreeCounters.ENABLED)
+			counters.countBorrow();
 
 		NodeRedBlackTree<K> remainingSibling = rightSibling;
 		NodeRedBlackTree<K> leftNodeSibling = rightSibling.getLeft();
@@ -1126,9 +2186,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	private NodeRedBlackTree<K> leftNodeBorrowFromLeft(NodeRedBlackTree<K> rightChild,
 			NodeRedBlackTree<K> root, NodeRedBlackTree<K> leftSibling) {
 		
-		//ArrayList<NodeRedBlackTree<K>> leftPartRoot = extractLeft234(root, true);
-		//NodeRedBlackTree<K> lca = leftPartRoot.get(0);
-		//NodeRedBlackTree<K> newRoot = leftPartRoot.get(1);
+		//NodeRedBlackTree<K> lca = extractLeft234(root, true);
+		//NodeRedBlackTree<K> newRoot = extracted;
 		
 		NodeRedBlackTree<K> lca = root.getLeft();
 		if (!lca.isRed()) {
@@ -1146,9 +2205,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	private NodeRedBlackTree<K> rightNodeBorrowFromLeft(NodeRedBlackTree<K> rightChild,
 			NodeRedBlackTree<K> root, NodeRedBlackTree<K> leftSibling) {
 		
-		ArrayList<NodeRedBlackTree<K>> rightPartRoot = extractRight234(root, true);
-		NodeRedBlackTree<K> lca = rightPartRoot.get(0);
-		NodeRedBlackTree<K> newRoot = rightPartRoot.get(1);
+		NodeRedBlackTree<K> lca = extractRight234(root, true);
+		NodeRedBlackTree<K> newRoot = extracted;
 		
 		lca = doRightBorrow(rightChild, lca, leftSibling);
 		newRoot.setRight(lca);
@@ -1158,10 +2216,11 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	
 	private NodeRedBlackTree<K> doRightBorrow(NodeRedBlackTree<K> rightChild,
 			NodeRedBlackTree<K> parent, NodeRedBlackTree<K> leftSibling) {
+		if (TreeCounters.ENABLED)
+			counters.countBorrow();
 
-		ArrayList<NodeRedBlackTree<K>> rightPartSibling = extractRight234(leftSibling, false);
-		NodeRedBlackTree<K> rightNodeSibling = rightPartSibling.get(0);
-		NodeRedBlackTree<K> remainingSibling = rightPartSibling.get(1);
+		NodeRedBlackTree<K> rightNodeSibling = extractRight234(leftSibling, false);
+		NodeRedBlackTree<K> remainingSibling = extracted;
 
 		NodeRedBlackTree<K> zTree = rightNodeSibling.getRight();
 		rightNodeSibling.setLeft(remainingSibling);
@@ -1182,6 +2241,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	 * @return
 	 */
 	private NodeRedBlackTree<K> rebalance2Node234Left(NodeRedBlackTree<K> leftParent, NodeRedBlackTree<K> leftChild) {
+		if (TreeCounters.ENABLED)
+			counters.countRebalance();
 		NodeRedBlackTree<K> sibling234 = secondNode234(leftParent);
 		if (is2Node(sibling234)) {
 			// Merge with the left part of leftParent
@@ -1210,6 +2271,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	 */
 	private NodeRedBlackTree<K> rebalance2Node234Middle(NodeRedBlackTree<K> parent, 
 			NodeRedBlackTree<K> middleChild, boolean leftLeaning) {
+		if (TreeCounters.ENABLED)
+			counters.countRebalance();
 		if (leftLeaning) {
 			NodeRedBlackTree<K> lca = parent.getLeft();
 			NodeRedBlackTree<K> leftSibling = lca.getLeft();
@@ -1235,6 +2298,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 	
 	private NodeRedBlackTree<K> rebalance2Node234Right(NodeRedBlackTree<K> parent, 
 			NodeRedBlackTree<K> rightChild) {
+		if (TreeCounters.ENABLED)
+			counters.countRebalance();
 		//Get the left sibling
 		NodeRedBlackTree<K> leftSibling = null;
 		NodeRedBlackTree<K> right = parent.getRight();
@@ -1244,9 +2309,8 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			leftSibling = parent.getLeft().getRight();
 		}
 		if (is2Node(leftSibling)) {
-			ArrayList<NodeRedBlackTree<K>> rightPartParent = extractRight234(parent, true);
-			NodeRedBlackTree<K> lca = rightPartParent.get(0);
-			NodeRedBlackTree<K> newRoot = rightPartParent.get(1);
+			NodeRedBlackTree<K> lca = extractRight234(parent, true);
+			NodeRedBlackTree<K> newRoot = extracted;
 			newRoot.setRight(mergeNodes234(leftSibling, lca, rightChild));
 			return newRoot;
 		} else {
@@ -1255,6 +2319,29 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 		}
 	}
 	
+	/**
+	 * Re-computes, bottom-up, the sizes of the nodes of the 2-3-4 node of root and
+	 * of its 2-3-4 children (the RBT nodes up to 3 levels below root). Those are
+	 * the only nodes that the rebalancing of one level of the 2-3-4 deletion can
+	 * move; the subtrees below them keep their sizes or have already been fixed
+	 * by the recursion.
+	 * 
+	 * @param root the root of the 2-3-4 node
+	 */
+	private void updateSizes234(NodeRedBlackTree<K> root) {
+		updateSizes(root, 3);
+	}
+
+	private void updateSizes(NodeRedBlackTree<K> node, int levels) {
+		if (node == null)
+			return;
+		if (levels > 0) {
+			updateSizes(node.getLeft(), levels - 1);
+			updateSizes(node.getRight(), levels - 1);
+		}
+		node.updateSize();
+	}
+
 	private void toArrayNext(NodeRedBlackTree<K> node, ArrayList<NodeRedBlackTree<K>> list) {
 
 		if (node.getLeft() != null) {
@@ -1267,4 +2354,29 @@ public class RedBlackTree<K extends Comparable<K>> implements TreeStructure<Node
 			toArrayNext(node.getRight(), list);
 		}
 	}
+
+	/**
+	 * Path from the root to the last node reached by {@link #searchNear}, and the
+	 * open interval of the keys of the subtree of every node in the path, where
+	 * null is unbounded.
+	 */
+	private static final class SearchPath<K extends Comparable<K>> {
+		final ArrayList<NodeRedBlackTree<K>> nodes = new ArrayList<>();
+		final ArrayList<K> low = new ArrayList<>();
+		final ArrayList<K> high = new ArrayList<>();
+		/** modCount of the tree when the path was last checked */
+		int modCount;
+
+		void add(NodeRedBlackTree<K> node, K nodeLow, K nodeHigh) {
+			nodes.add(node);
+			low.add(nodeLow);
+			high.add(nodeHigh);
+		}
+
+		void truncate(int size) {
+			nodes.subList(size, nodes.size()).clear();
+			low.subList(size, low.size()).clear();
+			high.subList(size, high.size()).clear();
+		}
+	}
 }
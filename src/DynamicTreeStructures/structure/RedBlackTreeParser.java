@@ -0,0 +1,250 @@
+package DynamicTreeStructures.structure;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.function.Function;
+
+/**
+ * Streaming parser of the text format of {@link RedBlackTree#toString()}: one
+ * node per line in pre-order, as key;color;left;right. Only the key and whether
+ * the children are null are used. Both the plain and the formatted variants are
+ * accepted.
+ *
+ * The input is read in blocks and the tree is rebuilt with an explicit stack of
+ * the nodes whose children are still to come, so neither the input nor the
+ * depth of the tree is limited by memory for strings or by the call stack.
+ *
+ * While reading, it checks that the keys are in order and that the tree is a
+ * red black tree: no red node has a red child and every path has the same
+ * number of black nodes. A red root is made black. Any other input is rebuilt
+ * balanced from its keys with {@link RedBlackTree#fromSorted}, since the rest
+ * of the tree relies on the bounded height of a red black tree.
+ *
+ * @param <K> type of the keys
+ */
+final class RedBlackTreeParser<K extends Comparable<K>> {
+
+	private static final int PENDING_LEFT = 1;
+	private static final int PENDING_RIGHT = 2;
+
+	private final Function<CharSequence, K> keyParser;
+	private final char[] buffer = new char[1 << 13];
+	/** Field being read, without leading whitespace */
+	private final StringBuilder field = new StringBuilder();
+
+	/**
+	 * Nodes still waiting for children. Frames above top are kept for reuse.
+	 */
+	private final ArrayList<Frame<K>> stack = new ArrayList<>();
+	private int top;
+
+	private NodeRedBlackTree<K> root;
+	/** Whether the input read so far is an ordered red black tree */
+	private boolean valid = true;
+	private int line = 1;
+	private int fieldIndex;
+	private K key;
+	private boolean red;
+	private boolean hasLeft;
+
+	/**
+	 * @param keyParser parses the key of a node. The sequence is reused after the
+	 *                  call, so it must not be kept.
+	 */
+	RedBlackTreeParser(Function<CharSequence, K> keyParser) {
+		this.keyParser = keyParser;
+	}
+
+	/**
+	 * Parses the tree of reader, until its end.
+	 *
+	 * @return the root of the tree, or null if the input has no nodes
+	 * @throws IllegalArgumentException if the input is not a tree
+	 */
+	NodeRedBlackTree<K> parse(Reader reader) throws IOException {
+		int read;
+		while ((read = reader.read(buffer)) >= 0) {
+			for (int i = 0; i < read; i++) {
+				char c = buffer[i];
+				if (c == '\n' || c == '\r') {
+					endLine();
+				} else if (c == ';') {
+					endField();
+				} else if (!Character.isWhitespace(c) || field.length() > 0) {
+					field.append(c);
+				}
+			}
+		}
+		endLine();
+		if (top > 0)
+			throw new IllegalArgumentException(
+					"Input ended before the children of " + stack.get(top - 1).node.getData());
+		if (!valid)
+			return rebuild(root);
+		if (root != null)
+			root.setRed(false);
+		return root;
+	}
+
+	private void endField() {
+		int end = field.length();
+		while (end > 0 && Character.isWhitespace(field.charAt(end - 1))) {
+			end--;
+		}
+		field.setLength(end);
+		switch (fieldIndex) {
+		case 0:
+			key = keyParser.apply(field);
+			break;
+		case 1:
+			red = "red".contentEquals(field) || "r".contentEquals(field);
+			break;
+		case 2:
+			hasLeft = !"null".contentEquals(field);
+			break;
+		case 3:
+			addNode(!"null".contentEquals(field));
+			break;
+		default:
+			throw new IllegalArgumentException("Too many fields in line " + line);
+		}
+		field.setLength(0);
+		fieldIndex++;
+	}
+
+	private void endLine() {
+		if (fieldIndex == 0 && field.length() == 0) {
+			// Empty lines are skipped, and \r\n is a single line break
+			return;
+		}
+		endField();
+		if (fieldIndex != 4)
+			throw new IllegalArgumentException("Expected 4 fields in line " + line);
+		fieldIndex = 0;
+		line++;
+	}
+
+	/**
+	 * Hangs the node of the current line from the first pending child of the top
+	 * of the stack.
+	 */
+	private void addNode(boolean hasRight) {
+		NodeRedBlackTree<K> node = new NodeRedBlackTree<>(key, red);
+		key = null;
+		K low = null;
+		K high = null;
+		if (top == 0) {
+			if (root != null)
+				throw new IllegalArgumentException("Line " + line + " is not part of the tree");
+			root = node;
+		} else {
+			Frame<K> parent = stack.get(top - 1);
+			if ((parent.pending & PENDING_LEFT) != 0) {
+				parent.node.setLeft(node);
+				parent.pending &= ~PENDING_LEFT;
+				low = parent.low;
+				high = parent.node.getData();
+			} else {
+				parent.node.setRight(node);
+				parent.pending &= ~PENDING_RIGHT;
+				low = parent.node.getData();
+				high = parent.high;
+			}
+			if (red && parent.node.isRed())
+				valid = false;
+		}
+		K data = node.getData();
+		if ((low != null && data.compareTo(low) <= 0) || (high != null && data.compareTo(high) >= 0))
+			valid = false;
+
+		int children = (hasLeft ? PENDING_LEFT : 0) | (hasRight ? PENDING_RIGHT : 0);
+		if (children != 0) {
+			push(node, children, low, high);
+			return;
+		}
+		// The node is complete, and so are the ancestors that got their last child
+		node.updateSize();
+		int blackHeight = red ? 0 : 1;
+		while (top > 0) {
+			Frame<K> parent = stack.get(top - 1);
+			if (parent.childHeight < 0) {
+				parent.childHeight = blackHeight;
+			} else if (parent.childHeight != blackHeight) {
+				valid = false;
+			}
+			if (parent.pending != 0)
+				break;
+			parent.node.updateSize();
+			blackHeight = parent.childHeight + (parent.node.isRed() ? 0 : 1);
+			parent.clear();
+			top--;
+		}
+	}
+
+	private void push(NodeRedBlackTree<K> node, int children, K low, K high) {
+		if (top == stack.size())
+			stack.add(new Frame<>());
+		Frame<K> frame = stack.get(top++);
+		frame.node = node;
+		frame.pending = children;
+		// A missing child is a leaf, of black height 0
+		frame.childHeight = children == (PENDING_LEFT | PENDING_RIGHT) ? -1 : 0;
+		frame.low = low;
+		frame.high = high;
+	}
+
+	/**
+	 * Builds a balanced tree with the keys of the tree of root, sorted and
+	 * without duplicates.
+	 */
+	private static <K extends Comparable<K>> NodeRedBlackTree<K> rebuild(NodeRedBlackTree<K> root) {
+		ArrayList<K> keys = new ArrayList<>(root.getSize());
+		ArrayDeque<NodeRedBlackTree<K>> nodes = new ArrayDeque<>();
+		NodeRedBlackTree<K> node = root;
+		boolean sorted = true;
+		while (node != null || !nodes.isEmpty()) {
+			while (node != null) {
+				nodes.push(node);
+				node = node.getLeft();
+			}
+			node = nodes.pop();
+			if (!keys.isEmpty() && keys.get(keys.size() - 1).compareTo(node.getData()) >= 0)
+				sorted = false;
+			keys.add(node.getData());
+			node = node.getRight();
+		}
+		if (!sorted) {
+			Collections.sort(keys);
+			int distinct = 0;
+			for (K k : keys) {
+				if (distinct == 0 || keys.get(distinct - 1).compareTo(k) != 0)
+					keys.set(distinct++, k);
+			}
+			keys.subList(distinct, keys.size()).clear();
+		}
+		return RedBlackTree.fromSortedDistinct(keys).getRoot();
+	}
+
+	/**
+	 * A node waiting for children: which children, the black height of the ones
+	 * already read, and the open interval of the keys of its subtree, where null
+	 * is unbounded.
+	 */
+	private static final class Frame<K extends Comparable<K>> {
+		NodeRedBlackTree<K> node;
+		int pending;
+		/** Black height of the children read so far, or -1 if none */
+		int childHeight;
+		K low;
+		K high;
+
+		void clear() {
+			node = null;
+			low = null;
+			high = null;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package DynamicTreeStructures.structure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.RandomAccess;
+
+/**
+ * Binary snapshots of a {@link RedBlackTree}, written through a FileChannel and
+ * loaded through memory mapped buffers. The file is:
+ *
+ * <pre>
+ * [magic : 4 bytes][version : 4 bytes][key width : 4 bytes][size : 4 bytes]
+ * [keys in order : size * key width bytes]
+ * </pre>
+ *
+ * The keys are fixed-width {@link KeyCodec} encodings. Only the keys are kept:
+ * loading rebuilds a balanced tree with {@link RedBlackTree#fromSorted} in
+ * O(n), which recomputes the colors, so the loaded tree holds the same keys but
+ * not necessarily the same shape.
+ */
+public final class RedBlackTreeSnapshot {
+
+	private static final int MAGIC = 0x52425453; // "RBTS"
+	private static final int VERSION = 1;
+	private static final int HEADER = 16;
+	private static final int WRITE_BUFFER = 1 << 16;
+	/** Largest region mapped at once; a single mapping is limited to 2 GB */
+	private static final int DEFAULT_CHUNK_BYTES = 1 << 30;
+
+	private RedBlackTreeSnapshot() {
+	}
+
+	/**
+	 * Writes the keys of the tree to path, replacing the file if it exists. The
+	 * keys are written and forced to a temporary file of the same directory,
+	 * which is then renamed over path, so a crash leaves either the old or the
+	 * new snapshot, never a partial one.
+	 *
+	 * @param tree  the tree to save
+	 * @param codec encoding of the keys
+	 * @param path  file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static <K extends Comparable<K>> void write(RedBlackTree<K> tree, KeyCodec<K> codec, Path path)
+			throws IOException {
+		Path directory = path.toAbsolutePath().getParent();
+		Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+		try {
+			writeKeys(tree, codec, temporary);
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		forceDirectory(directory);
+	}
+
+	private static <K extends Comparable<K>> void writeKeys(RedBlackTree<K> tree, KeyCodec<K> codec, Path path)
+			throws IOException {
+		int width = codec.width();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(WRITE_BUFFER, HEADER + width));
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(tree.size());
+
+			// In-order traversal with an explicit stack
+			ArrayDeque<NodeRedBlackTree<K>> stack = new ArrayDeque<>();
+			NodeRedBlackTree<K> node = tree.getRoot();
+			while (node != null || !stack.isEmpty()) {
+				while (node != null) {
+					stack.push(node);
+					node = node.getLeft();
+				}
+				node = stack.pop();
+				if (buffer.remaining() < width)
+					flush(buffer, channel);
+				codec.write(buffer, buffer.position(), node.getData());
+				buffer.position(buffer.position() + width);
+				node = node.getRight();
+			}
+			flush(buffer, channel);
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Forces the entries of the directory to disk, so that a rename or a new
+	 * file in it survives a crash. Platforms that can't open a directory, such
+	 * as Windows, are skipped.
+	 *
+	 * @param directory the directory
+	 * @throws IOException if the directory cannot be forced
+	 */
+	static void forceDirectory(Path directory) throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(directory, StandardOpenOption.READ);
+		} catch (IOException e) {
+			return;
+		}
+		try (channel) {
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Loads a tree written by {@link #write}. The file is mapped and the tree is
+	 * built from it in O(n), without intermediate copies of the keys.
+	 *
+	 * @param path  file to read
+	 * @param codec encoding of the keys, the one used to write the file
+	 * @return the tree with the keys of the snapshot
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
+	 */
+	public static <K extends Comparable<K>> RedBlackTree<K> load(Path path, KeyCodec<K> codec) throws IOException {
+		return load(path, codec, DEFAULT_CHUNK_BYTES);
+	}
+
+	/**
+	 * @param chunkBytes maximum number of bytes of key data per mapping
+	 */
+	static <K extends Comparable<K>> RedBlackTree<K> load(Path path, KeyCodec<K> codec, int chunkBytes)
+			throws IOException {
+		int width = codec.width();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER)
+				throw new IOException("Not a tree snapshot: " + path);
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+			if (header.getInt(0) != MAGIC)
+				throw new IOException("Not a tree snapshot: " + path);
+			if (header.getInt(4) != VERSION)
+				throw new IOException("Unsupported snapshot version " + header.getInt(4));
+			if (header.getInt(8) != width)
+				throw new IOException("Snapshot keys are " + header.getInt(8) + " bytes wide, the codec expects " + width);
+			int size = header.getInt(12);
+			if (size < 0 || channel.size() != HEADER + (long) size * width)
+				throw new IOException("Truncated snapshot: " + path);
+
+			MappedKeys<K> keys = new MappedKeys<>(channel, codec, size, Math.max(1, chunkBytes / width));
+			for (int i = 1; i < size; i++) {
+				if (keys.compare(i - 1, i) >= 0)
+					throw new IOException("Snapshot keys not sorted at index " + i);
+			}
+			return RedBlackTree.fromSortedDistinct(keys);
+		}
+	}
+
+	private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * The keys of a snapshot as a list, decoded on access from read-only mappings
+	 * of at most keysPerChunk keys each.
+	 */
+	private static final class MappedKeys<K extends Comparable<K>> extends AbstractList<K> implements RandomAccess {
+		private final KeyCodec<K> codec;
+		private final int size;
+		private final int width;
+		private final int keysPerChunk;
+		private final MappedByteBuffer[] chunks;
+
+		MappedKeys(FileChannel channel, KeyCodec<K> codec, int size, int keysPerChunk) throws IOException {
+			this.codec = codec;
+			this.size = size;
+			this.width = codec.width();
+			this.keysPerChunk = keysPerChunk;
+			this.chunks = new MappedByteBuffer[(int) (((long) size + keysPerChunk - 1) / keysPerChunk)];
+			for (int i = 0; i < chunks.length; i++) {
+				long first = (long) i * keysPerChunk;
+				long count = Math.min(keysPerChunk, size - first);
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * width, count * width);
+			}
+		}
+
+		@Override
+		public K get(int index) {
+			return codec.read(chunks[index / keysPerChunk], (index % keysPerChunk) * width);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Compares the keys i and j, decoding only the key i.
+		 */
+		int compare(int i, int j) {
+			return codec.compare(get(i), chunks[j / keysPerChunk], (j % keysPerChunk) * width);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package DynamicTreeStructures.workload;
+
+import java.util.Random;
+
+/**
+ * Distributions of the keys of a workload, over the key space [0, n).
+ * Generated keys are deterministic for a given seed, so that measurements of
+ * different trees see the same keys.
+ */
+public enum KeyDistribution {
+
+	/** Every key of [0, n) with the same probability */
+	UNIFORM,
+	/** 0, 1, 2, ..., n - 1, 0, 1, ... */
+	SEQUENTIAL,
+	/**
+	 * Zipfian with exponent {@value #ZIPF_EXPONENT}, as in YCSB: key i has
+	 * probability proportional to 1 / (i + 1)^s, so the smallest keys are the hot
+	 * ones.
+	 */
+	ZIPFIAN;
+
+	public static final double ZIPF_EXPONENT = 0.99;
+
+	/**
+	 * Returns count keys of [0, n) drawn from the distribution.
+	 *
+	 * @param count number of keys
+	 * @param n     size of the key space
+	 * @param seed  seed of the random keys
+	 * @return the keys
+	 */
+	public int[] sample(int count, int n, long seed) {
+		if (n <= 0)
+			throw new IllegalArgumentException("Empty key space");
+		int[] keys = new int[count];
+		Random r = new Random(seed);
+		switch (this) {
+		case UNIFORM:
+			for (int i = 0; i < count; i++) {
+				keys[i] = r.nextInt(n);
+			}
+			break;
+		case SEQUENTIAL:
+			for (int i = 0; i < count; i++) {
+				keys[i] = i % n;
+			}
+			break;
+		case ZIPFIAN:
+			sampleZipfian(keys, n, r);
+			break;
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns the keys of [0, n) in random order.
+	 *
+	 * @param n    size of the key space
+	 * @param seed seed of the order
+	 * @return a permutation of [0, n)
+	 */
+	public static int[] permutation(int n, long seed) {
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		Random r = new Random(seed);
+		for (int i = n - 1; i > 0; i--) {
+			int j = r.nextInt(i + 1);
+			int k = keys[i];
+			keys[i] = keys[j];
+			keys[j] = k;
+		}
+		return keys;
+	}
+
+	/**
+	 * Gray et al. "Quickly generating billion-record synthetic databases", the
+	 * generator of YCSB. O(n) to set up, O(1) per key.
+	 */
+	private static void sampleZipfian(int[] keys, int n, Random r) {
+		double theta = ZIPF_EXPONENT;
+		double zetaN = 0;
+		for (int i = 1; i <= n; i++) {
+			zetaN += 1 / Math.pow(i, theta);
+		}
+		double zeta2 = 1 + 1 / Math.pow(2, theta);
+		double alpha = 1 / (1 - theta);
+		double eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetaN);
+		for (int i = 0; i < keys.length; i++) {
+			double u = r.nextDouble();
+			double uz = u * zetaN;
+			if (uz < 1) {
+				keys[i] = 0;
+			} else if (uz < 1 + Math.pow(0.5, theta)) {
+				keys[i] = Math.min(1, n - 1);
+			} else {
+				keys[i] = Math.min(n - 1, (int) (n * Math.pow(eta * u - eta + 1, alpha)));
+			}
+		}
+	}
+}
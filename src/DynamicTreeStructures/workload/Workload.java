@@ -0,0 +1,144 @@
+package DynamicTreeStructures.workload;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A sequence of insert, search and delete operations on int keys, kept in two
+ * parallel arrays so that large workloads don't allocate an object per
+ * operation.
+ *
+ * As text, a workload has one operation per line, as "insert 5", "search 5" or
+ * "delete 5". Empty lines and lines starting with # are skipped.
+ */
+public class Workload {
+
+	public static final byte INSERT = 0;
+	public static final byte SEARCH = 1;
+	public static final byte DELETE = 2;
+
+	static final String[] NAMES = { "insert", "search", "delete" };
+
+	private byte[] operations;
+	private int[] keys;
+	private int size;
+
+	public Workload() {
+		this(16);
+	}
+
+	public Workload(int capacity) {
+		this.operations = new byte[Math.max(capacity, 1)];
+		this.keys = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Generates count operations with keys drawn from distribution over [0,
+	 * keySpace). Each operation is an insert, search or delete with probability
+	 * proportional to the given weights.
+	 *
+	 * @param count        number of operations
+	 * @param keySpace     keys are in [0, keySpace)
+	 * @param distribution distribution of the keys
+	 * @param weights      weights of insert, search and delete, in this order
+	 * @param seed         seed of the operations and the keys
+	 * @return the workload
+	 */
+	public static Workload generate(int count, int keySpace, KeyDistribution distribution, int[] weights,
+			long seed) {
+		if (weights.length != NAMES.length)
+			throw new IllegalArgumentException("Expected " + NAMES.length + " weights");
+		int total = 0;
+		for (int w : weights) {
+			if (w < 0)
+				throw new IllegalArgumentException("Negative weight " + w);
+			total += w;
+		}
+		if (total == 0)
+			throw new IllegalArgumentException("All the weights are 0");
+
+		Workload workload = new Workload(count);
+		workload.keys = distribution.sample(count, keySpace, seed + 1);
+		workload.size = count;
+		Random r = new Random(seed);
+		for (int i = 0; i < count; i++) {
+			int pick = r.nextInt(total);
+			byte operation = 0;
+			while (pick >= weights[operation]) {
+				pick -= weights[operation];
+				operation++;
+			}
+			workload.operations[i] = operation;
+		}
+		return workload;
+	}
+
+	/**
+	 * Reads a workload in the text format.
+	 *
+	 * @throws IllegalArgumentException if a line is not an operation
+	 */
+	public static Workload read(Reader reader) throws IOException {
+		Workload workload = new Workload();
+		BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		String line;
+		int number = 0;
+		while ((line = lines.readLine()) != null) {
+			number++;
+			line = line.strip();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			int space = line.indexOf(' ');
+			if (space < 0)
+				throw new IllegalArgumentException("Expected an operation and a key in line " + number);
+			String name = line.substring(0, space);
+			byte operation = -1;
+			for (byte o = 0; o < NAMES.length; o++) {
+				if (NAMES[o].equals(name))
+					operation = o;
+			}
+			if (operation < 0)
+				throw new IllegalArgumentException("Unknown operation " + name + " in line " + number);
+			workload.add(operation, Integer.parseInt(line, space + 1, line.length(), 10));
+		}
+		return workload;
+	}
+
+	/**
+	 * Writes the workload in the text format.
+	 */
+	public void write(Writer writer) throws IOException {
+		for (int i = 0; i < size; i++) {
+			writer.write(NAMES[operations[i]]);
+			writer.write(' ');
+			writer.write(Integer.toString(keys[i]));
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	public void add(byte operation, int key) {
+		if (size == operations.length) {
+			operations = Arrays.copyOf(operations, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		operations[size] = operation;
+		keys[size++] = key;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public byte operation(int i) {
+		return operations[i];
+	}
+
+	public int key(int i) {
+		return keys[i];
+	}
+}
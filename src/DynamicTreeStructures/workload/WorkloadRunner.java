@@ -0,0 +1,243 @@
+package DynamicTreeStructures.workload;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+import DynamicTreeStructures.instrumentation.InstrumentedTreeStructure;
+import DynamicTreeStructures.instrumentation.LatencyHistogram;
+import DynamicTreeStructures.instrumentation.TreeCounters;
+import DynamicTreeStructures.interfaces.TreeStructure;
+import DynamicTreeStructures.structure.AVLTree;
+import DynamicTreeStructures.structure.ArrayRedBlackTree;
+import DynamicTreeStructures.structure.IntRedBlackTree;
+import DynamicTreeStructures.structure.RedBlackTree;
+import DynamicTreeStructures.structure.RootedBinaryTree;
+
+/**
+ * Headless runner of a {@link Workload} against a {@link TreeStructure}. It
+ * reports the throughput and the latency percentiles of every kind of
+ * operation:
+ *
+ * <pre>
+ * java -cp dist/dynamic-tree-structures.jar DynamicTreeStructures.workload.WorkloadRunner \
+ *     --tree RedBlackTree --generate 1000000 --distribution ZIPFIAN --mix 50,40,10
+ * java ... WorkloadRunner --tree AVLTree --script operations.txt
+ * </pre>
+ *
+ * Every operation is timed by an {@link InstrumentedTreeStructure}, which adds a
+ * few tens of nanoseconds to each latency. For throughput without that overhead, or
+ * without JIT warm-up in the numbers, use the JMH benchmarks.
+ */
+public class WorkloadRunner {
+
+	private static final String USAGE = String.join("\n",
+			"Usage: WorkloadRunner --tree NAME (--script FILE | --generate COUNT) [options]",
+			"  --tree NAME            RedBlackTree, AVLTree, RootedBinaryTree, IntRedBlackTree or ArrayRedBlackTree",
+			"  --script FILE          run the operations of FILE, one \"insert|search|delete KEY\" per line",
+			"  --generate COUNT       run COUNT generated operations",
+			"  --distribution NAME    UNIFORM (default), SEQUENTIAL or ZIPFIAN",
+			"  --keys N               generated keys are in [0, N), COUNT by default",
+			"  --mix I,S,D            weights of insert, search and delete, 100,0,0 by default",
+			"  --seed SEED            seed of the generated operations, 42 by default",
+			"  --write FILE           also save the generated operations to FILE",
+			"  --warmup RUNS          runs on fresh trees before the measured one, 0 by default",
+			"Run with -DDynamicTreeStructures.counters=true to also print the structural counters of the tree.");
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private final Supplier<TreeStructure<?, Integer>> trees;
+
+	private InstrumentedTreeStructure<?, Integer> measured;
+	/** Wall-clock time of the last run, in nanoseconds */
+	private long elapsed;
+
+	/**
+	 * @param trees creates the empty tree of every run
+	 */
+	public WorkloadRunner(Supplier<TreeStructure<?, Integer>> trees) {
+		this.trees = trees;
+	}
+
+	/**
+	 * Runs the workload on a new tree, recording the latency of every operation.
+	 *
+	 * @return the tree after the workload
+	 */
+	public TreeStructure<?, Integer> run(Workload workload) {
+		TreeStructure<?, Integer> tree = trees.get();
+		measured = new InstrumentedTreeStructure<>(tree);
+		int n = workload.size();
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			int key = workload.key(i);
+			switch (workload.operation(i)) {
+			case Workload.INSERT:
+				measured.insert(key);
+				break;
+			case Workload.SEARCH:
+				measured.search(key);
+				break;
+			default:
+				measured.delete(key);
+				break;
+			}
+		}
+		elapsed = System.nanoTime() - start;
+		return tree;
+	}
+
+	/**
+	 * Latency histogram of an operation in the last run, in nanoseconds.
+	 *
+	 * @param operation one of the operations of {@link Workload}
+	 */
+	public LatencyHistogram latencies(byte operation) {
+		switch (operation) {
+		case Workload.INSERT:
+			return measured.inserts();
+		case Workload.SEARCH:
+			return measured.searches();
+		default:
+			return measured.deletes();
+		}
+	}
+
+	/**
+	 * Prints the throughput and the latency percentiles of the last run. The
+	 * throughput is measured on the wall clock, including the timing and the
+	 * workload loop; the one inside the tree only counts the timed operations.
+	 */
+	public void report(String name, PrintStream out) {
+		long n = measured.operations();
+		out.printf("%s: %d operations in %.3f ms, %.0f operations/s, %.0f operations/s inside the tree%n", name, n,
+				elapsed / 1e6, elapsed <= 0 ? 0.0 : n * 1e9 / elapsed, measured.treeThroughput());
+		out.printf("%-8s %10s %10s %10s %10s %10s %10s%n", "", "count", "p50", "p90", "p99", "p99.9", "max (ns)");
+		for (byte o = 0; o < Workload.NAMES.length; o++) {
+			LatencyHistogram histogram = latencies(o);
+			if (histogram.count() == 0)
+				continue;
+			out.printf("%-8s %10d", Workload.NAMES[o], histogram.count());
+			for (double p : PERCENTILES) {
+				out.printf(" %10d", histogram.percentile(p));
+			}
+			out.printf(" %10d%n", histogram.max());
+		}
+	}
+
+	static Supplier<TreeStructure<?, Integer>> trees(String name) {
+		switch (name) {
+		case "RedBlackTree":
+			return RedBlackTree::new;
+		case "AVLTree":
+			return AVLTree::new;
+		case "RootedBinaryTree":
+			return RootedBinaryTree::new;
+		case "IntRedBlackTree":
+			return IntRedBlackTree::new;
+		case "ArrayRedBlackTree":
+			return ArrayRedBlackTree::new;
+		default:
+			throw new IllegalArgumentException("Unknown tree " + name);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		try {
+			run(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+	}
+
+	private static void run(String[] args) throws IOException {
+		String tree = null;
+		String script = null;
+		String write = null;
+		int count = -1;
+		int keys = -1;
+		int warmup = 0;
+		long seed = 42;
+		KeyDistribution distribution = KeyDistribution.UNIFORM;
+		int[] mix = { 100, 0, 0 };
+		for (int i = 0; i < args.length; i++) {
+			if (i + 1 == args.length)
+				throw new IllegalArgumentException("Missing value of " + args[i]);
+			String value = args[++i];
+			switch (args[i - 1]) {
+			case "--tree":
+				tree = value;
+				break;
+			case "--script":
+				script = value;
+				break;
+			case "--generate":
+				count = Integer.parseInt(value);
+				break;
+			case "--distribution":
+				distribution = KeyDistribution.valueOf(value.toUpperCase());
+				break;
+			case "--keys":
+				keys = Integer.parseInt(value);
+				break;
+			case "--mix":
+				String[] weights = value.split(",");
+				if (weights.length != mix.length)
+					throw new IllegalArgumentException("--mix takes " + mix.length + " weights");
+				for (int w = 0; w < mix.length; w++) {
+					mix[w] = Integer.parseInt(weights[w].strip());
+				}
+				break;
+			case "--seed":
+				seed = Long.parseLong(value);
+				break;
+			case "--write":
+				write = value;
+				break;
+			case "--warmup":
+				warmup = Integer.parseInt(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+			}
+		}
+		if (tree == null || (script == null) == (count < 0))
+			throw new IllegalArgumentException("Expected --tree and either --script or --generate");
+
+		Workload workload;
+		if (script != null) {
+			try (BufferedReader reader = Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8)) {
+				workload = Workload.read(reader);
+			}
+		} else {
+			workload = Workload.generate(count, keys < 0 ? Math.max(count, 1) : keys, distribution, mix, seed);
+			if (write != null) {
+				try (BufferedWriter writer = Files.newBufferedWriter(Path.of(write), StandardCharsets.UTF_8)) {
+					workload.write(writer);
+				}
+			}
+		}
+
+		WorkloadRunner runner = new WorkloadRunner(trees(tree));
+		for (int i = 0; i < warmup; i++) {
+			runner.run(workload);
+		}
+		TreeStructure<?, Integer> result = runner.run(workload);
+		runner.report(tree, System.out);
+		TreeCounters counters = null;
+		if (result instanceof RedBlackTree) {
+			counters = ((RedBlackTree<?>) result).getCounters();
+		} else if (result instanceof AVLTree) {
+			counters = ((AVLTree<?>) result).getCounters();
+		}
+		if (counters != null)
+			System.out.println(counters);
+	}
+}
@@ -0,0 +1,68 @@
+package DynamicTreeStructures.instrumentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.constraints.LongRange;
+
+public class LatencyHistogramTest {
+
+	@Property
+	void bucketsCoverTheirValues(@ForAll @LongRange(min = 0, max = Long.MAX_VALUE) long value) {
+		int index = LatencyHistogram.index(value);
+		assertTrue(value <= LatencyHistogram.highestValue(index));
+		assertTrue(index == 0 || value > LatencyHistogram.highestValue(index - 1));
+		// Relative error below 1 / SUB_BUCKETS
+		assertTrue(LatencyHistogram.highestValue(index) - value <= value / LatencyHistogram.SUB_BUCKETS);
+	}
+
+	/**
+	 * Log-normal values, like latencies.
+	 */
+	@Provide
+	Arbitrary<List<Long>> latencies() {
+		return Arbitraries.randomValue(random -> (long) Math.exp(5 + 2 * random.nextGaussian())).list()
+				.ofMinSize(1).ofMaxSize(5000);
+	}
+
+	@Property(tries = 100)
+	void percentilesWithinRelativeError(@ForAll("latencies") List<Long> latencies) {
+		long[] values = new long[latencies.size()];
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < values.length; i++) {
+			values[i] = latencies.get(i);
+			histogram.record(values[i]);
+		}
+		Arrays.sort(values);
+		for (double p : new double[] { 50, 90, 99, 99.9, 100 }) {
+			long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+			long reported = histogram.percentile(p);
+			assertTrue(reported >= exact);
+			assertTrue(reported - exact <= exact / LatencyHistogram.SUB_BUCKETS);
+		}
+		assertEquals(values[values.length - 1], histogram.max());
+		assertEquals(values.length, histogram.count());
+	}
+
+	@Example
+	void emptyAndReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentile(99));
+		histogram.record(-5);
+		histogram.record(1000);
+		assertEquals(2, histogram.count());
+		assertEquals(0, histogram.percentile(50));
+		histogram.reset();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.max());
+	}
+}
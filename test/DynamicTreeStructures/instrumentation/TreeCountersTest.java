@@ -0,0 +1,55 @@
+package DynamicTreeStructures.instrumentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import DynamicTreeStructures.structure.AVLTree;
+import DynamicTreeStructures.structure.RedBlackTree;
+import net.jqwik.api.Example;
+
+/**
+ * The counters only exist with -DDynamicTreeStructures.counters=true; without
+ * it, this checks that the trees don't allocate them.
+ */
+public class TreeCountersTest {
+
+	@Example
+	void redBlackTreeCounters() {
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(i);
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			tree.delete(i);
+		}
+		TreeCounters counters = tree.getCounters();
+		if (!TreeCounters.ENABLED) {
+			assertNull(counters);
+			return;
+		}
+		assertEquals(1500, counters.operations());
+		assertTrue(counters.rotations() > 0);
+		assertTrue(counters.splits() > 0);
+		assertTrue(counters.merges() + counters.borrows() > 0);
+		assertTrue(counters.comparisons() >= counters.operations());
+	}
+
+	@Example
+	void avlTreeCounters() {
+		AVLTree<Integer> tree = new AVLTree<>();
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(i);
+			tree.search(i);
+		}
+		TreeCounters counters = tree.getCounters();
+		if (!TreeCounters.ENABLED) {
+			assertNull(counters);
+			return;
+		}
+		assertEquals(2000, counters.operations());
+		// Sequential keys need one rotation per rebalancing
+		assertEquals(counters.rebalances(), counters.rotations());
+		assertTrue(counters.rotations() > 0);
+	}
+}
@@ -0,0 +1,71 @@
+package DynamicTreeStructures.instrumentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import DynamicTreeStructures.structure.AVLTree;
+import DynamicTreeStructures.structure.RedBlackTree;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.jqwik.api.Example;
+
+public class TreeOperationEventTest {
+
+	private static final String EVENT = "DynamicTreeStructures.TreeOperation";
+
+	@Example
+	void operationsAreRecorded() throws IOException {
+		// Nothing is allocated or measured without a recording
+		assertNull(TreeOperationEvent.start());
+		List<RecordedEvent> events;
+		try (Recording recording = new Recording()) {
+			recording.enable(EVENT).withThreshold(Duration.ZERO);
+			recording.start();
+			RedBlackTree<Integer> redBlack = new RedBlackTree<>();
+			AVLTree<Integer> avl = new AVLTree<>();
+			for (int i = 0; i < 100; i++) {
+				redBlack.insert(i);
+				avl.insert(i);
+			}
+			redBlack.search(50);
+			avl.search(50);
+			redBlack.delete(50);
+			avl.delete(50);
+			redBlack.deleteMin();
+			recording.stop();
+			Path file = Files.createTempFile("operations", ".jfr");
+			try {
+				recording.dump(file);
+				events = RecordingFile.readAllEvents(file);
+			} finally {
+				Files.delete(file);
+			}
+		}
+
+		int rotations = 0;
+		int searches = 0;
+		for (RecordedEvent event : events) {
+			assertEquals(EVENT, event.getEventType().getName());
+			rotations += event.getInt("rotations");
+			String operation = event.getString("operation");
+			if (operation.equals("search"))
+				searches++;
+			// 100 keys are at most 9 levels deep in an AVL tree, 12 in a red black one.
+			// Only the first insertion finds an empty tree.
+			assertTrue(event.getInt("depth") <= 12);
+			if (!operation.equals("insert"))
+				assertTrue(operation, event.getInt("depth") >= 1);
+		}
+		assertEquals(205, events.size());
+		assertEquals(2, searches);
+		assertTrue(rotations > 0);
+	}
+}
@@ -0,0 +1,72 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TYPE;
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TreeAdapter;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple.Tuple2;
+
+public class AVLTreeTest {
+
+	@Provide
+	Arbitrary<List<Tuple2<TYPE, Integer>>> operations() {
+		return RedBlackPropertiesTest.operations(200, 1000, false);
+	}
+
+	@Property
+	void sameKeysAsTreeSet(@ForAll("operations") List<Tuple2<TYPE, Integer>> operations) {
+		AVLTree<Integer> tree = new AVLTree<>();
+		TreeSet<Integer> model = RedBlackPropertiesTest.checkAgainstModel(new TreeAdapter() {
+
+			@Override
+			public void insert(int key) {
+				tree.insert(key);
+			}
+
+			@Override
+			public Integer delete(int key) {
+				return tree.delete(key);
+			}
+
+			@Override
+			public Integer search(int key) {
+				return tree.search(key);
+			}
+
+			@Override
+			public int size() {
+				return tree.size();
+			}
+		}, operations);
+		assertEquals(model.size(), checkBalanced(tree.getRoot(), null, null));
+	}
+
+	/**
+	 * Checks the order, the heights and the balance of the subtree, keys in (lo,
+	 * hi).
+	 *
+	 * @return the number of nodes of the subtree
+	 */
+	private static int checkBalanced(NodeAVLTree<Integer> node, Integer lo, Integer hi) {
+		if (node == null)
+			return 0;
+		assertTrue(lo == null || node.getData() > lo);
+		assertTrue(hi == null || node.getData() < hi);
+		assertEquals(height(node), node.getHeight());
+		assertTrue(Math.abs(node.getFactor()) <= 1);
+		return 1 + checkBalanced(node.getLeft(), lo, node.getData())
+				+ checkBalanced(node.getRight(), node.getData(), hi);
+	}
+
+	private static int height(NodeAVLTree<Integer> node) {
+		return node == null ? 0 : 1 + Math.max(height(node.getLeft()), height(node.getRight()));
+	}
+}
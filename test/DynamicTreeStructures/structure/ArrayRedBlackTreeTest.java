@@ -0,0 +1,83 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.SortedSet;
+
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TYPE;
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TreeAdapter;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple.Tuple2;
+
+public class ArrayRedBlackTreeTest {
+
+	@Provide
+	Arbitrary<List<Tuple2<TYPE, Integer>>> operations() {
+		return RedBlackPropertiesTest.operations(100, 500, true);
+	}
+
+	/**
+	 * The array tree runs the same algorithm as the object trees, so after the
+	 * same operations it must have exactly the same shape and colors.
+	 */
+	@Property(tries = 200)
+	void sameTreeAsRedBlackTree(@ForAll("operations") List<Tuple2<TYPE, Integer>> operations) {
+		ArrayRedBlackTree tree = new ArrayRedBlackTree(4);
+		RedBlackPropertiesTest.checkAgainstModel(new ArrayTreeAdapter(tree) {
+
+			private int maxSize;
+
+			@Override
+			public void check(SortedSet<Integer> model) {
+				maxSize = Math.max(maxSize, model.size());
+				assertTrue("Freed slots are not reused", tree.capacity() <= Math.max(4, maxSize * 3 / 2 + 1));
+			}
+		}, operations);
+	}
+
+	/**
+	 * The primitive operations of an array tree.
+	 */
+	static class ArrayTreeAdapter implements TreeAdapter {
+
+		private final ArrayRedBlackTree tree;
+
+		ArrayTreeAdapter(ArrayRedBlackTree tree) {
+			this.tree = tree;
+		}
+
+		@Override
+		public void insert(int key) {
+			tree.insert(key);
+		}
+
+		@Override
+		public Integer delete(int key) {
+			return tree.delete(key) ? key : null;
+		}
+
+		@Override
+		public Integer search(int key) {
+			return tree.contains(key) ? key : null;
+		}
+
+		@Override
+		public int size() {
+			return tree.size();
+		}
+
+		@Override
+		public Integer deleteMin() {
+			return tree.deleteMin();
+		}
+
+		@Override
+		public String shape() {
+			return tree.toString();
+		}
+	}
+}
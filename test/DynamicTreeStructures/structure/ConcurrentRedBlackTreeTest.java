@@ -0,0 +1,126 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.jqwik.api.Example;
+
+public class ConcurrentRedBlackTreeTest {
+
+	/**
+	 * The odd keys are never deleted, so the readers must always find them while
+	 * the writers insert and delete the even keys.
+	 */
+	@Example
+	void readersSeeStableKeysWhileWritersRun() throws InterruptedException {
+		ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>();
+		int n = 2000;
+		for (int i = 1; i < n; i += 2) {
+			tree.insert(i);
+		}
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int w = 0; w < 2; w++) {
+			int seed = w;
+			threads.add(new Thread(() -> {
+				int k = seed * 2;
+				while (!stop.get()) {
+					tree.insert(k);
+					tree.delete((k + n / 2) % n);
+					k = (k + 4) % n;
+				}
+			}));
+		}
+		for (int r = 0; r < 4; r++) {
+			threads.add(new Thread(() -> {
+				try {
+					for (int round = 0; round < 200; round++) {
+						for (int i = 1; i < n; i += 2) {
+							assertEquals(Integer.valueOf(i), tree.search(i));
+						}
+						Integer next = tree.successor(n / 2);
+						assertTrue(next != null && next <= n / 2 + 2);
+						List<Integer> odd = new ArrayList<>();
+						tree.range(100, 200, k -> {
+							if (k % 2 == 1)
+								odd.add(k);
+						});
+						assertEquals(50, odd.size());
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}));
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads.subList(2, threads.size())) {
+			t.join();
+		}
+		stop.set(true);
+		for (Thread t : threads.subList(0, 2)) {
+			t.join();
+		}
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+		assertTrue(RedBlackPropertiesTest.checkSizes(new RedBlackTree<>(tree.getRoot())));
+	}
+
+	/**
+	 * A long scan falls back to the read lock, which must be released before the
+	 * consumer runs or a consumer that updates the tree would deadlock.
+	 */
+	@Example
+	void rangeConsumerMayUpdateTheTree() {
+		ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>();
+		int n = 3000;
+		for (int i = 0; i < n; i++) {
+			tree.insert(i);
+		}
+		List<Integer> seen = new ArrayList<>();
+		tree.range(0, n, k -> {
+			seen.add(k);
+			tree.delete(k);
+		});
+		assertEquals(n, seen.size());
+		assertEquals(0, tree.size());
+	}
+
+	@Example
+	void compareToFailuresReachTheCaller() {
+		ConcurrentRedBlackTree<Key> tree = new ConcurrentRedBlackTree<>();
+		tree.insert(new Key(1));
+		try {
+			tree.search(new Key(-1));
+			fail("Swallowed the compareTo exception");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Refuses to compare negative values.
+	 */
+	private static final class Key implements Comparable<Key> {
+		private final int value;
+
+		Key(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public int compareTo(Key o) {
+			if (value < 0 || o.value < 0)
+				throw new IllegalArgumentException("Negative key");
+			return Integer.compare(value, o.value);
+		}
+	}
+}
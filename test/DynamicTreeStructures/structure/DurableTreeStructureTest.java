@@ -0,0 +1,181 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TYPE;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple.Tuple2;
+
+public class DurableTreeStructureTest {
+
+	/**
+	 * Four rounds of updates, one for each time the tree is opened.
+	 */
+	@Provide
+	Arbitrary<List<List<Tuple2<TYPE, Integer>>>> rounds() {
+		return RedBlackPropertiesTest.operations(200, 300, false).list().ofSize(4);
+	}
+
+	/**
+	 * Reopens the tree several times, with checkpoints of a small log, and
+	 * compares it with the model.
+	 */
+	@Property(tries = 20)
+	void recoversTheUpdates(@ForAll("rounds") List<List<Tuple2<TYPE, Integer>>> rounds) throws IOException {
+		HashSet<Integer> model = new HashSet<>();
+		Path directory = Files.createTempDirectory("durable");
+		try {
+			for (List<Tuple2<TYPE, Integer>> round : rounds) {
+				try (DurableTreeStructure<NodeRedBlackTree<Integer>, Integer> tree = DurableTreeStructure
+						.open(KeyCodec.INT, directory, 9 * 50)) {
+					assertEquals(model, keys(tree));
+					for (Tuple2<TYPE, Integer> operation : round) {
+						int k = operation.get2();
+						if (operation.get1() == TYPE.DELETE) {
+							tree.delete(k);
+							model.remove(k);
+						} else {
+							tree.insert(k);
+							model.add(k);
+						}
+					}
+					assertTrue(tree.logBytes() < 9 * 50);
+				}
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Example
+	void discardsATornRecord() throws IOException {
+		Path directory = Files.createTempDirectory("durable");
+		try {
+			try (DurableTreeStructure<NodeRedBlackTree<Long>, Long> tree = new DurableTreeStructure<>(
+					new RedBlackTree<>(), KeyCodec.LONG, directory)) {
+				tree.insert(1L);
+				tree.insert(2L);
+			}
+			// A crash in the middle of the third record
+			try (FileChannel log = FileChannel.open(directory.resolve(DurableTreeStructure.LOG),
+					StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+				log.write(ByteBuffer.wrap(new byte[] { 1, 0, 0 }));
+			}
+			try (DurableTreeStructure<NodeRedBlackTree<Long>, Long> tree = new DurableTreeStructure<>(
+					new RedBlackTree<>(), KeyCodec.LONG, directory)) {
+				assertEquals(Long.valueOf(1), tree.search(1L));
+				assertEquals(Long.valueOf(2), tree.search(2L));
+				assertEquals(2 * 13, tree.logBytes());
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+
+	/**
+	 * A crash can leave whole records that were never written: zero-filled, or
+	 * with garbage. Their checksum ends the log.
+	 */
+	@Example
+	void discardsRecordsWithABadChecksum() throws IOException {
+		Path directory = Files.createTempDirectory("durable");
+		try {
+			try (DurableTreeStructure<NodeRedBlackTree<Long>, Long> tree = new DurableTreeStructure<>(
+					new RedBlackTree<>(), KeyCodec.LONG, directory)) {
+				tree.insert(1L);
+				tree.insert(2L);
+			}
+			byte[] garbage = new byte[2 * 13];
+			new Random(42).nextBytes(garbage);
+			garbage[0] = 1;
+			Arrays.fill(garbage, 13, 2 * 13, (byte) 0);
+			try (FileChannel log = FileChannel.open(directory.resolve(DurableTreeStructure.LOG),
+					StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+				log.write(ByteBuffer.wrap(garbage));
+			}
+			try (DurableTreeStructure<NodeRedBlackTree<Long>, Long> tree = new DurableTreeStructure<>(
+					new RedBlackTree<>(), KeyCodec.LONG, directory)) {
+				assertEquals(2 * 13, tree.logBytes());
+				tree.insert(3L);
+			}
+			try (DurableTreeStructure<NodeRedBlackTree<Long>, Long> tree = new DurableTreeStructure<>(
+					new RedBlackTree<>(), KeyCodec.LONG, directory)) {
+				assertEquals(Long.valueOf(1), tree.search(1L));
+				assertEquals(Long.valueOf(2), tree.search(2L));
+				assertEquals(Long.valueOf(3), tree.search(3L));
+				assertEquals(3 * 13, tree.logBytes());
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Example
+	void groupCommitFromSeveralThreads() throws Exception {
+		Path directory = Files.createTempDirectory("durable");
+		try {
+			try (DurableTreeStructure<NodeRedBlackTree<Integer>, Integer> tree = DurableTreeStructure
+					.open(KeyCodec.INT, directory, 0)) {
+				Thread[] threads = new Thread[4];
+				for (int t = 0; t < threads.length; t++) {
+					int first = t * 1000;
+					threads[t] = new Thread(() -> {
+						for (int k = first; k < first + 1000; k++) {
+							tree.insert(k);
+						}
+					});
+					threads[t].start();
+				}
+				for (Thread thread : threads) {
+					thread.join();
+				}
+			}
+			try (DurableTreeStructure<NodeRedBlackTree<Integer>, Integer> tree = DurableTreeStructure
+					.open(KeyCodec.INT, directory, 0)) {
+				assertEquals(4000, keys(tree).size());
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+
+	private static HashSet<Integer> keys(DurableTreeStructure<NodeRedBlackTree<Integer>, Integer> tree) {
+		HashSet<Integer> keys = new HashSet<>();
+		collect(tree.getRoot(), keys);
+		return keys;
+	}
+
+	private static void collect(NodeRedBlackTree<Integer> node, HashSet<Integer> keys) {
+		if (node == null)
+			return;
+		keys.add(node.getData());
+		collect(node.getLeft(), keys);
+		collect(node.getRight(), keys);
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+}
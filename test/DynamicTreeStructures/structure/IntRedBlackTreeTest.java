@@ -0,0 +1,39 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TYPE;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple.Tuple2;
+
+public class IntRedBlackTreeTest {
+
+	@Provide
+	Arbitrary<List<Tuple2<TYPE, Integer>>> operations() {
+		return RedBlackPropertiesTest.operations(100, 500, true);
+	}
+
+	@Property(tries = 200)
+	void matchesTreeSet(@ForAll("operations") List<Tuple2<TYPE, Integer>> operations) {
+		IntRedBlackTree tree = new IntRedBlackTree();
+		// The primitive operations are the ones of the array tree
+		TreeSet<Integer> model = RedBlackPropertiesTest
+				.checkAgainstModel(new ArrayRedBlackTreeTest.ArrayTreeAdapter(tree), operations);
+		List<Integer> contents = new ArrayList<>();
+		tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, contents::add);
+		assertEquals(new ArrayList<>(model), contents);
+		for (int k = -1; k < 100; k++) {
+			Integer expected = model.higher(k);
+			assertEquals(expected != null, tree.hasSuccessor(k));
+			if (expected != null)
+				assertEquals(expected.intValue(), tree.successor(k));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TYPE;
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TreeAdapter;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple.Tuple2;
+
+public class OffHeapRedBlackTreeTest {
+
+	@Provide
+	Arbitrary<List<Tuple2<TYPE, Integer>>> operations() {
+		return RedBlackPropertiesTest.operations(100, 500, false);
+	}
+
+	/**
+	 * Normally distributed keys, with many distinct bit patterns.
+	 */
+	@Provide
+	Arbitrary<List<Double>> gaussians() {
+		return Arbitraries.randomValue(random -> random.nextGaussian()).list().ofSize(200);
+	}
+
+	/**
+	 * Small chunks, so that the tree spans several buffers.
+	 */
+	@Property(tries = 100)
+	void sameTreeAsRedBlackTree(@ForAll("operations") List<Tuple2<TYPE, Integer>> operations) {
+		try (OffHeapRedBlackTree<Long> tree = new OffHeapRedBlackTree<>(KeyCodec.LONG, 3)) {
+			RedBlackPropertiesTest.checkAgainstModel(new TreeAdapter() {
+
+				@Override
+				public void insert(int key) {
+					tree.insert((long) key);
+				}
+
+				@Override
+				public Integer delete(int key) {
+					Long deleted = tree.delete((long) key);
+					return deleted == null ? null : deleted.intValue();
+				}
+
+				@Override
+				public Integer search(int key) {
+					Long found = tree.search((long) key);
+					return found == null ? null : found.intValue();
+				}
+
+				@Override
+				public int size() {
+					return tree.size();
+				}
+
+				@Override
+				public String shape() {
+					return tree.toString();
+				}
+			}, operations);
+		}
+	}
+
+	@Property(tries = 20)
+	void doubleKeys(@ForAll("gaussians") List<Double> keys) {
+		TreeSet<Double> model = new TreeSet<>();
+		OffHeapRedBlackTree<Double> tree = new OffHeapRedBlackTree<>(KeyCodec.DOUBLE);
+		for (Double k : keys) {
+			tree.insert(k);
+			model.add(k);
+		}
+		for (Double k : model) {
+			assertEquals(k, tree.search(k));
+		}
+		assertNull(tree.search(Double.NaN));
+		int root = tree.getRoot();
+		tree.close();
+		try {
+			tree.insert(0.0);
+			fail("Used a closed tree");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			tree.key(root);
+			fail("Read a closed tree");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
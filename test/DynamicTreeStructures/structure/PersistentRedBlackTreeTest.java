@@ -0,0 +1,79 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TYPE;
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TreeAdapter;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple.Tuple2;
+import net.jqwik.api.constraints.IntRange;
+import net.jqwik.api.constraints.Size;
+
+public class PersistentRedBlackTreeTest {
+
+	@Provide
+	Arbitrary<List<Tuple2<TYPE, Integer>>> operations() {
+		return RedBlackPropertiesTest.operations(100, 500, false);
+	}
+
+	/**
+	 * Takes snapshots while updating the tree, and checks at the end that every
+	 * snapshot still has the contents it had when it was taken.
+	 */
+	@Property(tries = 200)
+	void snapshotsDoNotChange(@ForAll("operations") List<Tuple2<TYPE, Integer>> operations,
+			@ForAll @Size(max = 25) Set<@IntRange(max = 499) Integer> snapshotAfter) {
+		PersistentRedBlackTree<Integer> tree = new PersistentRedBlackTree<>();
+		List<PersistentRedBlackTree<Integer>> snapshots = new ArrayList<>();
+		List<List<Integer>> expected = new ArrayList<>();
+		RedBlackPropertiesTest.checkAgainstModel(new TreeAdapter() {
+
+			private int operation;
+
+			@Override
+			public void insert(int key) {
+				tree.insert(key);
+			}
+
+			@Override
+			public Integer delete(int key) {
+				return tree.delete(key);
+			}
+
+			@Override
+			public Integer search(int key) {
+				return tree.search(key);
+			}
+
+			@Override
+			public int size() {
+				return tree.size();
+			}
+
+			@Override
+			public void check(SortedSet<Integer> model) {
+				assertTrue("Not a red-black tree", RedBlackPropertiesTest.checkColors(tree.getRoot(),
+						NodePersistentRedBlackTree::getLeft, NodePersistentRedBlackTree::getRight,
+						NodePersistentRedBlackTree::isRed));
+				if (snapshotAfter.contains(operation++)) {
+					snapshots.add(tree.snapshot());
+					expected.add(new ArrayList<>(model));
+				}
+			}
+		}, operations);
+		for (int i = 0; i < snapshots.size(); i++) {
+			List<Integer> contents = new ArrayList<>();
+			snapshots.get(i).range(Integer.MIN_VALUE, Integer.MAX_VALUE, contents::add);
+			assertEquals(expected.get(i), contents);
+		}
+	}
+}
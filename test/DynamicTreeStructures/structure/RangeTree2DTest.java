@@ -0,0 +1,72 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TYPE;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple.Tuple2;
+import net.jqwik.api.constraints.IntRange;
+import net.jqwik.api.constraints.Size;
+
+public class RangeTree2DTest {
+
+	/**
+	 * Insertions and deletions of the points of a 20 x 20 grid, so that many
+	 * points share the same x or y. Key k is the point (k / 20, k % 20).
+	 */
+	@Provide
+	Arbitrary<List<Tuple2<TYPE, Integer>>> operations() {
+		return RedBlackPropertiesTest.operations(400, 300, false);
+	}
+
+	@Property(tries = 200)
+	void queriesMatchBruteForce(@ForAll("operations") List<Tuple2<TYPE, Integer>> operations,
+			@ForAll @Size(80) List<@IntRange(min = -1, max = 20) Integer> bounds) {
+		RangeTree2D<Integer, Integer> tree = new RangeTree2D<>();
+		HashSet<Point2D<Integer, Integer>> model = new HashSet<>();
+		for (Tuple2<TYPE, Integer> operation : operations) {
+			Point2D<Integer, Integer> point = new Point2D<>(operation.get2() / 20, operation.get2() % 20);
+			if (operation.get1() == TYPE.DELETE) {
+				Point2D<Integer, Integer> deleted = tree.delete(point);
+				assertEquals(model.remove(point) ? point : null, deleted);
+			} else {
+				tree.insert(point);
+				model.add(point);
+			}
+			assertEquals(model.size(), tree.size());
+		}
+		for (int i = 0; i < bounds.size(); i += 4) {
+			int x1 = bounds.get(i);
+			int x2 = bounds.get(i + 1);
+			int y1 = bounds.get(i + 2);
+			int y2 = bounds.get(i + 3);
+			checkQuery(tree, model, Math.min(x1, x2), Math.max(x1, x2), Math.min(y1, y2), Math.max(y1, y2));
+		}
+		for (Point2D<Integer, Integer> point : model) {
+			assertEquals(point, tree.search(point));
+		}
+		assertNull(tree.search(new Point2D<>(-1, -1)));
+		assertTrue("Primary tree is not a red-black tree", RedBlackPropertiesTest.checkColors(tree.getRoot(),
+				NodeRangeTree2D::getLeft, NodeRangeTree2D::getRight, NodeRangeTree2D::isRed));
+	}
+
+	private static void checkQuery(RangeTree2D<Integer, Integer> tree, HashSet<Point2D<Integer, Integer>> model,
+			int xLow, int xHigh, int yLow, int yHigh) {
+		HashSet<Point2D<Integer, Integer>> expected = new HashSet<>();
+		for (Point2D<Integer, Integer> point : model) {
+			if (point.getX() >= xLow && point.getX() <= xHigh && point.getY() >= yLow && point.getY() <= yHigh)
+				expected.add(point);
+		}
+		List<Point2D<Integer, Integer>> actual = tree.query(xLow, xHigh, yLow, yHigh);
+		assertEquals("Duplicated points reported", expected.size(), actual.size());
+		assertEquals(expected, new HashSet<>(actual));
+	}
+}
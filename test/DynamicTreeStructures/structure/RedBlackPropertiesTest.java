@@ -1,5 +1,7 @@
 package DynamicTreeStructures.structure;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.lang.reflect.Array;
@@ -10,15 +12,24 @@ import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.concurrent.ThreadLocalRandom;
 
 import net.jqwik.api.Arbitraries;
 import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Combinators;
+import net.jqwik.api.Example;
 import net.jqwik.api.ForAll;
 import net.jqwik.api.Property;
 import net.jqwik.api.Provide;
 import net.jqwik.api.Tuple;
+import net.jqwik.api.Tuple.Tuple2;
+import net.jqwik.api.Tuple.Tuple3;
 
 public class RedBlackPropertiesTest {
 
@@ -55,7 +66,7 @@ public class RedBlackPropertiesTest {
 	 */
 
 	enum TYPE {
-		INSERT, DELETEMIN
+		INSERT, DELETE, DELETEMIN
 	}
 
 	@Provide
@@ -127,6 +138,30 @@ public class RedBlackPropertiesTest {
 		});
 	}
 
+	/**
+	 * This generator creates a random sequence of insertions, deletions and, if
+	 * deleteMins, deletions of the minimum. The keys are in [0, keys), so that the
+	 * deletions find their key most of the time. The other tests of the package
+	 * provide it to run the same workloads on their own structures.
+	 * 
+	 * @param keys       number of distinct keys
+	 * @param maxSize    maximum number of operations
+	 * @param deleteMins whether to generate deletions of the minimum
+	 * @return sequences of (operation, key), the key is ignored by DELETEMIN
+	 */
+	public static Arbitrary<List<Tuple2<TYPE, Integer>>> operations(int keys, int maxSize, boolean deleteMins) {
+		Arbitrary<TYPE> types = deleteMins
+				? Arbitraries.frequency(Tuple.of(2, TYPE.INSERT), Tuple.of(1, TYPE.DELETE), Tuple.of(1, TYPE.DELETEMIN))
+				: Arbitraries.frequency(Tuple.of(2, TYPE.INSERT), Tuple.of(1, TYPE.DELETE));
+		Arbitrary<Integer> key = Arbitraries.integers().between(0, keys - 1);
+		return Combinators.combine(types, key).as(Tuple::of).list().ofMaxSize(maxSize);
+	}
+
+	@Provide
+	Arbitrary<List<Tuple2<TYPE, Integer>>> operations() {
+		return operations(200, 1000, false);
+	}
+
 	/**
 	 * TESTS
 	 */
@@ -278,31 +313,46 @@ public class RedBlackPropertiesTest {
 	}
 
 	public static <K extends Comparable<K>> boolean checkRedNodesHaveBlackChildren(RedBlackTree<K> rbt) {
-		NodeRedBlackTree<K> root = rbt.getRoot();
+		return checkRedNodesHaveBlackChildren(rbt.getRoot(), NodeRedBlackTree::getLeft, NodeRedBlackTree::getRight,
+				NodeRedBlackTree::isRed);
+	}
+
+	/**
+	 * The two color checks, red nodes have black children and every path has the
+	 * same black nodes, for the red black trees with their own node type.
+	 */
+	public static <N> boolean checkColors(N root, UnaryOperator<N> left, UnaryOperator<N> right, Predicate<N> isRed) {
+		return checkRedNodesHaveBlackChildren(root, left, right, isRed)
+				&& checkBlackNodesInPath(root, left, right, isRed);
+	}
+
+	private static <N> boolean checkRedNodesHaveBlackChildren(N root, UnaryOperator<N> left, UnaryOperator<N> right,
+			Predicate<N> isRed) {
 		if (root == null) {
 			// Tree is empty
 			return true;
 		}
 		// We are going to do a recursive DFS traversal
-		return redPropertySatisfied(root);
+		return redPropertySatisfied(root, left, right, isRed);
 	}
 
-	private static <K extends Comparable<K>> boolean redPropertySatisfied(NodeRedBlackTree<K> root) {
+	private static <N> boolean redPropertySatisfied(N root, UnaryOperator<N> left, UnaryOperator<N> right,
+			Predicate<N> isRed) {
 		if (root == null)
 			return true;
-		NodeRedBlackTree<K> leftChild = root.getLeft();
-		NodeRedBlackTree<K> rightChild = root.getRight();
+		N leftChild = left.apply(root);
+		N rightChild = right.apply(root);
 		// Check for this node and return if false
-		if (root.isRed()) {
-			if (leftChild != null && leftChild.isRed())
+		if (isRed.test(root)) {
+			if (leftChild != null && isRed.test(leftChild))
 				return false;
-			if (rightChild != null && rightChild.isRed())
+			if (rightChild != null && isRed.test(rightChild))
 				return false;
 		}
 		// Check for children
-		boolean redPropertyInLeft = redPropertySatisfied(leftChild);
+		boolean redPropertyInLeft = redPropertySatisfied(leftChild, left, right, isRed);
 		if (redPropertyInLeft) {
-			return redPropertySatisfied(rightChild);
+			return redPropertySatisfied(rightChild, left, right, isRed);
 		} else {
 			return false;
 		}
@@ -332,25 +382,316 @@ public class RedBlackPropertiesTest {
 	}
 
 	public static <K extends Comparable<K>> boolean checkBlackNodesInPath(RedBlackTree<K> rbt) {
-		NodeRedBlackTree<K> root = rbt.getRoot();
-		return (blackNodesInPath(root) != -1);
+		return checkBlackNodesInPath(rbt.getRoot(), NodeRedBlackTree::getLeft, NodeRedBlackTree::getRight,
+				NodeRedBlackTree::isRed);
 	}
 
-	private static <K extends Comparable<K>> int blackNodesInPath(NodeRedBlackTree<K> root) {
+	private static <N> boolean checkBlackNodesInPath(N root, UnaryOperator<N> left, UnaryOperator<N> right,
+			Predicate<N> isRed) {
+		return (blackNodesInPath(root, left, right, isRed) != -1);
+	}
+
+	private static <N> int blackNodesInPath(N root, UnaryOperator<N> left, UnaryOperator<N> right,
+			Predicate<N> isRed) {
 		// Leaves that don't exist: count as one black node (including empty root)
 		if (root == null)
 			return 1;
 		// root is not null
-		int nBlackNodesInLeft = blackNodesInPath(root.getLeft());
-		int nBlackNodesInRight = blackNodesInPath(root.getRight());
-		if (nBlackNodesInLeft != nBlackNodesInRight)
+		int nBlackNodesInLeft = blackNodesInPath(left.apply(root), left, right, isRed);
+		int nBlackNodesInRight = blackNodesInPath(right.apply(root), left, right, isRed);
+		if (nBlackNodesInLeft == -1 || nBlackNodesInLeft != nBlackNodesInRight)
 			return -1; // Failure!
 		int nBlackNodes = nBlackNodesInLeft;
-		if (root.isRed() == false)
+		if (isRed.test(root) == false)
 			nBlackNodes++;
 		return nBlackNodes;
 	}
 
+	/*
+	 * Order statistics
+	 */
+
+	@Property
+	boolean sizesAreConsistent(@ForAll("insertFromNull") RedBlackTree<Integer> rbt) {
+		return checkSizes(rbt);
+	}
+
+	@Property
+	boolean sizesAreConsistentDeleteMins(@ForAll("insertAndDeleteMin") RedBlackTree<Integer> rbt) {
+		return checkSizes(rbt);
+	}
+
+	@Property
+	boolean sizesAreConsistentDeletes(@ForAll("insertDeleteFromNull") RedBlackTree<Integer> rbt) {
+		if (!TEST_DELETES)
+			return true;
+		return checkSizes(rbt);
+	}
+
+	@Property
+	boolean rankAndSelectAgree(@ForAll("insertDeleteFromNull") RedBlackTree<Integer> rbt) {
+		Integer[] contents = rbt.toSet().toArray(new Integer[0]);
+		Arrays.sort(contents);
+		if (rbt.size() != contents.length)
+			return false;
+		for (int i = 0; i < contents.length; i++) {
+			if (!contents[i].equals(rbt.select(i)) || rbt.rank(contents[i]) != i)
+				return false;
+		}
+		return true;
+	}
+
+	@Property
+	boolean rangeMatchesSortedContents(@ForAll("insertDeleteFromNull") RedBlackTree<Integer> rbt,
+			@ForAll int a, @ForAll int b, @ForAll boolean aInTree, @ForAll boolean bInTree) {
+		Integer[] contents = rbt.toSet().toArray(new Integer[0]);
+		Arrays.sort(contents);
+		if (contents.length > 0) {
+			// Pick the bounds in the tree half of the time
+			a = aInTree ? contents[Math.floorMod(a, contents.length)] : a;
+			b = bInTree ? contents[Math.floorMod(b, contents.length)] : b;
+		}
+		int lo = Math.min(a, b);
+		int hi = Math.max(a, b);
+		List<Integer> expected = new ArrayList<>();
+		for (Integer key : contents) {
+			if (key >= lo && key <= hi)
+				expected.add(key);
+		}
+		List<Integer> actual = new ArrayList<>();
+		rbt.range(lo, hi, actual::add);
+		return expected.equals(actual) && rbt.countRange(lo, hi) == expected.size()
+				&& rbt.countRange(hi, lo) == (lo == hi ? expected.size() : 0);
+	}
+
+	@Property
+	boolean iterativeInsertBuildsSameTree(@ForAll("operations") List<Tuple2<TYPE, Integer>> operations) {
+		RedBlackTree<Integer> iterative = new RedBlackTree<>();
+		RedBlackTree<Integer> recursive = new RedBlackTree<>();
+		for (Tuple2<TYPE, Integer> operation : operations) {
+			int key = operation.get2();
+			if (operation.get1() == TYPE.DELETE) {
+				iterative.delete(key);
+				recursive.delete(key);
+			} else {
+				iterative.insert(key);
+				recursive.insertRecursive(key);
+			}
+			if (!Objects.equals(iterative.toString(), recursive.toString()))
+				return false;
+		}
+		return checkSizes(iterative) && iterative.size() == recursive.size();
+	}
+
+	@Example
+	void insertsIntoDeepTrees() {
+		// A chain of 100 nodes, deeper than any red black tree, linked by hand
+		RedBlackTree<Integer> rbt = new RedBlackTree<>(0);
+		NodeRedBlackTree<Integer> node = rbt.getRoot();
+		for (int i = 1; i < 100; i++) {
+			node.setRight(new NodeRedBlackTree<>(i, false));
+			node = node.getRight();
+		}
+		rbt.insert(1000);
+		assertEquals(Integer.valueOf(1000), rbt.search(1000));
+		assertEquals(Integer.valueOf(1000), node.getRight().getData());
+	}
+
+	@Property
+	boolean fromSortedBuildsValidTree(@ForAll("sortedKeys") Integer[] keys,
+			@ForAll("updates") List<Tuple2<TYPE, Integer>> updates) {
+		RedBlackTree<Integer> rbt = RedBlackTree.fromSorted(keys);
+		HashSet<Integer> distinct = new HashSet<>(Arrays.asList(keys));
+		if (!checkRootBlack(rbt) || !checkRedNodesHaveBlackChildren(rbt) || !checkBlackNodesInPath(rbt)
+				|| !checkSizes(rbt) || !rbt.toSet().equals(distinct))
+			return false;
+		// The built tree must support the 2-3-4 updates
+		for (Tuple2<TYPE, Integer> update : updates) {
+			int key = update.get2();
+			if (update.get1() == TYPE.DELETE) {
+				rbt.delete(key);
+				distinct.remove(key);
+			} else {
+				rbt.insert(key);
+				distinct.add(key);
+			}
+		}
+		return checkRedNodesHaveBlackChildren(rbt) && checkBlackNodesInPath(rbt) && rbt.toSet().equals(distinct);
+	}
+
+	/**
+	 * Sorted keys with repetitions, as fromSorted accepts them.
+	 */
+	@Provide
+	Arbitrary<Integer[]> sortedKeys() {
+		return Arbitraries.integers().between(0, 999).array(Integer[].class).ofMaxSize(2000).map(keys -> {
+			Arrays.sort(keys);
+			return keys;
+		});
+	}
+
+	@Provide
+	Arbitrary<List<Tuple2<TYPE, Integer>>> updates() {
+		return operations(1000, 100, false);
+	}
+
+	@Example
+	void searchesNearInDeepTrees() {
+		// A chain of 100 nodes, deeper than any red black tree, linked by hand
+		RedBlackTree<Integer> rbt = new RedBlackTree<>(0);
+		NodeRedBlackTree<Integer> node = rbt.getRoot();
+		for (int i = 1; i < 100; i++) {
+			node.setRight(new NodeRedBlackTree<>(i, false));
+			node = node.getRight();
+		}
+		for (int i = 99; i >= -1; i--) {
+			assertEquals(i < 0 ? null : Integer.valueOf(i), rbt.searchNear(i));
+		}
+	}
+
+	@Property
+	boolean searchNearAgreesWithSearch(
+			@ForAll("searchRounds") List<Tuple3<Integer, List<Integer>, List<Tuple2<TYPE, Integer>>>> rounds) {
+		RedBlackTree<Integer> rbt = new RedBlackTree<>();
+		for (Tuple3<Integer, List<Integer>, List<Tuple2<TYPE, Integer>>> round : rounds) {
+			// Runs of nearby searches, with updates in between that move the saved path
+			int key = round.get1();
+			for (int step : round.get2()) {
+				key += step;
+				if (!Objects.equals(rbt.search(key), rbt.searchNear(key)))
+					return false;
+			}
+			for (Tuple2<TYPE, Integer> update : round.get3()) {
+				if (update.get1() == TYPE.DELETE) {
+					rbt.delete(update.get2());
+				} else if (update.get1() == TYPE.INSERT) {
+					rbt.insert(update.get2());
+				} else {
+					rbt.deleteMin();
+				}
+			}
+			// Split and join back, which replaces the nodes, after some rounds
+			if (round.get1() % 5 == 0)
+				rbt.union(rbt.split(round.get1()));
+		}
+		return true;
+	}
+
+	/**
+	 * Rounds of a starting key, the steps of a run of nearby searches, and the
+	 * updates that follow.
+	 */
+	@Provide
+	Arbitrary<List<Tuple3<Integer, List<Integer>, List<Tuple2<TYPE, Integer>>>>> searchRounds() {
+		Arbitrary<Integer> start = Arbitraries.integers().between(0, 999);
+		Arbitrary<List<Integer>> steps = Arbitraries.integers().between(-4, 4).list().ofMaxSize(50);
+		return Combinators.combine(start, steps, operations(1000, 50, true)).as(Tuple::of).list().ofMaxSize(20);
+	}
+
+	/**
+	 * Returns true if the size stored in every node is the number of nodes of its
+	 * subtree.
+	 */
+	public static <K extends Comparable<K>> boolean checkSizes(RedBlackTree<K> rbt) {
+		return sizeIfConsistent(rbt.getRoot()) != -1;
+	}
+
+	/**
+	 * All the checks above: the root is black, red nodes have black children,
+	 * every path has the same black nodes and the sizes are consistent.
+	 */
+	public static <K extends Comparable<K>> boolean checkInvariants(RedBlackTree<K> rbt) {
+		return checkRootBlack(rbt) && checkRedNodesHaveBlackChildren(rbt) && checkBlackNodesInPath(rbt)
+				&& checkSizes(rbt);
+	}
+
+	private static <K extends Comparable<K>> int sizeIfConsistent(NodeRedBlackTree<K> root) {
+		if (root == null)
+			return 0;
+		int left = sizeIfConsistent(root.getLeft());
+		int right = sizeIfConsistent(root.getRight());
+		if (left == -1 || right == -1 || root.getSize() != left + right + 1)
+			return -1;
+		return root.getSize();
+	}
+
+	/*
+	 * Model check of the other tree structures
+	 */
+
+	/**
+	 * A tree of Integer keys under test, as checkAgainstModel sees it. The results
+	 * are null when the key is not in the tree.
+	 */
+	public interface TreeAdapter {
+
+		void insert(int key);
+
+		Integer delete(int key);
+
+		Integer search(int key);
+
+		int size();
+
+		/**
+		 * Only called when the operations include DELETEMIN.
+		 */
+		default Integer deleteMin() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Text of the tree, for the structures that run the algorithm of RedBlackTree
+		 * and must end with its shape and colors. Null skips that check.
+		 */
+		default String shape() {
+			return null;
+		}
+
+		/**
+		 * Checks of the structure itself, run after every operation.
+		 */
+		default void check(SortedSet<Integer> model) {
+		}
+	}
+
+	/**
+	 * Runs the operations on the tree, on a TreeSet model and on a RedBlackTree
+	 * reference, comparing the results and the shape after every operation.
+	 * 
+	 * @return the model after the operations
+	 */
+	public static TreeSet<Integer> checkAgainstModel(TreeAdapter tree, List<Tuple2<TYPE, Integer>> operations) {
+		TreeSet<Integer> model = new TreeSet<>();
+		RedBlackTree<Integer> reference = new RedBlackTree<>();
+		for (Tuple2<TYPE, Integer> operation : operations) {
+			int k = operation.get2();
+			switch (operation.get1()) {
+			case DELETE:
+				assertEquals(model.remove(k) ? Integer.valueOf(k) : null, tree.delete(k));
+				reference.delete(k);
+				break;
+			case DELETEMIN:
+				assertEquals(model.pollFirst(), tree.deleteMin());
+				reference.deleteMin();
+				break;
+			default:
+				tree.insert(k);
+				reference.insert(k);
+				model.add(k);
+			}
+			assertEquals(model.contains(k) ? Integer.valueOf(k) : null, tree.search(k));
+			assertEquals(model.size(), tree.size());
+			// Same algorithm as RedBlackTree, so same shape and colors
+			String shape = tree.shape();
+			if (shape != null)
+				assertEquals(reference.toString(), shape);
+			tree.check(model);
+		}
+		assertTrue(checkInvariants(reference));
+		return model;
+	}
+
 	/*
 	 * Other API methods
 	 */
@@ -0,0 +1,198 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import DynamicTreeStructures.structure.RedBlackPropertiesTest.TYPE;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Combinators;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple;
+import net.jqwik.api.Tuple.Tuple2;
+
+public class RedBlackSetOperationsTest {
+
+	/**
+	 * Two sets of keys in [0, range), the second one up to 50 times smaller so
+	 * that the heights of their trees differ.
+	 */
+	@Provide
+	Arbitrary<Tuple2<TreeSet<Integer>, TreeSet<Integer>>> unevenSets() {
+		return Arbitraries.integers().between(1, 2000).flatMap(range -> {
+			Arbitrary<Integer> keys = Arbitraries.integers().between(0, range - 1);
+			Arbitrary<TreeSet<Integer>> smaller = Arbitraries.integers().between(1, 50)
+					.flatMap(ratio -> sets(keys, range / ratio));
+			return Combinators.combine(sets(keys, range - 1), smaller).as(Tuple::of);
+		});
+	}
+
+	/**
+	 * Two sets of keys in [0, range) of any size up to range.
+	 */
+	@Provide
+	Arbitrary<Tuple2<TreeSet<Integer>, TreeSet<Integer>>> sets() {
+		return Arbitraries.integers().between(1, 2000).flatMap(range -> {
+			Arbitrary<Integer> keys = Arbitraries.integers().between(0, range - 1);
+			return Combinators.combine(sets(keys, range - 1), sets(keys, range - 1)).as(Tuple::of);
+		});
+	}
+
+	/**
+	 * Sets above the default sequential cutoff of 8192 keys.
+	 */
+	@Provide
+	Arbitrary<Tuple2<TreeSet<Integer>, TreeSet<Integer>>> largeSets() {
+		Arbitrary<Integer> keys = Arbitraries.integers().between(0, 99999);
+		return Combinators.combine(keys.list().ofMinSize(20000).ofMaxSize(40000).map(TreeSet::new),
+				keys.list().ofMinSize(1000).ofMaxSize(31000).map(TreeSet::new)).as(Tuple::of);
+	}
+
+	@Provide
+	Arbitrary<List<Tuple2<TYPE, Integer>>> updates() {
+		return RedBlackPropertiesTest.operations(2000, 50, false);
+	}
+
+	@Property(tries = 300)
+	void setOperationsMatchTreeSet(@ForAll("unevenSets") Tuple2<TreeSet<Integer>, TreeSet<Integer>> sets,
+			@ForAll RedBlackTree.SetOperation operation, @ForAll("updates") List<Tuple2<TYPE, Integer>> updates) {
+		TreeSet<Integer> a = sets.get1();
+		TreeSet<Integer> b = sets.get2();
+		RedBlackTree<Integer> tree = fromSet(a);
+		RedBlackTree<Integer> other = fromSet(b);
+		TreeSet<Integer> expected = new TreeSet<>(a);
+		switch (operation) {
+		case UNION:
+			tree.union(other);
+			expected.addAll(b);
+			break;
+		case INTERSECTION:
+			tree.intersection(other);
+			expected.retainAll(b);
+			break;
+		default:
+			tree.difference(other);
+			expected.removeAll(b);
+		}
+		assertNull(other.getRoot());
+		checkTree(tree, expected);
+		// The result must still support the 2-3-4 updates
+		for (Tuple2<TYPE, Integer> update : updates) {
+			int k = update.get2();
+			if (update.get1() == TYPE.DELETE) {
+				assertEquals(expected.remove(k) ? Integer.valueOf(k) : null, tree.delete(k));
+			} else {
+				tree.insert(k);
+				expected.add(k);
+			}
+		}
+		checkTree(tree, expected);
+	}
+
+	@Property(tries = 10)
+	void parallelOperationsMatchTreeSet(@ForAll("largeSets") Tuple2<TreeSet<Integer>, TreeSet<Integer>> sets,
+			@ForAll RedBlackTree.SetOperation operation) {
+		TreeSet<Integer> a = sets.get1();
+		TreeSet<Integer> b = sets.get2();
+		RedBlackTree<Integer> tree = fromSet(a);
+		RedBlackTree<Integer> other = fromSet(b);
+		TreeSet<Integer> expected = new TreeSet<>(a);
+		switch (operation) {
+		case UNION:
+			tree.parallelUnion(other);
+			expected.addAll(b);
+			break;
+		case INTERSECTION:
+			tree.parallelIntersection(other);
+			expected.retainAll(b);
+			break;
+		default:
+			tree.parallelDifference(other);
+			expected.removeAll(b);
+		}
+		assertNull(other.getRoot());
+		checkTree(tree, expected);
+	}
+
+	/**
+	 * With a cutoff of one key every task with two non-empty trees forks, so
+	 * small trees run the forked path down to the leaves.
+	 */
+	@Property(tries = 300)
+	void forkedOperationsMatchSequential(@ForAll("sets") Tuple2<TreeSet<Integer>, TreeSet<Integer>> sets,
+			@ForAll RedBlackTree.SetOperation operation) {
+		TreeSet<Integer> a = sets.get1();
+		TreeSet<Integer> b = sets.get2();
+		RedBlackTree<Integer> forked = fromSet(a);
+		RedBlackTree<Integer> sequential = fromSet(a);
+		forked.parallel(operation, fromSet(b), 1);
+		switch (operation) {
+		case UNION:
+			sequential.union(fromSet(b));
+			break;
+		case INTERSECTION:
+			sequential.intersection(fromSet(b));
+			break;
+		default:
+			sequential.difference(fromSet(b));
+		}
+		checkTree(forked, new TreeSet<>(sequential.toSet()));
+		assertEquals(sequential.toString(), forked.toString());
+	}
+
+	/**
+	 * A set of keys in [0, range) and a key of the range to split it at.
+	 */
+	@Provide
+	Arbitrary<Tuple2<TreeSet<Integer>, Integer>> splits() {
+		return Arbitraries.integers().between(1, 1000).flatMap(range -> {
+			Arbitrary<Integer> keys = Arbitraries.integers().between(0, range - 1);
+			return Combinators.combine(sets(keys, range - 1), keys).as(Tuple::of);
+		});
+	}
+
+	@Property(tries = 300)
+	void splitAndJoin(@ForAll("splits") Tuple2<TreeSet<Integer>, Integer> split) {
+		TreeSet<Integer> keys = split.get1();
+		RedBlackTree<Integer> tree = fromSet(keys);
+		int key = split.get2();
+		boolean found = keys.contains(key);
+		RedBlackTree<Integer> greater = tree.split(key);
+		checkTree(tree, new TreeSet<>(keys.headSet(key, false)));
+		checkTree(greater, new TreeSet<>(keys.tailSet(key, false)));
+		RedBlackTree<Integer> joined = RedBlackTree.join(tree, key, greater);
+		keys.add(key);
+		checkTree(joined, keys);
+		assertNull(tree.getRoot());
+		assertTrue(found || joined.size() == keys.size());
+	}
+
+	/**
+	 * Sets of up to maxSize keys, drawn with repetition.
+	 */
+	private static Arbitrary<TreeSet<Integer>> sets(Arbitrary<Integer> keys, int maxSize) {
+		return keys.list().ofMaxSize(maxSize).map(TreeSet::new);
+	}
+
+	private static RedBlackTree<Integer> fromSet(TreeSet<Integer> set) {
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+		for (Integer k : set) {
+			tree.insert(k);
+		}
+		return tree;
+	}
+
+	private static void checkTree(RedBlackTree<Integer> tree, TreeSet<Integer> expected) {
+		assertTrue(RedBlackPropertiesTest.checkInvariants(tree));
+		List<Integer> contents = new ArrayList<>();
+		tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, contents::add);
+		assertEquals(new ArrayList<>(expected), contents);
+	}
+}
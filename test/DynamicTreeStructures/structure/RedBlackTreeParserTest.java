@@ -0,0 +1,65 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.constraints.LongRange;
+import net.jqwik.api.constraints.Size;
+
+public class RedBlackTreeParserTest {
+
+	@Property(tries = 100)
+	void readsBothFormats(@ForAll @Size(min = 1, max = 500) List<@LongRange(min = -5000, max = 4999) Long> keys)
+			throws IOException {
+		RedBlackTree<Long> tree = new RedBlackTree<>();
+		for (Long k : keys) {
+			tree.insert(k);
+		}
+		RedBlackTree<Long> plain = RedBlackTree.fromReader(new StringReader(tree.toString()),
+				s -> Long.parseLong(s, 0, s.length(), 10));
+		assertEquals(tree.toString(), plain.toString());
+		assertEquals(tree.size(), plain.size());
+		RedBlackTree<Long> formated = RedBlackTree
+				.fromReader(new StringReader(tree.toString(true).replace("\n", "\r\n")), s -> Long.valueOf(s.toString()));
+		assertEquals(tree.toString(), formated.toString());
+	}
+
+	/**
+	 * A chain much deeper than the call stack allows to recurse. It is not a red
+	 * black tree, so it is rebuilt balanced.
+	 */
+	@Example
+	void rebuildsDegenerateTrees() throws IOException {
+		int n = 200000;
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			input.append(i).append(";black;null;").append(i + 1 < n ? i + 1 : "null").append('\n');
+		}
+		RedBlackTree<Integer> tree = RedBlackTree.fromReader(new StringReader(input.toString()),
+				RedBlackTree::parseInt);
+		assertEquals(n, tree.size());
+		assertEquals(Integer.valueOf(n - 1), tree.select(n - 1));
+		assertTrue(RedBlackPropertiesTest.checkInvariants(tree));
+	}
+
+	/**
+	 * Keys out of order, a duplicate and two reds in a row.
+	 */
+	@Example
+	void rebuildsInvalidTrees() throws IOException {
+		String input = "5;black;7;3\n7;red;null;null\n3;red;3;null\n3;red;null;null";
+		RedBlackTree<Integer> tree = RedBlackTree.fromReader(new StringReader(input), RedBlackTree::parseInt);
+		assertEquals(new HashSet<>(Arrays.asList(3, 5, 7)), tree.toSet());
+		assertEquals(3, tree.size());
+		assertTrue(RedBlackPropertiesTest.checkInvariants(tree));
+	}
+}
@@ -0,0 +1,80 @@
+package DynamicTreeStructures.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.constraints.Size;
+
+public class RedBlackTreeSnapshotTest {
+
+	/**
+	 * Small mappings, so that the keys span several of them.
+	 */
+	@Property(tries = 50)
+	void loadsTheSavedKeys(@ForAll @Size(max = 3000) List<Long> keys) throws IOException {
+		RedBlackTree<Long> tree = new RedBlackTree<>();
+		for (Long k : keys) {
+			tree.insert(k);
+		}
+		Path file = Files.createTempFile("rbt", ".snapshot");
+		try {
+			RedBlackTreeSnapshot.write(tree, KeyCodec.LONG, file);
+			RedBlackTree<Long> loaded = RedBlackTreeSnapshot.load(file, KeyCodec.LONG, 8 * 100);
+			assertEquals(tree.toSet(), loaded.toSet());
+			assertEquals(tree.size(), loaded.size());
+			for (int i = 0; i < tree.size(); i++) {
+				assertEquals(tree.select(i), loaded.select(i));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Example
+	void replacesTheSnapshot() throws IOException {
+		Path directory = Files.createTempDirectory("rbt");
+		Path file = directory.resolve("tree.snapshot");
+		try {
+			RedBlackTree<Integer> tree = new RedBlackTree<>();
+			for (int i = 0; i < 1000; i++) {
+				tree.insert(i);
+			}
+			RedBlackTreeSnapshot.write(tree, KeyCodec.INT, file);
+			RedBlackTree<Integer> smaller = new RedBlackTree<>();
+			smaller.insert(7);
+			RedBlackTreeSnapshot.write(smaller, KeyCodec.INT, file);
+			assertEquals(smaller.toSet(), RedBlackTreeSnapshot.load(file, KeyCodec.INT).toSet());
+			try (Stream<Path> files = Files.list(directory)) {
+				assertEquals("The temporary file was left behind", 1, files.count());
+			}
+		} finally {
+			Files.deleteIfExists(file);
+			Files.delete(directory);
+		}
+	}
+
+	@Example
+	void rejectsOtherCodecs() throws IOException {
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+		tree.insert(1);
+		Path file = Files.createTempFile("rbt", ".snapshot");
+		try {
+			RedBlackTreeSnapshot.write(tree, KeyCodec.INT, file);
+			RedBlackTreeSnapshot.load(file, KeyCodec.LONG);
+			fail("Loaded with a codec of another width");
+		} catch (IOException e) {
+			// Expected
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
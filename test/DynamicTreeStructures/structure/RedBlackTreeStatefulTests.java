@@ -154,6 +154,10 @@ public class RedBlackTreeStatefulTests {
 		.withInvariant("sameNumberOfBlackNodesOnEachPath", rbt_and_set -> {
 			assertTrue(RedBlackPropertiesTest.checkBlackNodesInPath(rbt_and_set.get1()));
 		})
+		.withInvariant("sizesAreConsistent", rbt_and_set -> {
+			assertTrue(RedBlackPropertiesTest.checkSizes(rbt_and_set.get1()));
+			assertEquals(rbt_and_set.get2().size(), rbt_and_set.get1().size());
+		})
 		.run();
 	}
 
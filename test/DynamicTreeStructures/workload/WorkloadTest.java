@@ -0,0 +1,51 @@
+package DynamicTreeStructures.workload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.TreeSet;
+
+import DynamicTreeStructures.structure.RedBlackTree;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.constraints.IntRange;
+
+public class WorkloadTest {
+
+	@Property(tries = 50)
+	void textRoundTrip(@ForAll @IntRange(max = 2000) int count, @ForAll long seed) throws IOException {
+		Workload generated = Workload.generate(count, 100, KeyDistribution.ZIPFIAN, new int[] { 5, 3, 2 }, seed);
+		StringWriter text = new StringWriter();
+		generated.write(text);
+		Workload read = Workload.read(new StringReader("# comment\n\n" + text));
+		assertEquals(count, read.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(generated.operation(i), read.operation(i));
+			assertEquals(generated.key(i), read.key(i));
+			assertTrue(read.key(i) >= 0 && read.key(i) < 100);
+		}
+	}
+
+	@Example
+	void runsAgainstTheTree() {
+		Workload workload = Workload.generate(100000, 1000, KeyDistribution.UNIFORM, new int[] { 2, 1, 1 }, 1);
+		WorkloadRunner runner = new WorkloadRunner(RedBlackTree::new);
+		RedBlackTree<Integer> tree = (RedBlackTree<Integer>) runner.run(workload);
+
+		TreeSet<Integer> model = new TreeSet<>();
+		for (int i = 0; i < workload.size(); i++) {
+			if (workload.operation(i) == Workload.INSERT) {
+				model.add(workload.key(i));
+			} else if (workload.operation(i) == Workload.DELETE) {
+				model.remove(workload.key(i));
+			}
+		}
+		assertEquals(model, tree.toSet());
+		assertEquals(model.size(), tree.size());
+		assertTrue(runner.latencies(Workload.SEARCH).percentile(50) <= runner.latencies(Workload.SEARCH).percentile(99));
+	}
+}